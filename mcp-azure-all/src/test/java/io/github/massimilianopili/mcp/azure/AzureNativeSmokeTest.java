@@ -0,0 +1,150 @@
+package io.github.massimilianopili.mcp.azure;
+
+import io.github.massimilianopili.mcp.azure.core.AzureIndexedToolCallbackProvider;
+import io.github.massimilianopili.mcp.azure.core.AzureLockTools;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
+import io.github.massimilianopili.mcp.azure.core.AzureResourceGroupTools;
+import io.github.massimilianopili.mcp.azure.core.AzureTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Avvio di tutti i moduli con l'indice dei tool e un exclude, contro uno stub locale di ARM e del token endpoint.
+ * Con {@code mvn -PnativeTest test} il contesto viene elaborato da Spring AOT e il test gira in un native image:
+ * verifica che l'esclusione delle classi tool, i bean lazy e l'indice letto da {@code ServiceLoader}
+ * sopravvivano all'elaborazione AOT.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "mcp.azure.tenant-id=tenant",
+        "mcp.azure.client-id=client",
+        "mcp.azure.client-secret=secret",
+        "mcp.azure.subscription-id=s1",
+        "mcp.azure.tool-index.enabled=true",
+        "mcp.azure.tools.exclude=azure_*_lock*",
+        "mcp.azure.warmup.enabled=false"
+})
+class AzureNativeSmokeTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private AzureIndexedToolCallbackProvider provider;
+
+    @Test
+    void excludedToolClassIsNotRegistered() {
+        assertEquals(0, beanFactory.getBeanNamesForType(AzureLockTools.class, true, false).length);
+        assertEquals(1, beanFactory.getBeanNamesForType(AzureResourceGroupTools.class, true, false).length);
+    }
+
+    @Test
+    void indexListsToolsOfEveryModule() {
+        Set<String> tools = Arrays.stream(provider.getToolCallbacks())
+                .map(c -> c.getToolDefinition().name())
+                .collect(Collectors.toSet());
+
+        assertTrue(tools.contains("azure_list_resource_groups"));
+        assertTrue(tools.contains("azure_list_vms"));
+        assertTrue(tools.contains("azure_list_storage_accounts"));
+        assertFalse(tools.contains("azure_list_locks"));
+    }
+
+    @Test
+    void toolBeanIsCreatedOnFirstCall() {
+        String bean = beanFactory.getBeanNamesForType(AzureResourceGroupTools.class, true, false)[0];
+        assertFalse(beanFactory.containsSingleton(bean));
+
+        String result = callback("azure_list_resource_groups").call("{}");
+
+        assertTrue(result.contains("rg-smoke"), result);
+        assertTrue(beanFactory.containsSingleton(bean));
+    }
+
+    private ToolCallback callback(String name) {
+        return Arrays.stream(provider.getToolCallbacks())
+                .filter(c -> c.getToolDefinition().name().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    static class SmokeApplication {
+
+        /** Token service e WebClient ARM verso lo stub; filtri e pool restano quelli dell'auto-configurazione */
+        @Bean
+        static BeanPostProcessor armStubRedirect(ObjectProvider<AzureProfileRegistry> profiles) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof AzureTokenService) {
+                        return new AzureTokenService(WebClient.builder().filter(toStub()).build(), profiles.getObject());
+                    }
+                    if (bean instanceof WebClient client && beanName.equals("azureArmWebClient")) {
+                        // ultimo filtro: guard e hedging vedono ancora l'host ARM
+                        return client.mutate().filter(toStub()).build();
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static ExchangeFilterFunction toStub() {
+            return (request, next) -> next.exchange(ClientRequest.from(request)
+                    .url(UriComponentsBuilder.fromUri(request.url())
+                            .scheme("http").host("127.0.0.1").port(ArmStub.port())
+                            .build(true).toUri())
+                    .build());
+        }
+    }
+
+    /** ARM e token endpoint simulati; avviato al primo uso, quindi a runtime anche nel native image */
+    static final class ArmStub {
+
+        private static DisposableServer server;
+
+        static synchronized int port() {
+            if (server == null) {
+                server = HttpServer.create().host("127.0.0.1").port(0)
+                        .handle((request, response) -> response.header("Content-Type", "application/json")
+                                .sendString(Mono.just(body(request.uri()))))
+                        .bindNow();
+            }
+            return server.port();
+        }
+
+        private static String body(String uri) {
+            if (uri.contains("/oauth2/v2.0/token")) {
+                return "{\"access_token\":\"stub\",\"token_type\":\"Bearer\",\"expires_in\":3600}";
+            }
+            if (uri.startsWith("/subscriptions/s1/resourceGroups")) {
+                return "{\"value\":[{\"name\":\"rg-smoke\",\"location\":\"westeurope\","
+                        + "\"properties\":{\"provisioningState\":\"Succeeded\"}}]}";
+            }
+            return "{\"value\":[]}";
+        }
+    }
+}
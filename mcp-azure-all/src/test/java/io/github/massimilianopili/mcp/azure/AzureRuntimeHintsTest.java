@@ -0,0 +1,129 @@
+package io.github.massimilianopili.mcp.azure;
+
+import io.github.massimilianopili.mcp.azure.compute.AzureAcrTools;
+import io.github.massimilianopili.mcp.azure.compute.AzureAgentPool;
+import io.github.massimilianopili.mcp.azure.compute.AzureComputeAutoConfiguration;
+import io.github.massimilianopili.mcp.azure.compute.AzureVirtualMachine;
+import io.github.massimilianopili.mcp.azure.core.AzureArmPage;
+import io.github.massimilianopili.mcp.azure.core.AzureCoreAutoConfiguration;
+import io.github.massimilianopili.mcp.azure.core.AzureResourceGroupTools;
+import io.github.massimilianopili.mcp.azure.core.AzureTokenCacheStore;
+import io.github.massimilianopili.mcp.azure.core.AzureToolIndex;
+import io.github.massimilianopili.mcp.azure.data.AzureDataAutoConfiguration;
+import io.github.massimilianopili.mcp.azure.data.AzureStorageAccount;
+import io.github.massimilianopili.mcp.azure.data.AzureStorageTools;
+import io.github.massimilianopili.mcp.azure.integration.AzureApiManagementTools;
+import io.github.massimilianopili.mcp.azure.integration.AzureIntegrationAutoConfiguration;
+import io.github.massimilianopili.mcp.azure.messaging.AzureEventHubTools;
+import io.github.massimilianopili.mcp.azure.messaging.AzureMessagingAutoConfiguration;
+import io.github.massimilianopili.mcp.azure.monitoring.AzureAlertTools;
+import io.github.massimilianopili.mcp.azure.monitoring.AzureMonitoringAutoConfiguration;
+import io.github.massimilianopili.mcp.azure.network.AzureDnsRecordSet;
+import io.github.massimilianopili.mcp.azure.network.AzureNatGatewayTools;
+import io.github.massimilianopili.mcp.azure.network.AzureNetworkAutoConfiguration;
+import io.github.massimilianopili.mcp.azure.security.AzureAdTools;
+import io.github.massimilianopili.mcp.azure.security.AzureRoleAssignment;
+import io.github.massimilianopili.mcp.azure.security.AzureSecurityAutoConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hint AOT di ogni modulo, letti come fa Spring dall'{@code @ImportRuntimeHints} della sua auto-configurazione.
+ */
+class AzureRuntimeHintsTest {
+
+    /** Auto-configurazione del modulo, una sua classe tool e i DTO Jackson che registra */
+    record Module(Class<?> autoConfiguration, Class<?> tool, List<Class<?>> dtos) {
+
+        @Override
+        public String toString() {
+            return autoConfiguration.getSimpleName();
+        }
+    }
+
+    static List<Module> modules() {
+        return List.of(
+                new Module(AzureCoreAutoConfiguration.class, AzureResourceGroupTools.class,
+                        List.of(AzureArmPage.class, AzureTokenCacheStore.Entry.class)),
+                new Module(AzureComputeAutoConfiguration.class, AzureAcrTools.class,
+                        List.of(AzureVirtualMachine.class, AzureAgentPool.class)),
+                new Module(AzureNetworkAutoConfiguration.class, AzureNatGatewayTools.class, List.of(AzureDnsRecordSet.class)),
+                new Module(AzureDataAutoConfiguration.class, AzureStorageTools.class, List.of(AzureStorageAccount.class)),
+                new Module(AzureMessagingAutoConfiguration.class, AzureEventHubTools.class, List.of()),
+                new Module(AzureSecurityAutoConfiguration.class, AzureAdTools.class, List.of(AzureRoleAssignment.class)),
+                new Module(AzureMonitoringAutoConfiguration.class, AzureAlertTools.class, List.of()),
+                new Module(AzureIntegrationAutoConfiguration.class, AzureApiManagementTools.class, List.of()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("modules")
+    void toolClassesAreReflective(Module module) {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(module.tool())
+                .withMemberCategories(MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .test(hints(module)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("modules")
+    void generatedIndexAndServiceFileAreRegistered(Module module) {
+        RuntimeHints hints = hints(module);
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of(module.tool().getPackageName() + ".GeneratedAzureToolIndex"))
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/" + AzureToolIndex.class.getName())
+                .test(hints));
+    }
+
+    @ParameterizedTest
+    @MethodSource("modules")
+    void jacksonDtosAreRegistered(Module module) {
+        RuntimeHints hints = hints(module);
+        for (Class<?> dto : module.dtos()) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(dto).test(hints), dto.getName());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("modules")
+    void otherModulesToolsAreNotRegistered(Module module) {
+        // ogni registrar limita i tool al proprio package
+        RuntimeHints hints = hints(module);
+        for (Module other : modules()) {
+            if (other.tool() == module.tool()) continue;
+            assertFalse(RuntimeHintsPredicates.reflection().onType(other.tool()).test(hints), other.tool().getName());
+        }
+    }
+
+    @Test
+    void filteredProviderProxyIsRegistered() {
+        assertTrue(RuntimeHintsPredicates.proxies()
+                .forInterfaces(AopProxyUtils.completeJdkProxyInterfaces(ToolCallbackProvider.class))
+                .test(hints(modules().get(0))));
+    }
+
+    private static RuntimeHints hints(Module module) {
+        RuntimeHints hints = new RuntimeHints();
+        for (Class<? extends RuntimeHintsRegistrar> registrar :
+                module.autoConfiguration().getAnnotation(ImportRuntimeHints.class).value()) {
+            BeanUtils.instantiateClass(registrar).registerHints(hints, AzureRuntimeHintsTest.class.getClassLoader());
+        }
+        return hints;
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
+import io.github.massimilianopili.mcp.azure.core.AzureProgress;
+import io.github.massimilianopili.mcp.azure.core.AzureTokenService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client del data plane ACR (Docker Registry API v2).
+ * Il token AAD del profilo viene scambiato con un refresh token ACR ({@code /oauth2/exchange}),
+ * da cui si ottengono access token per scope ({@code /oauth2/token}); entrambi restano in cache
+ * per registry e scope fino a poco prima della scadenza indicata nel JWT.
+ * A ogni nuova voce le voci scadute vengono rimosse e, oltre {@link #MAX_CACHED_TOKENS},
+ * si scartano quelle in scadenza più vicina: uno scope per repository non fa crescere la cache senza limite.
+ * Le liste seguono l'header {@code Link: <...>; rel="next"} pagina per pagina.
+ */
+class AzureAcrClient {
+
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>\\s*;\\s*rel=\"?next\"?");
+    private static final int PAGE_SIZE = 1000;
+    /** Anticipo sulla scadenza del JWT oltre il quale il token viene rinnovato */
+    private static final Duration EXPIRY_MARGIN = Duration.ofMinutes(5);
+    /** Durata assunta se il JWT non riporta exp */
+    private static final Duration DEFAULT_LIFETIME = Duration.ofMinutes(60);
+    /** Voci al massimo per ciascuna cache (refresh token, access token) */
+    static final int MAX_CACHED_TOKENS = 500;
+
+    private final WebClient http;
+    private final AzureTokenService tokenService;
+    private final AzureProfileRegistry profiles;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Cached> refreshTokens = new ConcurrentHashMap<>();
+    private final Map<String, Cached> accessTokens = new ConcurrentHashMap<>();
+
+    AzureAcrClient(WebClient http, AzureTokenService tokenService, AzureProfileRegistry profiles) {
+        this.http = http;
+        this.tokenService = tokenService;
+        this.profiles = profiles;
+    }
+
+    private record Token(String value, Instant refreshAt) {
+    }
+
+    /** Token condiviso dalle chiamate concorrenti e scadenza dell'ultimo valore ottenuto (null finché non arriva) */
+    private static final class Cached {
+
+        final Mono<Token> token;
+        volatile Instant refreshAt;
+
+        Cached(Supplier<Mono<Token>> fetch) {
+            this.token = Mono.defer(fetch)
+                    .doOnNext(t -> refreshAt = t.refreshAt())
+                    .cacheInvalidateIf(t -> !Instant.now().isBefore(t.refreshAt()));
+        }
+    }
+
+    /** Login server del registry: il nome breve diventa {@code <nome>.azurecr.io} */
+    static String loginServer(String registry) {
+        String r = registry.trim().toLowerCase();
+        return r.contains(".") ? r : r + ".azurecr.io";
+    }
+
+    /** Nomi dei repository, tutte le pagine di {@code /v2/_catalog} */
+    Flux<String> repositories(String profile, String registry) {
+        String host = loginServer(registry);
+        return accessToken(profile, host, "registry:catalog:*")
+                .flatMapMany(token -> list(host, "/v2/_catalog?n=" + PAGE_SIZE, token, "repositories"));
+    }
+
+    /** Tag del repository, tutte le pagine di {@code /v2/<repo>/tags/list} */
+    Flux<String> tags(String profile, String registry, String repository) {
+        String host = loginServer(registry);
+        return accessToken(profile, host, "repository:" + repository + ":metadata_read")
+                .flatMapMany(token -> list(host, "/v2/" + repository + "/tags/list?n=" + PAGE_SIZE, token, "tags"));
+    }
+
+    /**
+     * Metadati dei manifest del repository ({@code /acr/v1/<repo>/_manifests}): digest, imageSize,
+     * createdTime, lastUpdateTime, tags. Le pagine arrivano in streaming, una alla volta.
+     */
+    Flux<Map<String, Object>> manifests(String profile, String registry, String repository) {
+        String host = loginServer(registry);
+        return accessToken(profile, host, "repository:" + repository + ":metadata_read")
+                .flatMapMany(token -> list(host, "/acr/v1/" + repository + "/_manifests?n=" + PAGE_SIZE, token, "manifests"));
+    }
+
+    /** Access token per lo scope, dalla cache o dal refresh token del registry */
+    Mono<String> accessToken(String profile, String host, String scope) {
+        String key = AzureProfileRegistry.normalize(profile) + "|" + host + "|" + scope;
+        return cached(accessTokens, key, () -> refreshToken(profile, host)
+                .flatMap(refresh -> http.post()
+                        .uri("https://" + host + "/oauth2/token")
+                        .body(BodyInserters.fromFormData("grant_type", "refresh_token")
+                                .with("service", host)
+                                .with("scope", scope)
+                                .with("refresh_token", refresh))
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> token(required(r, "access_token", host)))));
+    }
+
+    private Mono<String> refreshToken(String profile, String host) {
+        String key = AzureProfileRegistry.normalize(profile) + "|" + host;
+        return cached(refreshTokens, key, () -> tokenService.getToken(profile, AzureTokenService.ARM_SCOPE)
+                .flatMap(aad -> {
+                    BodyInserters.FormInserter<String> form = BodyInserters.fromFormData("grant_type", "access_token")
+                            .with("service", host)
+                            .with("access_token", aad);
+                    String tenantId = profiles.resolve(profile).getTenantId();
+                    if (tenantId != null) form.with("tenant", tenantId);
+                    return http.post().uri("https://" + host + "/oauth2/exchange").body(form).retrieve()
+                            .bodyToMono(Map.class)
+                            .map(r -> token(required(r, "refresh_token", host)));
+                }));
+    }
+
+    /** Token condiviso dalle chiamate concorrenti; scaduto o in errore viene richiesto di nuovo */
+    private static Mono<String> cached(Map<String, Cached> cache, String key, Supplier<Mono<Token>> fetch) {
+        Cached entry = cache.get(key);
+        if (entry == null) {
+            evict(cache);
+            entry = cache.computeIfAbsent(key, k -> new Cached(fetch));
+        }
+        return entry.token.map(Token::value);
+    }
+
+    /** Rimuove le voci scadute e, oltre il limite, quelle in scadenza più vicina (prima quelle mai ottenute) */
+    private static void evict(Map<String, Cached> cache) {
+        Instant now = Instant.now();
+        cache.values().removeIf(c -> c.refreshAt != null && !now.isBefore(c.refreshAt));
+        while (cache.size() >= MAX_CACHED_TOKENS) {
+            cache.entrySet().stream()
+                    .min(Comparator.comparing((Map.Entry<String, Cached> e) -> e.getValue().refreshAt,
+                            Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .ifPresent(e -> cache.remove(e.getKey()));
+        }
+    }
+
+    /** Token della risposta OAuth2 del registry; assente o vuoto è un errore, da non mettere in cache */
+    private static String required(Map<?, ?> response, String field, String host) {
+        if (response.get(field) instanceof String value && !value.isBlank()) return value;
+        throw new IllegalStateException("Risposta di " + host + " senza " + field);
+    }
+
+    /** Scadenza letta dal claim exp del JWT, senza verificarne la firma */
+    private Token token(String jwt) {
+        Instant expiry = Instant.now().plus(DEFAULT_LIFETIME);
+        String[] parts = jwt.split("\\.");
+        if (parts.length >= 2) {
+            try {
+                Map<?, ?> claims = mapper.readValue(Base64.getUrlDecoder().decode(parts[1]), Map.class);
+                if (claims.get("exp") instanceof Number exp) expiry = Instant.ofEpochSecond(exp.longValue());
+            } catch (Exception ignored) {
+                // token opaco: si usa la durata di default
+            }
+        }
+        return new Token(jwt, expiry.minus(EXPIRY_MARGIN));
+    }
+
+    private <T> Flux<T> list(String host, String path, String token, String field) {
+        Flux<ResponseEntity<Map>> pages = page(host, path, token).expand(response -> {
+            String next = nextLink(response);
+            return next != null ? page(host, next, token) : Mono.empty();
+        });
+        return AzureProgress.pages(pages, r -> items(r, field).size())
+                .concatMapIterable(r -> AzureAcrClient.<T>items(r, field));
+    }
+
+    private Mono<ResponseEntity<Map>> page(String host, String pathOrUrl, String token) {
+        String url = pathOrUrl.startsWith("http") ? pathOrUrl : "https://" + host + pathOrUrl;
+        // Link contiene già la query codificata dal registry: niente URI template
+        return http.get()
+                .uri(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .retrieve()
+                .toEntity(Map.class);
+    }
+
+    /** Elementi della pagina nel campo indicato (repositories, tags, manifests) */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> items(ResponseEntity<Map> response, String field) {
+        Object value = response.getBody() != null ? response.getBody().get(field) : null;
+        return value instanceof List<?> list ? (List<T>) list : List.of();
+    }
+
+    private static String nextLink(ResponseEntity<?> response) {
+        String link = response.getHeaders().getFirst("Link");
+        if (link == null) return null;
+        Matcher m = NEXT_LINK.matcher(link);
+        return m.find() ? m.group(1) : null;
+    }
+}
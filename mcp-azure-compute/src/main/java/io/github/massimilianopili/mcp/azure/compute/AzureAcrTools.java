@@ -1,14 +1,26 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
+import io.github.massimilianopili.mcp.azure.core.AzureTokenService;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @Service
@@ -16,40 +28,57 @@ public class AzureAcrTools {
 
     private static final String API_VERSION = "2023-11-01-preview";
     private static final String PROVIDER    = "/providers/Microsoft.ContainerRegistry/registries";
+    private static final int DEFAULT_STALE_DAYS = 90;
+    private static final int DEFAULT_TOP = 20;
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
+    private final AzureAcrClient acr;
 
     public AzureAcrTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors,
+            AzureTokenService tokenService,
+            AzureProfileRegistry profiles,
+            @Qualifier("azureConnectionProvider") ConnectionProvider connectionProvider) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
+        // il data plane ACR usa token propri: WebClient senza il filtro bearer ARM, sullo stesso pool
+        this.acr = new AzureAcrClient(WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .defaultHeader("Accept", "application/json")
+                .build(), tokenService, profiles);
     }
 
     @ReactiveTool(name = "azure_list_container_registries",
           description = "Elenca tutti i Container Registry (ACR) nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listContainerRegistries() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> registries = (List<Map<String, Object>>) response.get("value");
-                    return registries.stream().map(reg -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", reg.getOrDefault("name", ""));
-                        r.put("location", reg.getOrDefault("location", ""));
-                        r.put("loginServer", reg.containsKey("properties")
-                                ? ((Map<String, Object>) reg.get("properties")).getOrDefault("loginServer", "")
-                                : "");
-                        r.put("sku", reg.containsKey("sku") ? ((Map<String, Object>) reg.get("sku")).getOrDefault("name", "") : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listContainerRegistries(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_container_registries", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + "?api-version=" + API_VERSION)
+                .map(reg -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", reg.getOrDefault("name", ""));
+                    r.put("location", reg.getOrDefault("location", ""));
+                    r.put("loginServer", reg.containsKey("properties")
+                            ? ((Map<String, Object>) reg.get("properties")).getOrDefault("loginServer", "")
+                            : "");
+                    r.put("sku", reg.containsKey("sku") ? ((Map<String, Object>) reg.get("sku")).getOrDefault("name", "") : "");
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista ACR: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista ACR: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_container_registry",
@@ -57,41 +86,191 @@ public class AzureAcrTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getContainerRegistry(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del Container Registry") String registryName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + registryName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
+            @ToolParam(description = "Nome del Container Registry") String registryName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + registryName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class))
                 .map(r -> (Map<String, Object>) r)
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero ACR: " + e.getMessage())));
     }
 
     @ReactiveTool(name = "azure_list_acr_repositories",
-          description = "Elenca i repository in un Azure Container Registry (Docker Registry API v2)")
-    @SuppressWarnings("unchecked")
+          description = "Elenca tutti i repository di un Azure Container Registry (Docker Registry API v2, tutte le pagine)")
     public Mono<Map<String, Object>> listAcrRepositories(
-            @ToolParam(description = "Nome del registry (senza .azurecr.io), es: mioregistry") String registryName) {
-        return webClient.get()
-                .uri("https://" + registryName + ".azurecr.io/v2/_catalog")
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
-                .onErrorResume(e -> Mono.just(Map.of("error", "Errore lista repository ACR: " + e.getMessage()
-                        + " (nota: richiede autenticazione specifica ACR, non ARM token)")));
+            @ToolParam(description = "Nome del registry (senza .azurecr.io), es: mioregistry") String registryName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return acr.repositories(profile, registryName)
+                .collectList()
+                .map(repositories -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("registry", AzureAcrClient.loginServer(registryName));
+                    r.put("count", repositories.size());
+                    r.put("repositories", repositories);
+                    return r;
+                })
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore lista repository ACR: " + e.getMessage())));
     }
 
     @ReactiveTool(name = "azure_list_acr_tags",
-          description = "Elenca i tag di un repository in un Azure Container Registry")
-    @SuppressWarnings("unchecked")
+          description = "Elenca i tag di un repository di un Azure Container Registry; senza repository elenca i tag di tutti i repository in parallelo")
     public Mono<Map<String, Object>> listAcrTags(
             @ToolParam(description = "Nome del registry (senza .azurecr.io)") String registryName,
-            @ToolParam(description = "Nome del repository, es: myapp/backend") String repositoryName) {
-        return webClient.get()
-                .uri("https://" + registryName + ".azurecr.io/v2/" + repositoryName + "/tags/list")
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
-                .onErrorResume(e -> Mono.just(Map.of("error", "Errore lista tag ACR: " + e.getMessage()
-                        + " (nota: richiede autenticazione specifica ACR)")));
+            @ToolParam(description = "Nome del repository, es: myapp/backend; vuoto = tutti i repository", required = false) String repositoryName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        if (repositoryName != null && !repositoryName.isBlank()) {
+            return acr.tags(profile, registryName, repositoryName.trim())
+                    .collectList()
+                    .map(tags -> {
+                        Map<String, Object> r = new LinkedHashMap<>();
+                        r.put("registry", AzureAcrClient.loginServer(registryName));
+                        r.put("repository", repositoryName.trim());
+                        r.put("count", tags.size());
+                        r.put("tags", tags);
+                        return r;
+                    })
+                    .onErrorResume(e -> Mono.just(Map.of("error", "Errore lista tag ACR: " + e.getMessage())));
+        }
+        int concurrency = Math.max(props.getFanOut().getConcurrency(), 1);
+        return acr.repositories(profile, registryName)
+                .flatMap(repository -> acr.tags(profile, registryName, repository)
+                        .collectList()
+                        .map(tags -> {
+                            Map<String, Object> r = new LinkedHashMap<>();
+                            r.put("repository", repository);
+                            r.put("tags", tags);
+                            return r;
+                        })
+                        .onErrorResume(e -> Mono.just(Map.of("repository", repository, "error", String.valueOf(e.getMessage())))),
+                        concurrency)
+                .collectList()
+                .map(repositories -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("registry", AzureAcrClient.loginServer(registryName));
+                    r.put("count", repositories.size());
+                    r.put("repositories", repositories);
+                    return r;
+                })
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore lista tag ACR: " + e.getMessage())));
+    }
+
+    @ReactiveTool(name = "azure_acr_scan_manifests",
+          description = "Analizza i manifest di tutti i repository di un Azure Container Registry: per repository numero di manifest, "
+                  + "dimensione totale, ultimo aggiornamento e quota non aggiornata da N giorni; restituisce i repository "
+                  + "ordinati per spazio non aggiornato (candidati alla pulizia)")
+    public Mono<Map<String, Object>> scanAcrManifests(
+            @ToolParam(description = "Nome del registry (senza .azurecr.io)") String registryName,
+            @ToolParam(description = "Soglia in giorni oltre la quale un manifest è considerato vecchio (default 90)", required = false) Integer olderThanDays,
+            @ToolParam(description = "Numero di repository da restituire nella classifica (default 20)", required = false) Integer top,
+            @ToolParam(description = "Repository analizzati in parallelo (default: concorrenza del fan-out)", required = false) Integer concurrency,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        int days = olderThanDays != null && olderThanDays >= 0 ? olderThanDays : DEFAULT_STALE_DAYS;
+        int limit = top != null && top > 0 ? top : DEFAULT_TOP;
+        int parallel = Math.max(concurrency != null ? concurrency : props.getFanOut().getConcurrency(), 1);
+        Instant cutoff = Instant.now().minus(Duration.ofDays(days));
+        long start = System.nanoTime();
+        // ogni repository è ridotto a un accumulatore mentre le pagine arrivano: in memoria restano solo i totali
+        return acr.repositories(profile, registryName)
+                .flatMap(repository -> acr.manifests(profile, registryName, repository)
+                        .reduce(new RepositoryStats(repository, cutoff), RepositoryStats::add)
+                        .onErrorResume(e -> Mono.just(new RepositoryStats(repository, cutoff).failed(e))),
+                        parallel)
+                .collectList()
+                .map(stats -> {
+                    List<RepositoryStats> scanned = stats.stream().filter(s -> s.error == null).toList();
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("registry", AzureAcrClient.loginServer(registryName));
+                    r.put("olderThanDays", days);
+                    r.put("cutoff", cutoff.toString());
+                    r.put("repositories", scanned.size());
+                    r.put("manifests", scanned.stream().mapToLong(s -> s.manifests).sum());
+                    r.put("totalBytes", scanned.stream().mapToLong(s -> s.totalBytes).sum());
+                    r.put("staleManifests", scanned.stream().mapToLong(s -> s.staleManifests).sum());
+                    r.put("staleBytes", scanned.stream().mapToLong(s -> s.staleBytes).sum());
+                    r.put("untaggedManifests", scanned.stream().mapToLong(s -> s.untagged).sum());
+                    r.put("top", scanned.stream()
+                            .sorted(Comparator.comparingLong((RepositoryStats s) -> s.staleBytes)
+                                    .thenComparingLong(s -> s.totalBytes).reversed())
+                            .limit(limit)
+                            .map(RepositoryStats::toMap)
+                            .toList());
+                    List<Map<String, Object>> errors = stats.stream().filter(s -> s.error != null)
+                            .map(RepositoryStats::toMap).toList();
+                    if (!errors.isEmpty()) r.put("errors", errors);
+                    // imageSize è per manifest: i layer condivisi tra immagini sono contati più volte
+                    r.put("note", "Dimensioni come somma di imageSize dei manifest, layer condivisi inclusi più volte");
+                    r.put("elapsedMs", Duration.ofNanos(System.nanoTime() - start).toMillis());
+                    return r;
+                })
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore analisi manifest ACR: " + e.getMessage())));
+    }
+
+    /** Totali dei manifest di un repository, aggiornati un manifest alla volta */
+    private static final class RepositoryStats {
+
+        final String repository;
+        final Instant cutoff;
+        long manifests;
+        long totalBytes;
+        long staleManifests;
+        long staleBytes;
+        long untagged;
+        Instant lastUpdate;
+        Instant oldestUpdate;
+        String error;
+
+        RepositoryStats(String repository, Instant cutoff) {
+            this.repository = repository;
+            this.cutoff = cutoff;
+        }
+
+        RepositoryStats add(Map<String, Object> manifest) {
+            long size = manifest.get("imageSize") instanceof Number n ? n.longValue() : 0L;
+            Instant updated = instant(manifest.getOrDefault("lastUpdateTime", manifest.get("createdTime")));
+            manifests++;
+            totalBytes += size;
+            if (!(manifest.get("tags") instanceof List<?> tags) || tags.isEmpty()) untagged++;
+            if (updated != null) {
+                if (lastUpdate == null || updated.isAfter(lastUpdate)) lastUpdate = updated;
+                if (oldestUpdate == null || updated.isBefore(oldestUpdate)) oldestUpdate = updated;
+                if (updated.isBefore(cutoff)) {
+                    staleManifests++;
+                    staleBytes += size;
+                }
+            }
+            return this;
+        }
+
+        RepositoryStats failed(Throwable e) {
+            this.error = String.valueOf(e.getMessage());
+            return this;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("repository", repository);
+            if (error != null) {
+                r.put("error", error);
+                return r;
+            }
+            r.put("manifests", manifests);
+            r.put("totalBytes", totalBytes);
+            r.put("staleManifests", staleManifests);
+            r.put("staleBytes", staleBytes);
+            r.put("untaggedManifests", untagged);
+            r.put("lastUpdate", lastUpdate != null ? lastUpdate.toString() : "");
+            r.put("oldestUpdate", oldestUpdate != null ? oldestUpdate.toString() : "");
+            return r;
+        }
+
+        private static Instant instant(Object value) {
+            if (value == null) return null;
+            try {
+                return Instant.parse(String.valueOf(value));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
     }
 }
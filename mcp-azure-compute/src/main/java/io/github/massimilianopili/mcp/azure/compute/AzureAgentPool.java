@@ -0,0 +1,58 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Node pool (agentPool) di un cluster AKS, limitato ai campi di capacity */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureAgentPool(String id, String name, Properties properties) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Properties(Integer count, String vmSize, String mode, String osType, String orchestratorVersion,
+                             Boolean enableAutoScaling, Integer minCount, Integer maxCount,
+                             String provisioningState, PowerState powerState) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PowerState(String code) {
+    }
+
+    /** Nome del cluster ricavato dall'ID: .../managedClusters/{cluster}/agentPools/{pool} */
+    public String clusterName() {
+        if (id == null) return "";
+        String[] parts = id.split("/");
+        for (int i = 0; i < parts.length - 1; i++) {
+            if ("managedClusters".equalsIgnoreCase(parts[i])) return parts[i + 1];
+        }
+        return "";
+    }
+
+    public String provisioningState() {
+        return properties != null && properties.provisioningState() != null ? properties.provisioningState() : "";
+    }
+
+    public Map<String, Object> toMap() {
+        Properties p = properties != null ? properties
+                : new Properties(null, null, null, null, null, null, null, null, null, null);
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("cluster", clusterName());
+        r.put("resourceGroup", AzureArmResource.resourceGroupOf(id));
+        r.put("name", AzureArmResource.orEmpty(name));
+        r.put("mode", AzureArmResource.orEmpty(p.mode()));
+        r.put("vmSize", AzureArmResource.orEmpty(p.vmSize()));
+        r.put("count", p.count() != null ? p.count() : 0);
+        r.put("enableAutoScaling", Boolean.TRUE.equals(p.enableAutoScaling()));
+        if (Boolean.TRUE.equals(p.enableAutoScaling())) {
+            r.put("minCount", p.minCount());
+            r.put("maxCount", p.maxCount());
+        }
+        r.put("osType", AzureArmResource.orEmpty(p.osType()));
+        r.put("orchestratorVersion", AzureArmResource.orEmpty(p.orchestratorVersion()));
+        r.put("provisioningState", provisioningState());
+        r.put("powerState", p.powerState() != null ? AzureArmResource.orEmpty(p.powerState().code()) : "");
+        return r;
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Kubeconfig AKS decodificati una sola volta e tenuti in memoria per cluster.
+ * La voce scade al primo tra TTL configurato e scadenza del certificato client (meno il margine);
+ * chiamate concorrenti sullo stesso cluster condividono una sola POST listClusterUserCredential.
+ * I tool che modificano il cluster invalidano la voce.
+ */
+class AzureAksCredentialCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureAksCredentialCache.class);
+
+    private final AzureProperties.Aks config;
+    private final Map<String, Mono<Entry>> entries = new ConcurrentHashMap<>();
+
+    AzureAksCredentialCache(AzureProperties.Aks config) {
+        this.config = config;
+    }
+
+    /** Kubeconfig decodificati e istante di lettura e scadenza della voce */
+    record Entry(List<Map<String, Object>> kubeconfigs, Instant fetchedAt, Instant expiresAt) {
+    }
+
+    /**
+     * Voce in cache per {@code key} (URL ARM del cluster), altrimenti risultato di {@code fetch} (risposta grezza
+     * di listClusterUserCredential) decodificato. Gli errori non vengono messi in cache.
+     */
+    Mono<Entry> get(String key, boolean refresh, Supplier<Mono<Map<String, Object>>> fetch) {
+        if (!config.isCredentialCacheEnabled()) {
+            return fetch.get().map(this::decode);
+        }
+        String k = key.toLowerCase();
+        if (refresh) entries.remove(k);
+        return entries.computeIfAbsent(k, x -> Mono.defer(fetch).map(this::decode)
+                .cacheInvalidateIf(e -> !Instant.now().isBefore(e.expiresAt())));
+    }
+
+    /** Rimuove le voci del cluster indicato (tutti i profili e le subscription) */
+    void invalidate(String resourceGroup, String clusterName) {
+        String suffix = ("/resourceGroups/" + resourceGroup + "/providers/Microsoft.ContainerService/managedClusters/"
+                + clusterName).toLowerCase();
+        entries.keySet().removeIf(k -> k.endsWith(suffix));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry decode(Map<String, Object> response) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(config.getCredentialCacheTtl());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> kc : (List<Map<String, Object>>) response.getOrDefault("kubeconfigs", List.of())) {
+            String yaml = new String(Base64.getDecoder().decode(String.valueOf(kc.getOrDefault("value", ""))), StandardCharsets.UTF_8);
+            Map<String, Object> decoded = new LinkedHashMap<>();
+            decoded.put("name", kc.getOrDefault("name", ""));
+            Instant certExpiry = describe(yaml, decoded);
+            decoded.put("kubeconfig", yaml);
+            if (certExpiry != null) {
+                Instant refreshAt = certExpiry.minus(config.getCredentialRefreshMargin());
+                if (refreshAt.isBefore(expiresAt)) expiresAt = refreshAt;
+            }
+            result.add(decoded);
+        }
+        return new Entry(result, now, expiresAt);
+    }
+
+    /**
+     * Riassunto del kubeconfig in {@code out}: context corrente, server e tipo di autenticazione per utente.
+     * Restituisce la scadenza minima dei certificati client, null se non ce ne sono.
+     */
+    @SuppressWarnings("unchecked")
+    private static Instant describe(String yaml, Map<String, Object> out) {
+        Map<String, Object> doc;
+        try {
+            doc = new Yaml(new SafeConstructor(new LoaderOptions())).load(yaml);
+        } catch (RuntimeException e) {
+            log.warn("Kubeconfig AKS non interpretabile: {}", e.getMessage());
+            return null;
+        }
+        if (doc == null) return null;
+        out.put("currentContext", doc.getOrDefault("current-context", ""));
+
+        List<Map<String, Object>> clusters = new ArrayList<>();
+        for (Map<String, Object> c : (List<Map<String, Object>>) doc.getOrDefault("clusters", List.of())) {
+            Map<String, Object> cluster = (Map<String, Object>) c.getOrDefault("cluster", Map.of());
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("name", c.getOrDefault("name", ""));
+            r.put("server", cluster.getOrDefault("server", ""));
+            r.put("certificateAuthority", cluster.containsKey("certificate-authority-data"));
+            clusters.add(r);
+        }
+        out.put("clusters", clusters);
+
+        Instant minExpiry = null;
+        List<Map<String, Object>> users = new ArrayList<>();
+        for (Map<String, Object> u : (List<Map<String, Object>>) doc.getOrDefault("users", List.of())) {
+            Map<String, Object> user = (Map<String, Object>) u.getOrDefault("user", Map.of());
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("name", u.getOrDefault("name", ""));
+            if (user.containsKey("exec")) {
+                Map<String, Object> exec = (Map<String, Object>) user.get("exec");
+                r.put("auth", "exec");
+                r.put("command", exec.getOrDefault("command", ""));
+                r.put("args", exec.getOrDefault("args", List.of()));
+            } else if (user.containsKey("client-certificate-data")) {
+                r.put("auth", "clientCertificate");
+                Instant notAfter = certificateExpiry(String.valueOf(user.get("client-certificate-data")));
+                if (notAfter != null) {
+                    r.put("certificateExpiresAt", notAfter.toString());
+                    if (minExpiry == null || notAfter.isBefore(minExpiry)) minExpiry = notAfter;
+                }
+            } else if (user.containsKey("token")) {
+                r.put("auth", "token");
+            } else {
+                r.put("auth", "other");
+            }
+            users.add(r);
+        }
+        out.put("users", users);
+        return minExpiry;
+    }
+
+    private static Instant certificateExpiry(String base64Pem) {
+        try {
+            X509Certificate cert = (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(Base64.getDecoder().decode(base64Pem)));
+            return cert.getNotAfter().toInstant();
+        } catch (CertificateException | IllegalArgumentException e) {
+            log.debug("Certificato client del kubeconfig non leggibile: {}", e.getMessage());
+            return null;
+        }
+    }
+}
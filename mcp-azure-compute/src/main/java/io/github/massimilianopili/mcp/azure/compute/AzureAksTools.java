@@ -1,6 +1,15 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureLongRunningOperation;
+import io.github.massimilianopili.mcp.azure.core.AzureOutputShape;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureRawJson;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -8,6 +17,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
@@ -17,72 +27,207 @@ public class AzureAksTools {
 
     private static final String API_VERSION = "2024-09-01";
     private static final String PROVIDER = "/providers/Microsoft.ContainerService/managedClusters";
+    private static final String ARM = "https://management.azure.com";
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
+    private final AzureAksCredentialCache credentials;
 
     public AzureAksTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
+        this.credentials = new AzureAksCredentialCache(props.getAks());
     }
 
     @ReactiveTool(name = "azure_list_aks_clusters",
           description = "Elenca tutti i cluster AKS (Azure Kubernetes Service) nella subscription")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listAksClusters() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> clusters = (List<Map<String, Object>>) response.get("value");
-                    return clusters.stream().map(c -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", c.getOrDefault("name", ""));
-                        r.put("location", c.getOrDefault("location", ""));
-                        r.put("kubernetesVersion", c.containsKey("properties")
-                                ? ((Map<String, Object>) c.get("properties")).getOrDefault("kubernetesVersion", "")
-                                : "");
-                        r.put("provisioningState", c.containsKey("properties")
-                                ? ((Map<String, Object>) c.get("properties")).getOrDefault("provisioningState", "")
-                                : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listAksClusters(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_aks_clusters", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + "?api-version=" + API_VERSION)
+                .map(c -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", c.getOrDefault("name", ""));
+                    r.put("location", c.getOrDefault("location", ""));
+                    r.put("kubernetesVersion", c.containsKey("properties")
+                            ? ((Map<String, Object>) c.get("properties")).getOrDefault("kubernetesVersion", "")
+                            : "");
+                    r.put("provisioningState", c.containsKey("properties")
+                            ? ((Map<String, Object>) c.get("properties")).getOrDefault("provisioningState", "")
+                            : "");
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista cluster AKS: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista cluster AKS: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_aks_cluster",
           description = "Recupera i dettagli di un cluster AKS Azure")
-    @SuppressWarnings("unchecked")
-    public Mono<Map<String, Object>> getAksCluster(
+    public Mono<Object> getAksCluster(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del cluster AKS") String clusterName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + clusterName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del cluster AKS") String clusterName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureOutputShape.FIELDS_PARAM, required = false) String fields,
+            @ToolParam(description = AzureOutputShape.MAX_DEPTH_PARAM, required = false) Integer maxDepth,
+            @ToolParam(description = AzureOutputShape.MAX_ITEMS_PARAM, required = false) Integer maxItems,
+            @ToolParam(description = AzureOutputShape.MAX_BYTES_PARAM, required = false) Integer maxBytes) {
+        return fanOut.inProfile(profile, arm -> AzureRawJson.get(webClient,
+                        clusterUrl(arm, resourceGroup, clusterName) + "?api-version=" + API_VERSION,
+                        AzureOutputShape.of(fields, maxDepth, maxItems, maxBytes, props.getOutput())))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero cluster AKS: " + e.getMessage())));
     }
 
     @ReactiveTool(name = "azure_get_aks_credentials",
-          description = "Recupera le credenziali utente (kubeconfig) per un cluster AKS Azure")
+          description = "Recupera le credenziali utente (kubeconfig decodificato, server e tipo di autenticazione) per un cluster AKS Azure; le richieste ripetute sono servite dalla cache fino alla scadenza")
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getAksCredentials(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del cluster AKS") String clusterName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/"
-                        + clusterName + "/listClusterUserCredential?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del cluster AKS") String clusterName,
+            @ToolParam(description = "Ignora la cache e richiedi nuove credenziali ad Azure", required = false) Boolean refresh,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> {
+                    String url = clusterUrl(arm, resourceGroup, clusterName);
+                    // principal diversi possono avere ruoli diversi sullo stesso cluster
+                    return credentials.get(AzureProfileRegistry.normalize(profile) + "|" + url, Boolean.TRUE.equals(refresh), () -> webClient.post()
+                            .uri(url + "/listClusterUserCredential?api-version=" + API_VERSION)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue("{}")
+                            .retrieve()
+                            .bodyToMono(Map.class)
+                            .map(r -> (Map<String, Object>) r));
+                })
+                .map(entry -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("cluster", clusterName);
+                    r.put("fetchedAt", entry.fetchedAt().toString());
+                    r.put("expiresAt", entry.expiresAt().toString());
+                    r.put("kubeconfigs", entry.kubeconfigs());
+                    return r;
+                })
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero credenziali AKS: " + e.getMessage())));
     }
+
+    @ReactiveTool(name = "azure_list_aks_node_pools",
+          description = "Elenca i node pool AKS con numero di nodi, size VM e limiti dell'autoscaler; senza cluster indicato legge tutti i cluster in parallelo")
+    public Mono<Object> listAksNodePools(
+            @ToolParam(description = "Nome del resource group del cluster; vuoto = tutti i cluster", required = false) String resourceGroup,
+            @ToolParam(description = "Nome del cluster AKS; vuoto = tutti i cluster", required = false) String clusterName,
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        if (clusterName != null && !clusterName.isBlank() && resourceGroup != null && !resourceGroup.isBlank()) {
+            return cursors.list("azure_list_aks_node_pools", AzureResultCursors.args(profile, subscriptions, resourceGroup, clusterName), format, pageSize, cursor,
+                    fanOut.inProfile(profile, arm -> nodePools(clusterUrl(arm, resourceGroup, clusterName))
+                                    .map(AzureAgentPool::toMap)
+                                    .collectList())
+                            .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista node pool AKS: " + e.getMessage())))));
+        }
+        int concurrency = Math.max(props.getFanOut().getConcurrency(), 1);
+        return cursors.list("azure_list_aks_node_pools", AzureResultCursors.args(profile, subscriptions, resourceGroup, clusterName), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + "?api-version=" + API_VERSION, AzureArmResource.class)
+                // i node pool di cluster diversi vengono letti in parallelo
+                .flatMap(cluster -> nodePools(ARM + cluster.id())
+                        .map(AzureAgentPool::toMap)
+                        .onErrorResume(e -> Mono.just(Map.of("cluster", AzureArmResource.orEmpty(cluster.name()),
+                                "error", "Errore lista node pool: " + e.getMessage()))), concurrency)
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista node pool AKS: " + e.getMessage()))))));
+    }
+
+    @ReactiveTool(name = "azure_get_aks_node_pool",
+          description = "Recupera un node pool AKS: numero di nodi, size VM, autoscaler e stato")
+    public Mono<Map<String, Object>> getAksNodePool(
+            @ToolParam(description = "Nome del resource group") String resourceGroup,
+            @ToolParam(description = "Nome del cluster AKS") String clusterName,
+            @ToolParam(description = "Nome del node pool") String nodePool,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(nodePoolUrl(arm, resourceGroup, clusterName, nodePool))
+                        .retrieve()
+                        .bodyToMono(AzureAgentPool.class))
+                .map(AzureAgentPool::toMap)
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero node pool AKS: " + e.getMessage())));
+    }
+
+    @ReactiveTool(name = "azure_scale_aks_node_pool",
+          description = "Scala un node pool AKS (numero di nodi o limiti dell'autoscaler) e attende che provisioningState si stabilizzi")
+    @SuppressWarnings("unchecked")
+    public Mono<Map<String, Object>> scaleAksNodePool(
+            @ToolParam(description = "Nome del resource group") String resourceGroup,
+            @ToolParam(description = "Nome del cluster AKS") String clusterName,
+            @ToolParam(description = "Nome del node pool") String nodePool,
+            @ToolParam(description = "Numero di nodi (solo con autoscaler disattivato)", required = false) Integer count,
+            @ToolParam(description = "Attiva o disattiva l'autoscaler", required = false) Boolean enableAutoScaling,
+            @ToolParam(description = "Minimo nodi dell'autoscaler", required = false) Integer minCount,
+            @ToolParam(description = "Massimo nodi dell'autoscaler", required = false) Integer maxCount,
+            @ToolParam(description = "Attendi il completamento (default true); false = solo invio", required = false) Boolean wait,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        if (count == null && enableAutoScaling == null && minCount == null && maxCount == null) {
+            return Mono.just(Map.of("error", "Indicare count oppure enableAutoScaling/minCount/maxCount"));
+        }
+        boolean await = !Boolean.FALSE.equals(wait);
+        return fanOut.inProfile(profile, arm -> {
+                    String url = nodePoolUrl(arm, resourceGroup, clusterName, nodePool);
+                    // PUT dell'agentPool completo: si parte dal modello attuale e si cambiano solo i campi di capacity
+                    return webClient.get().uri(url).retrieve().bodyToMono(Map.class)
+                            .flatMap(current -> {
+                                Map<String, Object> pool = new LinkedHashMap<>((Map<String, Object>) current);
+                                Map<String, Object> p = new LinkedHashMap<>((Map<String, Object>) pool.getOrDefault("properties", Map.of()));
+                                if (count != null) p.put("count", count);
+                                if (enableAutoScaling != null) p.put("enableAutoScaling", enableAutoScaling);
+                                if (minCount != null) p.put("minCount", minCount);
+                                if (maxCount != null) p.put("maxCount", maxCount);
+                                if (Boolean.FALSE.equals(enableAutoScaling)) {
+                                    p.remove("minCount");
+                                    p.remove("maxCount");
+                                }
+                                pool.put("properties", p);
+                                return AzureLongRunningOperation.run(webClient,
+                                        webClient.put().uri(url).contentType(MediaType.APPLICATION_JSON).bodyValue(pool).retrieve().toBodilessEntity(),
+                                        props.getOperations(), await);
+                            })
+                            .flatMap(result -> {
+                                // un cluster modificato può avere credenziali o endpoint nuovi
+                                credentials.invalidate(resourceGroup, clusterName);
+                                Map<String, Object> r = new LinkedHashMap<>();
+                                r.put("operation", result.toMap());
+                                if (!await) return Mono.just(r);
+                                // stato finale letto dopo l'LRO: count e provisioningState effettivi
+                                return webClient.get().uri(url).retrieve().bodyToMono(AzureAgentPool.class)
+                                        .map(pool -> {
+                                            r.put("nodePool", pool.toMap());
+                                            r.put("settled", "Succeeded".equals(pool.provisioningState()));
+                                            return r;
+                                        });
+                            });
+                })
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore scaling node pool AKS: " + e.getMessage())));
+    }
+
+    private static String clusterUrl(String arm, String resourceGroup, String clusterName) {
+        return arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + clusterName;
+    }
+
+    private static String nodePoolUrl(String arm, String resourceGroup, String clusterName, String nodePool) {
+        return clusterUrl(arm, resourceGroup, clusterName) + "/agentPools/" + nodePool + "?api-version=" + API_VERSION;
+    }
+
+    private Flux<AzureAgentPool> nodePools(String clusterUrl) {
+        return AzureArmPaging.items(webClient, clusterUrl + "/agentPools?api-version=" + API_VERSION, AzureAgentPool.class);
+    }
 }
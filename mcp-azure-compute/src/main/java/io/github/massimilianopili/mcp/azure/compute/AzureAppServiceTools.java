@@ -1,59 +1,92 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureLongRunningOperation;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
+import io.github.massimilianopili.mcp.azure.core.AzureProgress;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.net.URI;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AzureAppServiceTools {
 
     private static final String API_VERSION = "2023-12-01";
-    private static final String PROVIDER = "/providers/Microsoft.Web/sites";
+    private static final String SITE_TYPE = "Microsoft.Web/sites";
+    private static final String PROVIDER = "/providers/" + SITE_TYPE;
+    private static final String ARM = "https://management.azure.com";
+    private static final String PRODUCTION = "production";
+    private static final String NO_HEALTH_CHECK = "none";
+    private static final String HEALTH_CHECK_PARAM =
+            "Percorso HTTP della verifica di warm-up dopo l'operazione (default /); 'none' = nessuna verifica";
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
+    private final WebClient probe;
 
     public AzureAppServiceTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors,
+            @Qualifier("azureConnectionProvider") ConnectionProvider connectionProvider) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
+        // la verifica di warm-up chiama l'app: niente token ARM, redirect seguiti
+        this.probe = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider).followRedirect(true)))
+                .build();
     }
 
     @ReactiveTool(name = "azure_list_app_services",
           description = "Elenca tutti gli App Service (web app) nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listAppServices() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> apps = (List<Map<String, Object>>) response.get("value");
-                    return apps.stream().map(a -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", a.getOrDefault("name", ""));
-                        r.put("location", a.getOrDefault("location", ""));
-                        r.put("kind", a.getOrDefault("kind", ""));
-                        r.put("state", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("state", "")
-                                : "");
-                        r.put("defaultHostName", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("defaultHostName", "")
-                                : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listAppServices(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_app_services", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + "?api-version=" + API_VERSION)
+                .map(a -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", a.getOrDefault("name", ""));
+                    r.put("location", a.getOrDefault("location", ""));
+                    r.put("kind", a.getOrDefault("kind", ""));
+                    r.put("state", a.containsKey("properties")
+                            ? ((Map<String, Object>) a.get("properties")).getOrDefault("state", "")
+                            : "");
+                    r.put("defaultHostName", a.containsKey("properties")
+                            ? ((Map<String, Object>) a.get("properties")).getOrDefault("defaultHostName", "")
+                            : "");
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista App Service: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista App Service: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_app_service",
@@ -61,11 +94,12 @@ public class AzureAppServiceTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getAppService(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome dell'App Service") String appName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
+            @ToolParam(description = "Nome dell'App Service") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(siteUrl(arm, resourceGroup, appName) + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class))
                 .map(r -> (Map<String, Object>) r)
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero App Service: " + e.getMessage())));
     }
@@ -74,13 +108,14 @@ public class AzureAppServiceTools {
           description = "Avvia un App Service Azure")
     public Mono<Map<String, Object>> startAppService(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome dell'App Service") String appName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "/start?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .toBodilessEntity()
+            @ToolParam(description = "Nome dell'App Service") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(siteUrl(arm, resourceGroup, appName) + "/start?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .toBodilessEntity())
                 .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "App Service " + appName + " avviato"))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore avvio App Service: " + e.getMessage())));
     }
@@ -89,13 +124,14 @@ public class AzureAppServiceTools {
           description = "Arresta un App Service Azure")
     public Mono<Map<String, Object>> stopAppService(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome dell'App Service") String appName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "/stop?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .toBodilessEntity()
+            @ToolParam(description = "Nome dell'App Service") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(siteUrl(arm, resourceGroup, appName) + "/stop?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .toBodilessEntity())
                 .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "App Service " + appName + " arrestato"))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore arresto App Service: " + e.getMessage())));
     }
@@ -104,14 +140,259 @@ public class AzureAppServiceTools {
           description = "Riavvia un App Service Azure")
     public Mono<Map<String, Object>> restartAppService(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome dell'App Service") String appName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "/restart?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .toBodilessEntity()
+            @ToolParam(description = "Nome dell'App Service") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(siteUrl(arm, resourceGroup, appName) + "/restart?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .toBodilessEntity())
                 .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "App Service " + appName + " riavviato"))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore riavvio App Service: " + e.getMessage())));
     }
+
+    @ReactiveTool(name = "azure_list_app_service_slots",
+          description = "Elenca gli slot di deployment di un App Service Azure con stato e hostname")
+    @SuppressWarnings("unchecked")
+    public Mono<List<Map<String, Object>>> listAppServiceSlots(
+            @ToolParam(description = "Nome del resource group") String resourceGroup,
+            @ToolParam(description = "Nome dell'App Service") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> AzureArmPaging.items(webClient, siteUrl(arm, resourceGroup, appName) + "/slots?api-version=" + API_VERSION)
+                        .map(slot -> {
+                            Map<String, Object> p = (Map<String, Object>) slot.getOrDefault("properties", Map.of());
+                            String name = String.valueOf(slot.getOrDefault("name", ""));
+                            Map<String, Object> r = new LinkedHashMap<>();
+                            r.put("slot", name.substring(name.lastIndexOf('/') + 1));
+                            r.put("state", p.getOrDefault("state", ""));
+                            r.put("defaultHostName", p.getOrDefault("defaultHostName", ""));
+                            r.put("lastModifiedTimeUtc", p.getOrDefault("lastModifiedTimeUtc", ""));
+                            return r;
+                        })
+                        .collectList())
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista slot App Service: " + e.getMessage()))));
+    }
+
+    @ReactiveTool(name = "azure_swap_app_service_slot",
+          description = "Scambia uno slot di deployment di un App Service con production (o con un altro slot), "
+                  + "attende il completamento dello swap e verifica il warm-up dello slot di destinazione")
+    public Mono<Map<String, Object>> swapAppServiceSlot(
+            @ToolParam(description = "Nome del resource group") String resourceGroup,
+            @ToolParam(description = "Nome dell'App Service") String appName,
+            @ToolParam(description = "Slot di origine, es: staging") String slot,
+            @ToolParam(description = "Slot di destinazione (default production)", required = false) String targetSlot,
+            @ToolParam(description = "Mantieni l'integrazione VNet dello slot di destinazione (default true)", required = false) Boolean preserveVnet,
+            @ToolParam(description = HEALTH_CHECK_PARAM, required = false) String healthCheckPath,
+            @ToolParam(description = "Attendi il completamento (default true); false = solo invio", required = false) Boolean wait,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        String target = targetSlot != null && !targetSlot.isBlank() ? targetSlot.trim() : PRODUCTION;
+        boolean await = !Boolean.FALSE.equals(wait);
+        Map<String, Object> body = Map.of("targetSlot", target, "preserveVnet", !Boolean.FALSE.equals(preserveVnet));
+        return fanOut.inProfile(profile, arm -> {
+                    String site = siteUrl(arm, resourceGroup, appName);
+                    return AzureLongRunningOperation.run(webClient,
+                                    webClient.post()
+                                            .uri(site + "/slots/" + slot + "/slotsswap?api-version=" + API_VERSION)
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .bodyValue(body)
+                                            .retrieve()
+                                            .toBodilessEntity(),
+                                    props.getOperations(), await)
+                            .flatMap(result -> {
+                                Map<String, Object> r = new LinkedHashMap<>();
+                                r.put("app", appName);
+                                r.put("slot", slot);
+                                r.put("targetSlot", target);
+                                r.putAll(result.toMap());
+                                if (!await || !AzureLongRunningOperation.SUCCEEDED.equals(result.status()) || NO_HEALTH_CHECK.equalsIgnoreCase(healthCheckPath)) {
+                                    return Mono.just(r);
+                                }
+                                String targetUrl = PRODUCTION.equalsIgnoreCase(target) ? site : site + "/slots/" + target;
+                                return webClient.get().uri(targetUrl + "?api-version=" + API_VERSION).retrieve().bodyToMono(Map.class)
+                                        .flatMap(s -> warmUp(hostName(s), healthCheckPath))
+                                        // lo swap è riuscito: un errore della verifica finisce nel suo esito
+                                        .onErrorResume(e -> Mono.just(Map.of("healthy", false, "error", String.valueOf(e.getMessage()))))
+                                        .map(health -> {
+                                            r.put("healthCheck", health);
+                                            return r;
+                                        });
+                            });
+                })
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore swap slot App Service: " + e.getMessage())));
+    }
+
+    @ReactiveTool(name = "azure_bulk_restart_app_services",
+          description = "Riavvia più App Service in parallelo limitato (per ID, App Service plan, tag o resource group), "
+                  + "attende ogni riavvio, verifica il warm-up HTTP e restituisce un riepilogo con i tempi per app")
+    public Mono<Map<String, Object>> bulkRestartAppServices(
+            @ToolParam(description = "ID risorsa degli App Service separati da virgola", required = false) String resourceIds,
+            @ToolParam(description = "Nome dell'App Service plan: tutte le sue app (richiede resourceGroup del plan)", required = false) String appServicePlan,
+            @ToolParam(description = "Selettore tag: chiave oppure chiave=valore (es: env=dev)", required = false) String tag,
+            @ToolParam(description = "Nome del resource group: tutte le sue app, oppure resource group del plan", required = false) String resourceGroup,
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = "true per riavviare solo il processo dell'app senza riapplicare la configurazione (softRestart)", required = false) Boolean softRestart,
+            @ToolParam(description = HEALTH_CHECK_PARAM, required = false) String healthCheckPath,
+            @ToolParam(description = "Riavvii contemporanei; vuoto = default", required = false) Integer concurrency,
+            @ToolParam(description = "Attendi il completamento di ogni riavvio (default true); false = solo invio", required = false) Boolean wait) {
+        int limit = Math.max(concurrency != null ? concurrency : props.getOperations().getConcurrency(), 1);
+        boolean await = !Boolean.FALSE.equals(wait);
+        boolean check = await && !NO_HEALTH_CHECK.equalsIgnoreCase(healthCheckPath);
+        long start = System.nanoTime();
+        return selectApps(resourceIds, appServicePlan, tag, resourceGroup, subscriptions, profile)
+                .flatMap(selection -> {
+                    List<String> ids = selection.stream().map(r -> r.get("id")).filter(Objects::nonNull).map(String::valueOf).distinct().toList();
+                    List<Object> selectionErrors = selection.stream().map(r -> r.get("error")).filter(Objects::nonNull).toList();
+                    AtomicInteger done = new AtomicInteger();
+                    return Flux.fromIterable(ids)
+                            .flatMap(id -> restartApp(id, Boolean.TRUE.equals(softRestart), await, check, healthCheckPath)
+                                            .flatMap(result -> AzureProgress.report("App Service completati: " + done.incrementAndGet() + "/" + ids.size())
+                                                    .thenReturn(result)),
+                                    limit)
+                            .collectList()
+                            .map(results -> restartSummary(results, selectionErrors, start));
+                })
+                .contextWrite(AzureProfileRegistry.withProfile(profile))
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore riavvio bulk App Service: " + e.getMessage())));
+    }
+
+    /** Riavvio di un'app: esito LRO, poi verifica di warm-up; tempi separati per le due fasi */
+    private Mono<Map<String, Object>> restartApp(String id, boolean softRestart, boolean await, boolean check, String healthCheckPath) {
+        long start = System.nanoTime();
+        return AzureLongRunningOperation.run(webClient,
+                        webClient.post()
+                                .uri(ARM + id + "/restart?softRestart=" + softRestart + "&api-version=" + API_VERSION)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue("{}")
+                                .retrieve()
+                                .toBodilessEntity(),
+                        props.getOperations(), await)
+                .flatMap(result -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", id.substring(id.lastIndexOf('/') + 1));
+                    r.put("resourceGroup", AzureArmResource.resourceGroupOf(id));
+                    r.putAll(result.toMap());
+                    if (!check || !AzureLongRunningOperation.SUCCEEDED.equals(result.status())) {
+                        r.put("totalMs", elapsedMs(start));
+                        return Mono.just(r);
+                    }
+                    return webClient.get().uri(ARM + id + "?api-version=" + API_VERSION).retrieve().bodyToMono(Map.class)
+                            .flatMap(site -> warmUp(hostName(site), healthCheckPath))
+                            .onErrorResume(e -> Mono.just(Map.of("healthy", false, "error", String.valueOf(e.getMessage()))))
+                            .map(health -> {
+                                r.put("healthCheck", health);
+                                r.put("totalMs", elapsedMs(start));
+                                return r;
+                            });
+                });
+    }
+
+    /** Righe con l'{@code id} delle app selezionate, o con {@code error} per le subscription non leggibili */
+    @SuppressWarnings("unchecked")
+    private Mono<List<Map<String, Object>>> selectApps(String resourceIds, String appServicePlan, String tag,
+                                                      String resourceGroup, String subscriptions, String profile) {
+        if (resourceIds != null && !resourceIds.isBlank()) {
+            List<String> ids = Arrays.stream(resourceIds.split(",")).map(String::trim).filter(id -> !id.isEmpty()).toList();
+            List<String> invalid = ids.stream().filter(id -> !AzureArmResource.isOfType(id, SITE_TYPE)).toList();
+            if (!invalid.isEmpty()) {
+                return Mono.error(new IllegalArgumentException("ID non di App Service (" + SITE_TYPE + "): " + String.join(", ", invalid)));
+            }
+            return Mono.just(ids.stream().map(id -> Map.<String, Object>of("id", id)).toList());
+        }
+        boolean byPlan = appServicePlan != null && !appServicePlan.isBlank();
+        boolean byTag = tag != null && !tag.isBlank();
+        boolean byGroup = resourceGroup != null && !resourceGroup.isBlank();
+        if (byPlan && !byGroup) {
+            return Mono.error(new IllegalArgumentException("con appServicePlan indicare il resourceGroup del plan"));
+        }
+        if (!byPlan && !byTag && !byGroup) {
+            return Mono.error(new IllegalArgumentException("indicare resourceIds, appServicePlan, tag o resourceGroup"));
+        }
+        String tagKey = byTag ? tag.split("=", 2)[0].trim() : null;
+        String tagValue = byTag && tag.contains("=") ? tag.split("=", 2)[1].trim() : null;
+        String scope = byGroup ? "/resourceGroups/" + resourceGroup.trim() : "";
+        String path = byPlan ? "/providers/Microsoft.Web/serverfarms/" + appServicePlan.trim() + "/sites" : PROVIDER;
+        // il plan appartiene a una sola subscription: quella del profilo
+        return fanOut.fanOut(profile, byPlan ? null : subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + scope + path + "?api-version=" + API_VERSION)
+                .filter(app -> !byTag || hasTag((Map<String, Object>) app.getOrDefault("tags", Map.of()), tagKey, tagValue))
+                .map(app -> Map.<String, Object>of("id", String.valueOf(app.get("id"))))
+                .collectList());
+    }
+
+    /**
+     * Interroga {@code https://<host><path>} finché l'app risponde con uno stato inferiore a 500
+     * o scade {@code operations.health-check-timeout}; 5xx ed errori di rete indicano app ancora in avvio.
+     */
+    private Mono<Map<String, Object>> warmUp(String hostName, String path) {
+        if (hostName == null || hostName.isBlank()) {
+            return Mono.just(Map.of("healthy", false, "error", "defaultHostName non disponibile"));
+        }
+        String p = path == null || path.isBlank() ? "/" : path.startsWith("/") ? path.trim() : "/" + path.trim();
+        URI uri = URI.create("https://" + hostName + p);
+        long start = System.nanoTime();
+        return poll(uri, start).map(status -> {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("url", uri.toString());
+            r.put("healthy", status > 0 && status < 500);
+            r.put("httpStatus", status);
+            r.put("warmupMs", elapsedMs(start));
+            return r;
+        });
+    }
+
+    private Mono<Integer> poll(URI uri, long start) {
+        Duration timeout = props.getOperations().getHealthCheckTimeout();
+        return probe.get().uri(uri)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .timeout(timeout)
+                .onErrorReturn(0)
+                .flatMap(status -> status > 0 && status < 500 || elapsedMs(start) >= timeout.toMillis()
+                        ? Mono.just(status)
+                        : AzureProgress.report("warm-up " + uri.getHost() + ": " + (status > 0 ? "HTTP " + status : "non raggiungibile"))
+                                .then(Mono.delay(props.getOperations().getPollInterval()))
+                                .then(poll(uri, start)));
+    }
+
+    private static Map<String, Object> restartSummary(List<Map<String, Object>> results, List<Object> selectionErrors, long start) {
+        Map<String, Long> byStatus = new TreeMap<>();
+        results.forEach(r -> byStatus.merge(String.valueOf(r.get("status")), 1L, Long::sum));
+        long succeeded = byStatus.getOrDefault(AzureLongRunningOperation.SUCCEEDED, 0L)
+                + byStatus.getOrDefault(AzureLongRunningOperation.ACCEPTED, 0L);
+        long unhealthy = results.stream()
+                .filter(r -> r.get("healthCheck") instanceof Map<?, ?> h && Boolean.FALSE.equals(h.get("healthy")))
+                .count();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("action", "restart");
+        summary.put("requested", results.size());
+        summary.put("succeeded", succeeded);
+        summary.put("failed", results.size() - succeeded);
+        summary.put("unhealthy", unhealthy);
+        summary.put("byStatus", byStatus);
+        summary.put("elapsedMs", elapsedMs(start));
+        if (!selectionErrors.isEmpty()) summary.put("selectionErrors", selectionErrors);
+        summary.put("results", results);
+        return summary;
+    }
+
+    private static String siteUrl(String arm, String resourceGroup, String appName) {
+        return arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String hostName(Map<?, ?> site) {
+        Object p = site.get("properties");
+        return p instanceof Map<?, ?> properties ? (String) ((Map<String, Object>) properties).get("defaultHostName") : null;
+    }
+
+    /** Tag presente (e uguale al valore, se indicato), senza distinzione di maiuscole */
+    private static boolean hasTag(Map<String, Object> tags, String key, String value) {
+        return tags.entrySet().stream()
+                .anyMatch(t -> t.getKey().equalsIgnoreCase(key) && (value == null || value.equalsIgnoreCase(String.valueOf(t.getValue()))));
+    }
+
+    private static long elapsedMs(long start) {
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
 }
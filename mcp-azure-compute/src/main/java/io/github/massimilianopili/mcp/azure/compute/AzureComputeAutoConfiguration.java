@@ -3,9 +3,11 @@ package io.github.massimilianopili.mcp.azure.compute;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
+@ImportRuntimeHints(AzureComputeRuntimeHints.class)
 @Import({
         AzureVmTools.class, AzureVmssTools.class, AzureManagedDiskTools.class,
         AzureImageTools.class, AzureAksTools.class, AzureContainerAppTools.class,
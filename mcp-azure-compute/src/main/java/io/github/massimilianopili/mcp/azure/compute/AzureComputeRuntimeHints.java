@@ -0,0 +1,17 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import io.github.massimilianopili.mcp.azure.core.AzureToolRuntimeHints;
+import org.springframework.aot.hint.RuntimeHints;
+
+/** Hint GraalVM per i tool e i record DTO del modulo compute */
+class AzureComputeRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureComputeRuntimeHints() {
+        super(AzureComputeRuntimeHints.class.getPackageName());
+    }
+
+    @Override
+    protected void registerModuleHints(RuntimeHints hints, ClassLoader classLoader) {
+        registerDtos(hints, AzureVirtualMachine.class, AzureVmssInstance.class, AzureAgentPool.class);
+    }
+}
@@ -1,14 +1,23 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.util.*;
 
@@ -20,39 +29,51 @@ public class AzureContainerAppTools {
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
+    private final WebClient logStream;
 
     public AzureContainerAppTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors,
+            @Qualifier("azureConnectionProvider") ConnectionProvider connectionProvider) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
+        // lo stream dei log si autentica con il token dell'app (getAuthToken), non con quello ARM
+        this.logStream = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
     }
 
     @ReactiveTool(name = "azure_list_container_apps",
           description = "Elenca tutte le Container App nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listContainerApps() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> apps = (List<Map<String, Object>>) response.get("value");
-                    return apps.stream().map(a -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", a.getOrDefault("name", ""));
-                        r.put("location", a.getOrDefault("location", ""));
-                        r.put("provisioningState", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("provisioningState", "")
-                                : "");
-                        r.put("fqdn", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("latestRevisionFqdn", "")
-                                : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listContainerApps(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_container_apps", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + "?api-version=" + API_VERSION)
+                .map(a -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", a.getOrDefault("name", ""));
+                    r.put("location", a.getOrDefault("location", ""));
+                    r.put("provisioningState", a.containsKey("properties")
+                            ? ((Map<String, Object>) a.get("properties")).getOrDefault("provisioningState", "")
+                            : "");
+                    r.put("fqdn", a.containsKey("properties")
+                            ? ((Map<String, Object>) a.get("properties")).getOrDefault("latestRevisionFqdn", "")
+                            : "");
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista Container App: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista Container App: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_container_app",
@@ -60,12 +81,13 @@ public class AzureContainerAppTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getContainerApp(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della Container App") String appName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome della Container App") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero Container App: " + e.getMessage())));
     }
 
@@ -74,27 +96,28 @@ public class AzureContainerAppTools {
     @SuppressWarnings("unchecked")
     public Mono<List<Map<String, Object>>> listContainerAppRevisions(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della Container App") String appName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
-                        + "/revisions?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> revisions = (List<Map<String, Object>>) response.get("value");
-                    return revisions.stream().map(rev -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", rev.getOrDefault("name", ""));
-                        r.put("active", rev.containsKey("properties")
-                                ? ((Map<String, Object>) rev.get("properties")).getOrDefault("active", false)
-                                : false);
-                        r.put("createdTime", rev.containsKey("properties")
-                                ? ((Map<String, Object>) rev.get("properties")).getOrDefault("createdTime", "")
-                                : "");
-                        return r;
-                    }).toList();
-                })
+            @ToolParam(description = "Nome della Container App") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
+                                + "/revisions?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(response -> {
+                            if (!response.containsKey("value")) return List.<Map<String, Object>>of();
+                            List<Map<String, Object>> revisions = (List<Map<String, Object>>) response.get("value");
+                            return revisions.stream().map(rev -> {
+                                Map<String, Object> r = new LinkedHashMap<>();
+                                r.put("name", rev.getOrDefault("name", ""));
+                                r.put("active", rev.containsKey("properties")
+                                        ? ((Map<String, Object>) rev.get("properties")).getOrDefault("active", false)
+                                        : false);
+                                r.put("createdTime", rev.containsKey("properties")
+                                        ? ((Map<String, Object>) rev.get("properties")).getOrDefault("createdTime", "")
+                                        : "");
+                                return r;
+                            }).toList();
+                        }))
                 .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista revisioni Container App: " + e.getMessage()))));
     }
 
@@ -103,15 +126,102 @@ public class AzureContainerAppTools {
     public Mono<Map<String, Object>> restartContainerApp(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
             @ToolParam(description = "Nome della Container App") String appName,
-            @ToolParam(description = "Nome della revisione da riavviare") String revisionName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
-                        + "/revisions/" + revisionName + "/restart?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .toBodilessEntity()
-                .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "Riavvio revisione " + revisionName + " avviato"))
+            @ToolParam(description = "Nome della revisione da riavviare") String revisionName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
+                                + "/revisions/" + revisionName + "/restart?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .toBodilessEntity()
+                        .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "Riavvio revisione " + revisionName + " avviato")))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore riavvio Container App: " + e.getMessage())));
     }
+
+    @ReactiveTool(name = "azure_get_container_app_logs",
+          description = "Legge i log di una Container App dal log stream: console di un container (default) o eventi di sistema; "
+                  + "con follow resta in ascolto fino al timeout, sempre entro i limiti di righe e byte configurati")
+    @SuppressWarnings("unchecked")
+    public Mono<Map<String, Object>> getContainerAppLogs(
+            @ToolParam(description = "Nome del resource group") String resourceGroup,
+            @ToolParam(description = "Nome della Container App") String appName,
+            @ToolParam(description = "Tipo di log: console (default) o system", required = false) String type,
+            @ToolParam(description = "Revisione; vuoto = ultima revisione", required = false) String revisionName,
+            @ToolParam(description = "Replica; vuoto = prima replica della revisione", required = false) String replicaName,
+            @ToolParam(description = "Container; vuoto = primo container del template", required = false) String containerName,
+            @ToolParam(description = "Righe finali da leggere (default e massimo: mcp.azure.logs.max-lines; con follow la metà, il resto è per le righe nuove)", required = false) Integer tail,
+            @ToolParam(description = "true per restare in ascolto dei nuovi log fino a mcp.azure.logs.follow-timeout", required = false) Boolean follow,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        boolean system = "system".equalsIgnoreCase(type);
+        boolean following = Boolean.TRUE.equals(follow);
+        int lines = AzureContainerLogs.tail(tail, props.getLogs(), following);
+        return fanOut.inProfile(profile, arm -> {
+                    String appUrl = arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName;
+                    return webClient.get()
+                            .uri(appUrl + "?api-version=" + API_VERSION)
+                            .retrieve()
+                            .bodyToMono(Map.class)
+                            .flatMap(app -> {
+                                Map<String, Object> p = (Map<String, Object>) app.getOrDefault("properties", Map.of());
+                                String endpoint = (String) p.get("eventStreamEndpoint");
+                                if (endpoint == null || endpoint.isBlank()) {
+                                    return Mono.error(new IllegalStateException("eventStreamEndpoint non disponibile per " + appName));
+                                }
+                                Map<String, Object> target = new LinkedHashMap<>();
+                                target.put("type", system ? "system" : "console");
+                                if (system) return Mono.just(Map.entry(endpoint, target));
+
+                                String revision = revisionName != null && !revisionName.isBlank()
+                                        ? revisionName.trim() : String.valueOf(p.getOrDefault("latestRevisionName", ""));
+                                Map<String, Object> template = (Map<String, Object>) p.getOrDefault("template", Map.of());
+                                List<Map<String, Object>> containers = (List<Map<String, Object>>) template.getOrDefault("containers", List.of());
+                                String container = containerName != null && !containerName.isBlank() ? containerName.trim()
+                                        : containers.isEmpty() ? "" : String.valueOf(containers.get(0).get("name"));
+                                Mono<String> replica = replicaName != null && !replicaName.isBlank()
+                                        ? Mono.just(replicaName.trim())
+                                        : webClient.get()
+                                                .uri(appUrl + "/revisions/" + revision + "/replicas?api-version=" + API_VERSION)
+                                                .retrieve()
+                                                .bodyToMono(Map.class)
+                                                .flatMap(r -> {
+                                                    List<Map<String, Object>> replicas = (List<Map<String, Object>>) r.getOrDefault("value", List.of());
+                                                    return replicas.isEmpty()
+                                                            ? Mono.error(new IllegalStateException("nessuna replica attiva per la revisione " + revision))
+                                                            : Mono.just(String.valueOf(replicas.get(0).get("name")));
+                                                });
+                                return replica.map(rep -> {
+                                    target.put("revision", revision);
+                                    target.put("replica", rep);
+                                    target.put("container", container);
+                                    // stesso host e percorso dell'event stream di sistema, fino al container
+                                    String url = endpoint.replaceFirst("/eventstream$", "")
+                                            + "/revisions/" + revision + "/replicas/" + rep + "/containers/" + container + "/logstream";
+                                    return Map.entry(url, target);
+                                });
+                            })
+                            .flatMap(stream -> webClient.post()
+                                    .uri(appUrl + "/getAuthToken?api-version=" + API_VERSION)
+                                    .retrieve()
+                                    .bodyToMono(Map.class)
+                                    .flatMap(auth -> {
+                                        Map<String, Object> p = (Map<String, Object>) auth.getOrDefault("properties", Map.of());
+                                        Flux<String> rows = logStream.get()
+                                                .uri(stream.getKey() + (stream.getKey().contains("?") ? "&" : "?")
+                                                        + "tailLines=" + lines + "&follow=" + following + "&output=text")
+                                                .header("Authorization", "Bearer " + p.get("token"))
+                                                .retrieve()
+                                                .bodyToFlux(String.class);
+                                        return AzureContainerLogs.collect(rows, props.getLogs(), null, following);
+                                    })
+                                    .map(logs -> {
+                                        Map<String, Object> r = new LinkedHashMap<>();
+                                        r.put("containerApp", appName);
+                                        r.putAll(stream.getValue());
+                                        r.putAll(logs);
+                                        return r;
+                                    }));
+                })
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore lettura log Container App: " + e.getMessage())));
+    }
 }
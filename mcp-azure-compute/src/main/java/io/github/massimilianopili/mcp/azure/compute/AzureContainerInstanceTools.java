@@ -1,12 +1,18 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
@@ -19,41 +25,47 @@ public class AzureContainerInstanceTools {
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
     public AzureContainerInstanceTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_container_groups",
           description = "Elenca tutti i container group Azure Container Instances (ACI) nella subscription")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listContainerGroups() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> groups = (List<Map<String, Object>>) response.get("value");
-                    return groups.stream().map(g -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", g.getOrDefault("name", ""));
-                        r.put("location", g.getOrDefault("location", ""));
-                        Map<String, Object> p = (Map<String, Object>) g.getOrDefault("properties", Map.of());
-                        r.put("provisioningState", p.getOrDefault("provisioningState", ""));
-                        Object iv = p.getOrDefault("instanceView", Map.of());
-                        r.put("state", iv instanceof Map ? ((Map<String, Object>) iv).getOrDefault("state", "") : "");
-                        r.put("osType", p.getOrDefault("osType", ""));
-                        r.put("restartPolicy", p.getOrDefault("restartPolicy", ""));
-                        List<Map<String, Object>> containers = (List<Map<String, Object>>) p.getOrDefault("containers", List.of());
-                        r.put("containers", containers.stream().map(c -> c.getOrDefault("name", "")).toList());
-                        return r;
-                    }).toList();
+    public Mono<Object> listContainerGroups(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_container_groups", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + "?api-version=" + API_VERSION)
+                .map(g -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", g.getOrDefault("name", ""));
+                    r.put("location", g.getOrDefault("location", ""));
+                    Map<String, Object> p = (Map<String, Object>) g.getOrDefault("properties", Map.of());
+                    r.put("provisioningState", p.getOrDefault("provisioningState", ""));
+                    Object iv = p.getOrDefault("instanceView", Map.of());
+                    r.put("state", iv instanceof Map ? ((Map<String, Object>) iv).getOrDefault("state", "") : "");
+                    r.put("osType", p.getOrDefault("osType", ""));
+                    r.put("restartPolicy", p.getOrDefault("restartPolicy", ""));
+                    List<Map<String, Object>> containers = (List<Map<String, Object>>) p.getOrDefault("containers", List.of());
+                    r.put("containers", containers.stream().map(c -> c.getOrDefault("name", "")).toList());
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista container groups ACI: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista container groups ACI: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_container_group",
@@ -61,12 +73,13 @@ public class AzureContainerInstanceTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getContainerGroup(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del container group") String groupName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del container group") String groupName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero container group ACI: " + e.getMessage())));
     }
 
@@ -81,7 +94,8 @@ public class AzureContainerInstanceTools {
             @ToolParam(description = "Immagine Docker, es: nginx:latest o myregistry.azurecr.io/myapp:1.0") String image,
             @ToolParam(description = "CPU cores (es: 1.0)") double cpu,
             @ToolParam(description = "Memoria in GB (es: 1.5)") double memoryGb,
-            @ToolParam(description = "Porta da esporre (0 = nessuna porta pubblica)") int port) {
+            @ToolParam(description = "Porta da esporre (0 = nessuna porta pubblica)") int port,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
         List<Map<String, Object>> ports = port > 0
                 ? List.of(Map.of("port", port, "protocol", "TCP"))
                 : List.of();
@@ -104,12 +118,12 @@ public class AzureContainerInstanceTools {
                         "ipAddress", ipAddress
                 )
         );
-        return webClient.put()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "?api-version=" + API_VERSION)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+        return fanOut.inProfile(profile, arm -> webClient.put()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "?api-version=" + API_VERSION)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore creazione container group ACI: " + e.getMessage())));
     }
 
@@ -118,13 +132,14 @@ public class AzureContainerInstanceTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> startContainerGroup(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del container group") String groupName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "/start?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .defaultIfEmpty(Map.of("status", "Start richiesto per " + groupName))
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del container group") String groupName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "/start?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .defaultIfEmpty(Map.of("status", "Start richiesto per " + groupName))
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore avvio container group ACI: " + e.getMessage())));
     }
 
@@ -133,13 +148,62 @@ public class AzureContainerInstanceTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> deleteContainerGroup(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del container group da eliminare") String groupName) {
-        return webClient.delete()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .defaultIfEmpty(Map.of("status", "Eliminazione avviata per " + groupName))
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del container group da eliminare") String groupName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.delete()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .defaultIfEmpty(Map.of("status", "Eliminazione avviata per " + groupName))
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore eliminazione container group ACI: " + e.getMessage())));
     }
+
+    @ReactiveTool(name = "azure_get_container_logs",
+          description = "Legge le ultime righe di log di un container in un container group Azure Container Instances, entro i limiti di righe e byte configurati")
+    @SuppressWarnings("unchecked")
+    public Mono<Map<String, Object>> getContainerLogs(
+            @ToolParam(description = "Nome del resource group") String resourceGroup,
+            @ToolParam(description = "Nome del container group") String groupName,
+            @ToolParam(description = "Nome del container; vuoto = primo container del gruppo", required = false) String containerName,
+            @ToolParam(description = "Numero di righe finali da leggere (default e massimo: mcp.azure.logs.max-lines)", required = false) Integer tail,
+            @ToolParam(description = "true per anteporre il timestamp a ogni riga", required = false) Boolean timestamps,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        int lines = AzureContainerLogs.tail(tail, props.getLogs(), false);
+        // l'API restituisce il log in un unico campo content: il limite di righe è applicato lato server con tail
+        return fanOut.inProfile(profile, arm -> {
+                    String groupUrl = arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + groupName;
+                    Mono<String> container = containerName != null && !containerName.isBlank()
+                            ? Mono.just(containerName.trim())
+                            : webClient.get()
+                                    .uri(groupUrl + "?api-version=" + API_VERSION)
+                                    .retrieve()
+                                    .bodyToMono(Map.class)
+                                    .flatMap(g -> {
+                                        Map<String, Object> p = (Map<String, Object>) g.getOrDefault("properties", Map.of());
+                                        List<Map<String, Object>> containers = (List<Map<String, Object>>) p.getOrDefault("containers", List.of());
+                                        return containers.isEmpty()
+                                                ? Mono.error(new IllegalStateException("nessun container nel gruppo " + groupName))
+                                                : Mono.just(String.valueOf(containers.get(0).get("name")));
+                                    });
+                    return container.flatMap(name -> webClient.get()
+                                    .uri(groupUrl + "/containers/" + name + "/logs?tail=" + lines
+                                            + "&timestamps=" + Boolean.TRUE.equals(timestamps) + "&api-version=" + API_VERSION)
+                                    .retrieve()
+                                    .bodyToMono(Map.class)
+                                    .flatMap(r -> {
+                                        String content = String.valueOf(r.getOrDefault("content", ""));
+                                        Flux<String> rows = content.isEmpty() ? Flux.empty() : Flux.fromArray(content.split("\\r?\\n"));
+                                        return AzureContainerLogs.collect(rows, props.getLogs(), lines, false);
+                                    })
+                                    .map(logs -> {
+                                        Map<String, Object> r = new LinkedHashMap<>();
+                                        r.put("containerGroup", groupName);
+                                        r.put("container", name);
+                                        r.putAll(logs);
+                                        return r;
+                                    }));
+                })
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore lettura log container ACI: " + e.getMessage())));
+    }
 }
@@ -0,0 +1,97 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import io.github.massimilianopili.mcp.azure.core.AzureProgress;
+import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lettura limitata dei log di container (ACI, Container Apps).
+ * Le righe sono consumate una alla volta dallo stream: raggiunto il limite di righe o di byte
+ * la sottoscrizione viene cancellata e la connessione chiusa, senza leggere il resto del log.
+ * Ogni {@link #PROGRESS_LINES} righe viene notificato l'avanzamento ({@link AzureProgress}).
+ */
+final class AzureContainerLogs {
+
+    static final int PROGRESS_LINES = 100;
+
+    private AzureContainerLogs() {
+    }
+
+    /**
+     * Raccoglie le righe entro i limiti configurati; {@code maxLines} della chiamata, se minore, prevale.
+     * Con {@code follow} lo stream viene chiuso dopo {@code followTimeout} o appena le righe raggiungono il limite.
+     */
+    static Mono<Map<String, Object>> collect(Flux<String> lines, AzureProperties.Logs config, Integer maxLines, boolean follow) {
+        int lineLimit = Math.max(maxLines != null && maxLines > 0 ? Math.min(maxLines, config.getMaxLines()) : config.getMaxLines(), 1);
+        Flux<String> source = follow ? lines.take(config.getFollowTimeout()) : lines;
+        return Mono.deferContextual(ctx -> {
+            Budget budget = new Budget(lineLimit, Math.max(config.getMaxBytes(), 1), follow, ctx);
+            // take chiude lo stream sull'ultima riga ammessa, senza attendere la successiva
+            return source.take(lineLimit)
+                    .takeWhile(budget::accept)
+                    .then(Mono.fromSupplier(budget::toMap));
+        });
+    }
+
+    /**
+     * Righe finali da chiedere all'API (parametro tail).
+     * Con {@code follow} al più metà del limite di righe, così il resto resta per le righe nuove.
+     */
+    static int tail(Integer tail, AzureProperties.Logs config, boolean follow) {
+        int max = follow ? Math.max(config.getMaxLines() / 2, 1) : config.getMaxLines();
+        return tail != null && tail > 0 ? Math.min(tail, max) : max;
+    }
+
+    /** Righe accettate finora e motivo dell'interruzione */
+    private static final class Budget {
+
+        private final int maxLines;
+        private final int maxBytes;
+        private final boolean follow;
+        private final ContextView ctx;
+        private final List<String> lines = new ArrayList<>();
+        private long bytes;
+        private String truncatedBy;
+
+        Budget(int maxLines, int maxBytes, boolean follow, ContextView ctx) {
+            this.maxLines = maxLines;
+            this.maxBytes = maxBytes;
+            this.follow = follow;
+            this.ctx = ctx;
+        }
+
+        boolean accept(String line) {
+            long size = line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + size > maxBytes) {
+                truncatedBy = "maxBytes";
+                return false;
+            }
+            bytes += size;
+            lines.add(line);
+            if (lines.size() % PROGRESS_LINES == 0) {
+                AzureProgress.report(ctx, "righe di log lette: " + lines.size());
+            }
+            // senza follow il limite coincide con tail: raggiungerlo non tronca nulla
+            if (follow && lines.size() == maxLines) truncatedBy = "maxLines";
+            return true;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("lineCount", lines.size());
+            r.put("bytes", bytes);
+            r.put("truncated", truncatedBy != null);
+            if (truncatedBy != null) r.put("truncatedBy", truncatedBy);
+            r.put("lines", lines);
+            return r;
+        }
+    }
+}
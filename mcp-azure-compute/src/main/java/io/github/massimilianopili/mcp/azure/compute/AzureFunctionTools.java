@@ -1,6 +1,12 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -17,39 +23,68 @@ public class AzureFunctionTools {
 
     private static final String API_VERSION = "2023-12-01";
     private static final String PROVIDER    = "/providers/Microsoft.Web/sites";
+    private static final String ARM         = "https://management.azure.com";
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
     public AzureFunctionTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_function_apps",
           description = "Elenca tutte le Function App nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listFunctionApps() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?$filter=kind eq 'functionapp'&api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> apps = (List<Map<String, Object>>) response.get("value");
-                    return apps.stream().map(a -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", a.getOrDefault("name", ""));
-                        r.put("location", a.getOrDefault("location", ""));
-                        r.put("state", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("state", "")
-                                : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listFunctionApps(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_function_apps", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        functionAppsUrl(subscriptionId))
+                .map(a -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", a.getOrDefault("name", ""));
+                    r.put("location", a.getOrDefault("location", ""));
+                    r.put("state", a.containsKey("properties")
+                            ? ((Map<String, Object>) a.get("properties")).getOrDefault("state", "")
+                            : "");
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista Function App: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista Function App: " + e.getMessage()))))));
+    }
+
+    @ReactiveTool(name = "azure_list_function_inventory",
+          description = "Inventario delle funzioni di tutte le Function App: una riga per funzione con app, trigger e stato; "
+                  + "le app vengono lette in parallelo con concorrenza limitata")
+    public Mono<Object> listFunctionInventory(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = "Function App lette in parallelo (default: concorrenza del fan-out)", required = false) Integer concurrency,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        int parallel = Math.max(concurrency != null ? concurrency : props.getFanOut().getConcurrency(), 1);
+        return cursors.list("azure_list_function_inventory", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        functionAppsUrl(subscriptionId), AzureArmResource.class)
+                // le funzioni di app diverse vengono lette in parallelo, tutte le pagine di ciascuna
+                .flatMap(app -> AzureArmPaging.items(webClient, ARM + app.id() + "/functions?api-version=" + API_VERSION)
+                        .map(f -> functionRow(app, f))
+                        .onErrorResume(e -> Mono.just(Map.of("functionApp", AzureArmResource.orEmpty(app.name()),
+                                "error", "Errore lista funzioni: " + e.getMessage()))), parallel)
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore inventario funzioni: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_function_app",
@@ -57,12 +92,13 @@ public class AzureFunctionTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getFunctionApp(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della Function App") String appName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome della Function App") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero Function App: " + e.getMessage())));
     }
 
@@ -71,24 +107,25 @@ public class AzureFunctionTools {
     @SuppressWarnings("unchecked")
     public Mono<List<Map<String, Object>>> listFunctions(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della Function App") String appName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
-                        + "/functions?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> functions = (List<Map<String, Object>>) response.get("value");
-                    return functions.stream().map(f -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", f.getOrDefault("name", ""));
-                        r.put("isDisabled", f.containsKey("properties")
-                                ? ((Map<String, Object>) f.get("properties")).getOrDefault("isDisabled", false)
-                                : false);
-                        return r;
-                    }).toList();
-                })
+            @ToolParam(description = "Nome della Function App") String appName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
+                                + "/functions?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(response -> {
+                            if (!response.containsKey("value")) return List.<Map<String, Object>>of();
+                            List<Map<String, Object>> functions = (List<Map<String, Object>>) response.get("value");
+                            return functions.stream().map(f -> {
+                                Map<String, Object> r = new LinkedHashMap<>();
+                                r.put("name", f.getOrDefault("name", ""));
+                                r.put("isDisabled", f.containsKey("properties")
+                                        ? ((Map<String, Object>) f.get("properties")).getOrDefault("isDisabled", false)
+                                        : false);
+                                return r;
+                            }).toList();
+                        }))
                 .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista funzioni: " + e.getMessage()))));
     }
 
@@ -98,15 +135,41 @@ public class AzureFunctionTools {
     public Mono<Map<String, Object>> listFunctionKeys(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
             @ToolParam(description = "Nome della Function App") String appName,
-            @ToolParam(description = "Nome della funzione") String functionName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
-                        + "/functions/" + functionName + "/listKeys?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome della funzione") String functionName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + appName
+                                + "/functions/" + functionName + "/listKeys?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero chiavi funzione: " + e.getMessage())));
     }
+
+    private String functionAppsUrl(String subscriptionId) {
+        return props.getArmBase(subscriptionId) + PROVIDER + "?$filter=kind eq 'functionapp'&api-version=" + API_VERSION;
+    }
+
+    /** Riga dell'inventario: il nome ARM della funzione è "app/funzione", il trigger è il binding *Trigger */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> functionRow(AzureArmResource app, Map<String, Object> function) {
+        Map<String, Object> p = (Map<String, Object>) function.getOrDefault("properties", Map.of());
+        Map<String, Object> config = p.get("config") instanceof Map<?, ?> c ? (Map<String, Object>) c : Map.of();
+        List<Map<String, Object>> bindings = config.get("bindings") instanceof List<?> b ? (List<Map<String, Object>>) b : List.of();
+        String trigger = bindings.stream()
+                .map(b -> String.valueOf(b.getOrDefault("type", "")))
+                .filter(t -> t.toLowerCase().endsWith("trigger"))
+                .findFirst().orElse("");
+        String name = String.valueOf(function.getOrDefault("name", ""));
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("functionApp", AzureArmResource.orEmpty(app.name()));
+        r.put("resourceGroup", app.resourceGroup());
+        r.put("function", name.substring(name.lastIndexOf('/') + 1));
+        r.put("trigger", trigger);
+        r.put("isDisabled", p.getOrDefault("isDisabled", false));
+        r.put("language", p.getOrDefault("language", ""));
+        return r;
+    }
 }
@@ -1,6 +1,11 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -19,37 +24,43 @@ public class AzureManagedDiskTools {
 
     private final WebClient w;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
-    public AzureManagedDiskTools(@Qualifier("azureArmWebClient") WebClient w, AzureProperties props) {
+    public AzureManagedDiskTools(@Qualifier("azureArmWebClient") WebClient w, AzureProperties props, AzureSubscriptionFanOut fanOut,
+                                 AzureResultCursors cursors) {
         this.w = w;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_managed_disks",
           description = "Elenca tutti i managed disk Azure nella subscription")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listManagedDisks() {
-        return w.get()
-                .uri(props.getArmBase() + "/providers/" + P + "?api-version=" + API)
-                .retrieve().bodyToMono(Map.class)
-                .map(res -> {
-                    if (!res.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> items = (List<Map<String, Object>>) res.get("value");
-                    return items.stream().map(d -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", d.getOrDefault("name", ""));
-                        r.put("location", d.getOrDefault("location", ""));
-                        Map<String, Object> sku = (Map<String, Object>) d.getOrDefault("sku", Map.of());
-                        r.put("sku", sku.getOrDefault("name", ""));
-                        Map<String, Object> p = (Map<String, Object>) d.getOrDefault("properties", Map.of());
-                        r.put("diskSizeGB", p.getOrDefault("diskSizeGB", 0));
-                        r.put("diskState", p.getOrDefault("diskState", ""));
-                        r.put("osType", p.getOrDefault("osType", ""));
-                        r.put("provisioningState", p.getOrDefault("provisioningState", ""));
-                        return r;
-                    }).toList();
+    public Mono<Object> listManagedDisks(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_managed_disks", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(w,
+                        props.getArmBase(subscriptionId) + "/providers/" + P + "?api-version=" + API)
+                .map(d -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", d.getOrDefault("name", ""));
+                    r.put("location", d.getOrDefault("location", ""));
+                    Map<String, Object> sku = (Map<String, Object>) d.getOrDefault("sku", Map.of());
+                    r.put("sku", sku.getOrDefault("name", ""));
+                    Map<String, Object> p = (Map<String, Object>) d.getOrDefault("properties", Map.of());
+                    r.put("diskSizeGB", p.getOrDefault("diskSizeGB", 0));
+                    r.put("diskState", p.getOrDefault("diskState", ""));
+                    r.put("osType", p.getOrDefault("osType", ""));
+                    r.put("provisioningState", p.getOrDefault("provisioningState", ""));
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_managed_disk",
@@ -57,11 +68,12 @@ public class AzureManagedDiskTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getManagedDisk(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del disco") String diskName) {
-        return w.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + diskName + "?api-version=" + API)
-                .retrieve().bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del disco") String diskName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> w.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + diskName + "?api-version=" + API)
+                        .retrieve().bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", e.getMessage())));
     }
 
@@ -70,12 +82,13 @@ public class AzureManagedDiskTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> deleteManagedDisk(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del disco da eliminare") String diskName) {
-        return w.delete()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + diskName + "?api-version=" + API)
-                .retrieve().bodyToMono(Map.class)
-                .defaultIfEmpty(Map.of("status", "Eliminazione avviata per " + diskName))
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del disco da eliminare") String diskName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> w.delete()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + diskName + "?api-version=" + API)
+                        .retrieve().bodyToMono(Map.class)
+                        .defaultIfEmpty(Map.of("status", "Eliminazione avviata per " + diskName))
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", e.getMessage())));
     }
 }
@@ -0,0 +1,65 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Virtual machine ARM, limitata ai campi usati dai tool di lista.
+ * {@code instanceView} è presente solo con {@code $expand=instanceView} o {@code statusOnly=true};
+ * con {@code statusOnly=true} mancano invece hardwareProfile e provisioningState del modello.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureVirtualMachine(String id, String name, String location, Map<String, String> tags,
+                                  Properties properties) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Properties(HardwareProfile hardwareProfile, String provisioningState, InstanceView instanceView) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record HardwareProfile(String vmSize) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record InstanceView(List<Status> statuses) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Status(String code, String displayStatus) {
+    }
+
+    /** true se la VM ha il tag {@code key}, con valore {@code value} se non null (confronto case-insensitive) */
+    public boolean hasTag(String key, String value) {
+        if (tags == null) return false;
+        for (Map.Entry<String, String> t : tags.entrySet()) {
+            if (t.getKey().equalsIgnoreCase(key)) return value == null || value.equalsIgnoreCase(t.getValue());
+        }
+        return false;
+    }
+
+    public String vmSize() {
+        return properties != null && properties.hardwareProfile() != null && properties.hardwareProfile().vmSize() != null
+                ? properties.hardwareProfile().vmSize() : "";
+    }
+
+    /** Dal modello oppure, con {@code statusOnly=true}, dal codice ProvisioningState/* dell'instanceView */
+    public String provisioningState() {
+        if (properties != null && properties.provisioningState() != null) return properties.provisioningState();
+        return status("ProvisioningState/");
+    }
+
+    /** Codice PowerState/* senza prefisso (running, deallocated, stopped...), vuoto senza instanceView */
+    public String powerState() {
+        return status("PowerState/");
+    }
+
+    private String status(String prefix) {
+        if (properties == null || properties.instanceView() == null || properties.instanceView().statuses() == null) return "";
+        for (Status s : properties.instanceView().statuses()) {
+            if (s.code() != null && s.code().startsWith(prefix)) return s.code().substring(prefix.length());
+        }
+        return "";
+    }
+}
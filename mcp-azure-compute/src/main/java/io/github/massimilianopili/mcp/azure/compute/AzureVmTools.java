@@ -1,6 +1,16 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureLongRunningOperation;
+import io.github.massimilianopili.mcp.azure.core.AzureOutputShape;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
+import io.github.massimilianopili.mcp.azure.core.AzureProgress;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureRawJson;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -8,62 +18,88 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AzureVmTools {
 
     private static final String API_VERSION = "2024-07-01";
-    private static final String PROVIDER = "/providers/Microsoft.Compute/virtualMachines";
+    private static final String VM_TYPE = "Microsoft.Compute/virtualMachines";
+    private static final String PROVIDER = "/providers/" + VM_TYPE;
+    private static final String ARM = "https://management.azure.com";
+    private static final Set<String> POWER_ACTIONS = Set.of("start", "deallocate", "restart");
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
     public AzureVmTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_vms",
-          description = "Elenca tutte le virtual machine nella subscription Azure")
-    @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listVms() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> vms = (List<Map<String, Object>>) response.get("value");
-                    return vms.stream().map(vm -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", vm.getOrDefault("name", ""));
-                        r.put("location", vm.getOrDefault("location", ""));
-                        r.put("resourceGroup", extractRgFromId((String) vm.getOrDefault("id", "")));
-                        r.put("vmSize", vm.containsKey("properties")
-                                ? ((Map<String, Object>) ((Map<String, Object>) vm.get("properties")).getOrDefault("hardwareProfile", Map.of())).getOrDefault("vmSize", "")
-                                : "");
-                        return r;
-                    }).toList();
+          description = "Elenca tutte le virtual machine nella subscription Azure, opzionalmente con power state e filtri su stato e size")
+    public Mono<Object> listVms(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = "Includi powerState e provisioningState nella stessa lista (una chiamata per pagina, non una per VM); senza filtro vmSize la lista con stato non riporta vmSize", required = false) Boolean status,
+            @ToolParam(description = "Filtra per power state, separati da virgola (es: running,deallocated); implica status=true", required = false) String powerState,
+            @ToolParam(description = "Filtra per size, separate da virgola (es: Standard_D2s_v5,Standard_B2ms)", required = false) String vmSize,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        Set<String> powerStates = csv(powerState);
+        Set<String> sizes = csv(vmSize);
+        // statusOnly=true restituisce solo lo stato runtime, più leggero ma senza size;
+        // il filtro per size richiede modello e stato insieme ($expand=instanceView)
+        boolean expand = Boolean.TRUE.equals(status) || !powerStates.isEmpty();
+        boolean statusOnly = expand && sizes.isEmpty();
+        String query = "?api-version=" + API_VERSION + (statusOnly ? "&statusOnly=true" : expand ? "&$expand=instanceView" : "");
+        return cursors.list("azure_list_vms", AzureResultCursors.args(profile, subscriptions, status, powerState, vmSize), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + query, AzureVirtualMachine.class)
+                .filter(vm -> sizes.isEmpty() || sizes.contains(vm.vmSize().toLowerCase()))
+                .filter(vm -> powerStates.isEmpty() || powerStates.contains(vm.powerState().toLowerCase()))
+                .map(vm -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", AzureArmResource.orEmpty(vm.name()));
+                    r.put("location", AzureArmResource.orEmpty(vm.location()));
+                    r.put("resourceGroup", AzureArmResource.resourceGroupOf(vm.id()));
+                    if (!statusOnly) r.put("vmSize", vm.vmSize());
+                    if (expand) {
+                        r.put("powerState", vm.powerState());
+                        r.put("provisioningState", vm.provisioningState());
+                    }
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista VM: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista VM: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_vm",
           description = "Recupera i dettagli di una virtual machine Azure")
-    @SuppressWarnings("unchecked")
-    public Mono<Map<String, Object>> getVm(
+    public Mono<Object> getVm(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della VM") String vmName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome della VM") String vmName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureOutputShape.FIELDS_PARAM, required = false) String fields,
+            @ToolParam(description = AzureOutputShape.MAX_DEPTH_PARAM, required = false) Integer maxDepth,
+            @ToolParam(description = AzureOutputShape.MAX_ITEMS_PARAM, required = false) Integer maxItems,
+            @ToolParam(description = AzureOutputShape.MAX_BYTES_PARAM, required = false) Integer maxBytes) {
+        return fanOut.inProfile(profile, arm -> AzureRawJson.get(webClient,
+                        arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "?api-version=" + API_VERSION,
+                        AzureOutputShape.of(fields, maxDepth, maxItems, maxBytes, props.getOutput())))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero VM: " + e.getMessage())));
     }
 
@@ -71,13 +107,14 @@ public class AzureVmTools {
           description = "Avvia una virtual machine Azure")
     public Mono<Map<String, Object>> startVm(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della VM") String vmName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/start?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .toBodilessEntity()
+            @ToolParam(description = "Nome della VM") String vmName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/start?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .toBodilessEntity())
                 .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "Avvio VM " + vmName + " avviato"))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore avvio VM: " + e.getMessage())));
     }
@@ -86,13 +123,14 @@ public class AzureVmTools {
           description = "Arresta e dealloca una virtual machine Azure (billing fermato)")
     public Mono<Map<String, Object>> stopVm(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della VM") String vmName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/deallocate?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .toBodilessEntity()
+            @ToolParam(description = "Nome della VM") String vmName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/deallocate?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .toBodilessEntity())
                 .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "Arresto VM " + vmName + " avviato"))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore arresto VM: " + e.getMessage())));
     }
@@ -101,13 +139,14 @@ public class AzureVmTools {
           description = "Riavvia una virtual machine Azure")
     public Mono<Map<String, Object>> restartVm(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della VM") String vmName) {
-        return webClient.post()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/restart?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue("{}")
-                .retrieve()
-                .toBodilessEntity()
+            @ToolParam(description = "Nome della VM") String vmName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.post()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/restart?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue("{}")
+                        .retrieve()
+                        .toBodilessEntity())
                 .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "Riavvio VM " + vmName + " avviato"))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore riavvio VM: " + e.getMessage())));
     }
@@ -117,11 +156,12 @@ public class AzureVmTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getVmStatus(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della VM") String vmName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/instanceView?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
+            @ToolParam(description = "Nome della VM") String vmName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + vmName + "/instanceView?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class))
                 .map(response -> {
                     Map<String, Object> r = new LinkedHashMap<>();
                     r.put("vmName", vmName);
@@ -135,12 +175,106 @@ public class AzureVmTools {
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore stato VM: " + e.getMessage())));
     }
 
-    private String extractRgFromId(String id) {
-        if (id == null || id.isEmpty()) return "";
-        String[] parts = id.split("/");
-        for (int i = 0; i < parts.length - 1; i++) {
-            if ("resourceGroups".equalsIgnoreCase(parts[i])) return parts[i + 1];
+    @ReactiveTool(name = "azure_bulk_vm_power",
+          description = "Avvia, dealloca o riavvia più VM in parallelo (per ID, tag o resource group), attende il completamento di ciascuna e restituisce un riepilogo")
+    public Mono<Map<String, Object>> bulkVmPower(
+            @ToolParam(description = "Azione: start, deallocate o restart") String action,
+            @ToolParam(description = "ID risorsa delle VM separati da virgola", required = false) String resourceIds,
+            @ToolParam(description = "Selettore tag: chiave oppure chiave=valore (es: env=dev)", required = false) String tag,
+            @ToolParam(description = "Nome del resource group: tutte le sue VM (combinabile con tag)", required = false) String resourceGroup,
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = "Operazioni contemporanee; vuoto = default", required = false) Integer concurrency,
+            @ToolParam(description = "Attendi il completamento di ogni operazione (default true); false = solo invio", required = false) Boolean wait) {
+        String op = action == null ? "" : action.trim().toLowerCase();
+        if (!POWER_ACTIONS.contains(op)) {
+            return Mono.just(Map.of("error", "Azione non valida: " + action + " (ammesse: start, deallocate, restart)"));
+        }
+        int limit = Math.max(concurrency != null ? concurrency : props.getOperations().getConcurrency(), 1);
+        long start = System.nanoTime();
+        return selectVms(resourceIds, tag, resourceGroup, subscriptions, profile)
+                .flatMap(selection -> {
+                    List<String> ids = selection.stream().map(r -> r.get("id")).filter(Objects::nonNull).map(String::valueOf).distinct().toList();
+                    List<Object> selectionErrors = selection.stream().map(r -> r.get("error")).filter(Objects::nonNull).toList();
+                    AtomicInteger done = new AtomicInteger();
+                    return Flux.fromIterable(ids)
+                            .flatMap(id -> AzureLongRunningOperation.run(webClient,
+                                                    webClient.post()
+                                                            .uri(ARM + id + "/" + op + "?api-version=" + API_VERSION)
+                                                            .contentType(MediaType.APPLICATION_JSON)
+                                                            .bodyValue("{}")
+                                                            .retrieve()
+                                                            .toBodilessEntity(),
+                                                    props.getOperations(), !Boolean.FALSE.equals(wait))
+                                            .flatMap(result -> AzureProgress.report("VM completate: " + done.incrementAndGet() + "/" + ids.size())
+                                                    .thenReturn(powerResult(id, result))),
+                                    limit)
+                            .collectList()
+                            .map(results -> powerSummary(op, results, selectionErrors, start));
+                })
+                .contextWrite(AzureProfileRegistry.withProfile(profile))
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore operazione bulk VM: " + e.getMessage())));
+    }
+
+    /** Righe con l'{@code id} delle VM selezionate, o con {@code error} per le subscription non leggibili */
+    private Mono<List<Map<String, Object>>> selectVms(String resourceIds, String tag, String resourceGroup,
+                                                     String subscriptions, String profile) {
+        if (resourceIds != null && !resourceIds.isBlank()) {
+            List<String> ids = Arrays.stream(resourceIds.split(",")).map(String::trim).filter(id -> !id.isEmpty()).toList();
+            List<String> invalid = ids.stream().filter(id -> !AzureArmResource.isOfType(id, VM_TYPE)).toList();
+            if (!invalid.isEmpty()) {
+                return Mono.error(new IllegalArgumentException("ID non di VM (" + VM_TYPE + "): " + String.join(", ", invalid)));
+            }
+            return Mono.just(ids.stream().map(id -> Map.<String, Object>of("id", id)).toList());
+        }
+        boolean byTag = tag != null && !tag.isBlank();
+        boolean byGroup = resourceGroup != null && !resourceGroup.isBlank();
+        if (!byTag && !byGroup) {
+            return Mono.error(new IllegalArgumentException("indicare resourceIds, tag o resourceGroup"));
+        }
+        String tagKey = byTag ? tag.split("=", 2)[0].trim() : null;
+        String tagValue = byTag && tag.contains("=") ? tag.split("=", 2)[1].trim() : null;
+        return fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + (byGroup ? "/resourceGroups/" + resourceGroup.trim() : "")
+                                + PROVIDER + "?api-version=" + API_VERSION, AzureVirtualMachine.class)
+                .filter(vm -> !byTag || vm.hasTag(tagKey, tagValue))
+                .map(vm -> Map.<String, Object>of("id", vm.id()))
+                .collectList());
+    }
+
+    private static Map<String, Object> powerResult(String id, AzureLongRunningOperation.Result result) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("name", id.substring(id.lastIndexOf('/') + 1));
+        r.put("resourceGroup", AzureArmResource.resourceGroupOf(id));
+        r.putAll(result.toMap());
+        return r;
+    }
+
+    private static Map<String, Object> powerSummary(String action, List<Map<String, Object>> results,
+                                                    List<Object> selectionErrors, long start) {
+        Map<String, Long> byStatus = new TreeMap<>();
+        results.forEach(r -> byStatus.merge(String.valueOf(r.get("status")), 1L, Long::sum));
+        long succeeded = byStatus.getOrDefault(AzureLongRunningOperation.SUCCEEDED, 0L)
+                + byStatus.getOrDefault(AzureLongRunningOperation.ACCEPTED, 0L);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("action", action);
+        summary.put("requested", results.size());
+        summary.put("succeeded", succeeded);
+        summary.put("failed", results.size() - succeeded);
+        summary.put("byStatus", byStatus);
+        summary.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        if (!selectionErrors.isEmpty()) summary.put("selectionErrors", selectionErrors);
+        summary.put("results", results);
+        return summary;
+    }
+
+    /** Valori separati da virgola, normalizzati in minuscolo; vuoto = nessun filtro */
+    private static Set<String> csv(String value) {
+        if (value == null || value.isBlank()) return Set.of();
+        Set<String> result = new HashSet<>();
+        for (String v : value.split(",")) {
+            if (!v.isBlank()) result.add(v.trim().toLowerCase());
         }
-        return "";
+        return result;
     }
 }
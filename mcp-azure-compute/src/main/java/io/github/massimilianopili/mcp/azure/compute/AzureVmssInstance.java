@@ -0,0 +1,33 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Istanza VM di un Virtual Machine Scale Set.
+ * {@code instanceView} è presente solo con {@code $expand=instanceView}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureVmssInstance(String id, String name, String instanceId, Properties properties) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Properties(String provisioningState, Boolean latestModelApplied,
+                             AzureVirtualMachine.InstanceView instanceView) {
+    }
+
+    public String provisioningState() {
+        return properties != null && properties.provisioningState() != null ? properties.provisioningState() : "";
+    }
+
+    public boolean latestModelApplied() {
+        return properties != null && Boolean.TRUE.equals(properties.latestModelApplied());
+    }
+
+    /** Codice PowerState/* senza prefisso, vuoto senza instanceView */
+    public String powerState() {
+        if (properties == null || properties.instanceView() == null || properties.instanceView().statuses() == null) return "";
+        for (AzureVirtualMachine.Status s : properties.instanceView().statuses()) {
+            if (s.code() != null && s.code().startsWith("PowerState/")) return s.code().substring("PowerState/".length());
+        }
+        return "";
+    }
+}
@@ -1,12 +1,21 @@
 package io.github.massimilianopili.mcp.azure.compute;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureLongRunningOperation;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
+import io.github.massimilianopili.mcp.azure.core.AzureProgress;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.*;
@@ -16,39 +25,49 @@ public class AzureVmssTools {
 
     private static final String API = "2024-07-01";
     private static final String P   = "Microsoft.Compute/virtualMachineScaleSets";
+    /** Azione del tool -> operazione ARM sul VMSS che accetta {@code instanceIds} */
+    private static final Map<String, String> INSTANCE_ACTIONS = Map.of(
+            "restart", "restart", "reimage", "reimage", "upgrade", "manualupgrade", "delete", "delete",
+            "start", "start", "deallocate", "deallocate");
 
     private final WebClient w;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
-    public AzureVmssTools(@Qualifier("azureArmWebClient") WebClient w, AzureProperties props) {
+    public AzureVmssTools(@Qualifier("azureArmWebClient") WebClient w, AzureProperties props, AzureSubscriptionFanOut fanOut,
+                          AzureResultCursors cursors) {
         this.w = w;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_vmss",
           description = "Elenca tutti i Virtual Machine Scale Set nella subscription")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listVmss() {
-        return w.get()
-                .uri(props.getArmBase() + "/providers/" + P + "?api-version=" + API)
-                .retrieve().bodyToMono(Map.class)
-                .map(res -> {
-                    if (!res.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> items = (List<Map<String, Object>>) res.get("value");
-                    return items.stream().map(vmss -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", vmss.getOrDefault("name", ""));
-                        r.put("location", vmss.getOrDefault("location", ""));
-                        Map<String, Object> sku = (Map<String, Object>) vmss.getOrDefault("sku", Map.of());
-                        r.put("vmSize", sku.getOrDefault("name", ""));
-                        r.put("capacity", sku.getOrDefault("capacity", 0));
-                        Map<String, Object> p = (Map<String, Object>) vmss.getOrDefault("properties", Map.of());
-                        r.put("provisioningState", p.getOrDefault("provisioningState", ""));
-                        r.put("orchestrationMode", p.getOrDefault("orchestrationMode", ""));
-                        return r;
-                    }).toList();
+    public Mono<Object> listVmss(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_vmss", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(w,
+                        props.getArmBase(subscriptionId) + "/providers/" + P + "?api-version=" + API)
+                .map(vmss -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", vmss.getOrDefault("name", ""));
+                    r.put("location", vmss.getOrDefault("location", ""));
+                    Map<String, Object> sku = (Map<String, Object>) vmss.getOrDefault("sku", Map.of());
+                    r.put("vmSize", sku.getOrDefault("name", ""));
+                    r.put("capacity", sku.getOrDefault("capacity", 0));
+                    Map<String, Object> p = (Map<String, Object>) vmss.getOrDefault("properties", Map.of());
+                    r.put("provisioningState", p.getOrDefault("provisioningState", ""));
+                    r.put("orchestrationMode", p.getOrDefault("orchestrationMode", ""));
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_vmss",
@@ -56,52 +75,155 @@ public class AzureVmssTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getVmss(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del VMSS") String vmssName) {
-        return w.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + vmssName + "?api-version=" + API)
-                .retrieve().bodyToMono(Map.class)
+            @ToolParam(description = "Nome del VMSS") String vmssName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> w.get()
+                        .uri(vmssUrl(arm, resourceGroup, vmssName) + "?api-version=" + API)
+                        .retrieve().bodyToMono(Map.class))
                 .map(r -> (Map<String, Object>) r)
                 .onErrorResume(e -> Mono.just(Map.of("error", e.getMessage())));
     }
 
     @ReactiveTool(name = "azure_list_vmss_instances",
-          description = "Elenca le istanze VM di un Virtual Machine Scale Set")
-    @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listVmssInstances(
+          description = "Elenca le istanze VM di un Virtual Machine Scale Set, opzionalmente con power state")
+    public Mono<Object> listVmssInstances(
+            @ToolParam(description = "Nome del resource group") String resourceGroup,
+            @ToolParam(description = "Nome del VMSS") String vmssName,
+            @ToolParam(description = "Includi powerState di ogni istanza ($expand=instanceView, una chiamata per pagina)", required = false) Boolean status,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        boolean expand = Boolean.TRUE.equals(status);
+        return cursors.list("azure_list_vmss_instances", AzureResultCursors.args(profile, resourceGroup, vmssName, status), format, pageSize, cursor, fanOut.inProfile(profile, arm -> instances(arm, resourceGroup, vmssName, expand)
+                        .map(vm -> instanceRow(vm, expand))
+                        .collectList())
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", e.getMessage())))));
+    }
+
+    @ReactiveTool(name = "azure_vmss_instance_action",
+          description = "Esegue restart, reimage, upgrade, delete, start o deallocate su più istanze di un VMSS con una sola chiamata ARM per batch e ne attende il completamento")
+    public Mono<Map<String, Object>> vmssInstanceAction(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del VMSS") String vmssName) {
-        return w.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + vmssName + "/virtualMachines?api-version=" + API)
-                .retrieve().bodyToMono(Map.class)
-                .map(res -> {
-                    if (!res.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> items = (List<Map<String, Object>>) res.get("value");
-                    return items.stream().map(vm -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", vm.getOrDefault("name", ""));
-                        r.put("instanceId", vm.getOrDefault("instanceId", ""));
-                        Map<String, Object> p = (Map<String, Object>) vm.getOrDefault("properties", Map.of());
-                        r.put("provisioningState", p.getOrDefault("provisioningState", ""));
-                        r.put("latestModelApplied", p.getOrDefault("latestModelApplied", false));
-                        return r;
-                    }).toList();
+            @ToolParam(description = "Nome del VMSS") String vmssName,
+            @ToolParam(description = "Azione: restart, reimage, upgrade, delete, start o deallocate") String action,
+            @ToolParam(description = "Instance ID separati da virgola (es: 0,1,5)") String instanceIds,
+            @ToolParam(description = "Istanze per chiamata ARM; i batch sono eseguiti in sequenza. Vuoto = tutte in una chiamata", required = false) Integer batchSize,
+            @ToolParam(description = "Attendi il completamento di ogni batch (default true)", required = false) Boolean wait,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        String op = INSTANCE_ACTIONS.get(action == null ? "" : action.trim().toLowerCase());
+        if (op == null) {
+            return Mono.just(Map.of("error", "Azione non valida: " + action + " (ammesse: " + String.join(", ", new TreeSet<>(INSTANCE_ACTIONS.keySet())) + ")"));
+        }
+        List<String> ids = instanceIds == null ? List.of() : Arrays.stream(instanceIds.split(","))
+                .map(String::trim).filter(id -> !id.isEmpty()).distinct().toList();
+        if (ids.isEmpty()) {
+            return Mono.just(Map.of("error", "Indicare almeno un instance ID"));
+        }
+        int size = batchSize != null && batchSize > 0 ? batchSize : ids.size();
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += size) batches.add(ids.subList(i, Math.min(i + size, ids.size())));
+
+        long start = System.nanoTime();
+        // in sequenza: ARM rifiuta con 409 operazioni concorrenti sullo stesso scale set
+        return fanOut.inProfile(profile, arm -> Flux.fromIterable(batches)
+                        .index()
+                        .concatMap(batch -> AzureLongRunningOperation.run(w,
+                                        w.post().uri(vmssUrl(arm, resourceGroup, vmssName) + "/" + op + "?api-version=" + API)
+                                                .bodyValue(Map.of("instanceIds", batch.getT2())).retrieve().toBodilessEntity(),
+                                        props.getOperations(), !Boolean.FALSE.equals(wait))
+                                .flatMap(result -> AzureProgress.report("batch completati: " + (batch.getT1() + 1) + "/" + batches.size())
+                                        .thenReturn(batchResult(batch.getT2(), result))))
+                        .collectList())
+                .map(results -> {
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("action", action.trim().toLowerCase());
+                    summary.put("instances", ids.size());
+                    summary.put("batches", results.size());
+                    summary.put("failedBatches", results.stream().filter(r -> !AzureLongRunningOperation.SUCCEEDED.equals(r.get("status"))
+                            && !AzureLongRunningOperation.ACCEPTED.equals(r.get("status"))).count());
+                    summary.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+                    summary.put("results", results);
+                    return summary;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", e.getMessage()))));
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore azione istanze VMSS: " + e.getMessage())));
     }
 
     @ReactiveTool(name = "azure_scale_vmss",
-          description = "Scala un VMSS modificando la capacity (numero di istanze)")
-    @SuppressWarnings("unchecked")
+          description = "Scala un VMSS modificando la capacity, attende il completamento e riporta lo stato di ogni istanza")
     public Mono<Map<String, Object>> scaleVmss(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
             @ToolParam(description = "Nome del VMSS") String vmssName,
-            @ToolParam(description = "Numero desiderato di istanze") int capacity) {
+            @ToolParam(description = "Numero desiderato di istanze") int capacity,
+            @ToolParam(description = "Attendi il completamento e verifica le istanze (default true); false = solo invio", required = false) Boolean wait,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        boolean await = !Boolean.FALSE.equals(wait);
         Map<String, Object> body = Map.of("sku", Map.of("capacity", capacity));
-        return w.patch()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + vmssName + "?api-version=" + API)
-                .bodyValue(body)
-                .retrieve().bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
-                .onErrorResume(e -> Mono.just(Map.of("error", e.getMessage())));
+        return fanOut.inProfile(profile, arm -> AzureLongRunningOperation.run(w,
+                                w.patch().uri(vmssUrl(arm, resourceGroup, vmssName) + "?api-version=" + API)
+                                        .bodyValue(body).retrieve().toBodilessEntity(),
+                                props.getOperations(), await)
+                        .flatMap(result -> {
+                            Map<String, Object> r = new LinkedHashMap<>();
+                            r.put("vmssName", vmssName);
+                            r.put("capacity", capacity);
+                            r.put("operation", result.toMap());
+                            if (!await || !result.succeeded()) return Mono.just(r);
+                            return instances(arm, resourceGroup, vmssName, true)
+                                    .collectList()
+                                    .map(instances -> {
+                                        r.putAll(convergence(instances, capacity));
+                                        return r;
+                                    });
+                        }))
+                .onErrorResume(e -> Mono.just(Map.of("error", "Errore scaling VMSS: " + e.getMessage())));
+    }
+
+    private static String vmssUrl(String arm, String resourceGroup, String vmssName) {
+        return arm + "/resourceGroups/" + resourceGroup + "/providers/" + P + "/" + vmssName;
+    }
+
+    private Flux<AzureVmssInstance> instances(String arm, String resourceGroup, String vmssName, boolean expand) {
+        return AzureArmPaging.items(w,
+                vmssUrl(arm, resourceGroup, vmssName) + "/virtualMachines?api-version=" + API + (expand ? "&$expand=instanceView" : ""),
+                AzureVmssInstance.class);
+    }
+
+    private static Map<String, Object> instanceRow(AzureVmssInstance vm, boolean expand) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("name", AzureArmResource.orEmpty(vm.name()));
+        r.put("instanceId", AzureArmResource.orEmpty(vm.instanceId()));
+        r.put("provisioningState", vm.provisioningState());
+        r.put("latestModelApplied", vm.latestModelApplied());
+        if (expand) r.put("powerState", vm.powerState());
+        return r;
+    }
+
+    private static Map<String, Object> batchResult(List<String> instanceIds, AzureLongRunningOperation.Result result) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("instanceIds", instanceIds);
+        r.putAll(result.toMap());
+        return r;
+    }
+
+    /** Istanze attese contro istanze presenti, Succeeded e running: convergenza raggiunta se coincidono */
+    private static Map<String, Object> convergence(List<AzureVmssInstance> instances, int capacity) {
+        Map<String, Long> byProvisioningState = new TreeMap<>();
+        Map<String, Long> byPowerState = new TreeMap<>();
+        List<Map<String, Object>> pending = new ArrayList<>();
+        for (AzureVmssInstance vm : instances) {
+            byProvisioningState.merge(vm.provisioningState(), 1L, Long::sum);
+            byPowerState.merge(vm.powerState(), 1L, Long::sum);
+            if (!"Succeeded".equals(vm.provisioningState()) || !"running".equals(vm.powerState())) {
+                pending.add(instanceRow(vm, true));
+            }
+        }
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("instances", instances.size());
+        r.put("converged", instances.size() == capacity && pending.isEmpty());
+        r.put("byProvisioningState", byProvisioningState);
+        r.put("byPowerState", byPowerState);
+        r.put("notReady", pending);
+        return r;
     }
 }
@@ -0,0 +1,164 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
+import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class AzureAcrClientTest {
+
+    private static final String HOST = "myacr.azurecr.io";
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final List<URI> pages = new CopyOnWriteArrayList<>();
+
+    @Test
+    void catalogFollowsLinkHeaderAcrossPages() {
+        AzureAcrClient client = client(jwt(), jwt(), request -> switch (request.url().getQuery()) {
+            case "n=1000" -> page("{\"repositories\":[\"api\",\"web\"]}", "</v2/_catalog?last=web&n=1000>; rel=\"next\"");
+            case "last=web&n=1000" -> page("{\"repositories\":[\"worker\"]}",
+                    "<https://" + HOST + "/v2/_catalog?last=worker&n=1000>; rel=next");
+            case "last=worker&n=1000" -> page("{\"repositories\":[]}", null);
+            default -> Mono.error(new IllegalStateException("pagina inattesa: " + request.url()));
+        });
+
+        List<String> repositories = client.repositories(null, "myacr").collectList().block(Duration.ofSeconds(2));
+
+        assertEquals(List.of("api", "web", "worker"), repositories);
+        assertEquals(3, pages.size());
+        // la query del Link viene usata così com'è, senza ricodifica
+        assertEquals("last=web&n=1000", pages.get(1).getRawQuery());
+    }
+
+    @Test
+    void tokensAreReusedUntilExpiry() {
+        AzureAcrClient client = client(jwt(), jwt(), request -> page("{\"tags\":[\"v1\"]}", null));
+
+        client.tags(null, "myacr", "api").blockLast(Duration.ofSeconds(2));
+        client.tags(null, "myacr", "api").blockLast(Duration.ofSeconds(2));
+        client.tags(null, "myacr", "web").blockLast(Duration.ofSeconds(2));
+
+        assertEquals(1, count("/oauth2/exchange"));
+        // uno per scope: repository:api e repository:web
+        assertEquals(2, count("/oauth2/token"));
+    }
+
+    @Test
+    void missingAccessTokenIsAnErrorAndIsNotCached() {
+        AzureAcrClient client = client(jwt(), null, request -> page("{\"repositories\":[]}", null));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.repositories(null, "myacr").blockLast(Duration.ofSeconds(2));
+                fail("token mancante accettato");
+            } catch (IllegalStateException e) {
+                assertEquals("Risposta di " + HOST + " senza access_token", e.getMessage());
+            }
+        }
+        assertEquals(2, count("/oauth2/token"));
+        assertTrue(pages.isEmpty());
+    }
+
+    @Test
+    void missingRefreshTokenIsAnError() {
+        AzureAcrClient client = client(null, jwt(), request -> page("{\"repositories\":[]}", null));
+
+        try {
+            client.repositories(null, "myacr").blockLast(Duration.ofSeconds(2));
+            fail("refresh token mancante accettato");
+        } catch (IllegalStateException e) {
+            assertEquals("Risposta di " + HOST + " senza refresh_token", e.getMessage());
+        }
+        assertEquals(0, count("/oauth2/token"));
+    }
+
+    @Test
+    void cacheStaysBoundedAcrossManyScopes() {
+        AzureAcrClient client = client(jwt(), jwt(), request -> page("{\"tags\":[]}", null));
+
+        int scopes = AzureAcrClient.MAX_CACHED_TOKENS + 20;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < scopes; i++) {
+                client.tags(null, "myacr", "repo" + i).blockLast(Duration.ofSeconds(2));
+            }
+        }
+
+        // al secondo giro almeno gli scope oltre il limite sono stati scartati e richiesti di nuovo
+        assertTrue(count("/oauth2/token") >= scopes + 20, "token richiesti: " + count("/oauth2/token"));
+    }
+
+    /**
+     * Client con token AAD fittizio e data plane simulato: {@code refreshToken}/{@code accessToken}
+     * sono i token restituiti da /oauth2/exchange e /oauth2/token (null = campo assente).
+     */
+    private AzureAcrClient client(String refreshToken, String accessToken,
+                                  Function<ClientRequest, Mono<ClientResponse>> registry) {
+        AzureProperties props = new AzureProperties();
+        props.setTenantId("tenant");
+        props.setClientId("client");
+        props.setClientSecret("secret");
+        AzureProfileRegistry profiles = new AzureProfileRegistry(props);
+        AzureTokenService tokens = new AzureTokenService(WebClient.builder()
+                .exchangeFunction(request -> json("{\"access_token\":\"aad\",\"expires_in\":3600}"))
+                .build(), profiles);
+        WebClient http = WebClient.builder().exchangeFunction(request -> {
+            String path = request.url().getPath();
+            calls.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            return switch (path) {
+                case "/oauth2/exchange" -> json(refreshToken == null ? "{}" : "{\"refresh_token\":\"" + refreshToken + "\"}");
+                case "/oauth2/token" -> json(accessToken == null ? "{}" : "{\"access_token\":\"" + accessToken + "\"}");
+                default -> {
+                    pages.add(request.url());
+                    yield registry.apply(request);
+                }
+            };
+        }).build();
+        return new AzureAcrClient(http, tokens, profiles);
+    }
+
+    private int count(String path) {
+        AtomicInteger n = calls.get(path);
+        return n == null ? 0 : n.get();
+    }
+
+    /** JWT non firmato con exp tra un'ora */
+    private static String jwt() {
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        String claims = "{\"exp\":" + Instant.now().plus(Duration.ofHours(1)).getEpochSecond() + "}";
+        return b64.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + b64.encodeToString(claims.getBytes(StandardCharsets.UTF_8)) + ".";
+    }
+
+    private static Mono<ClientResponse> json(String body) {
+        return page(body, null);
+    }
+
+    private static Mono<ClientResponse> page(String body, String link) {
+        ClientResponse.Builder response = ClientResponse.create(HttpStatus.OK)
+                .header("Content-Type", "application/json")
+                .body(body);
+        if (link != null) response.header("Link", link);
+        return Mono.just(response.build());
+    }
+}
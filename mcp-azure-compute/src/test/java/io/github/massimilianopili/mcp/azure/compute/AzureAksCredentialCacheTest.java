@@ -0,0 +1,196 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureAksCredentialCacheTest {
+
+    private static final String CLUSTER =
+            "https://management.azure.com/subscriptions/s1/resourceGroups/rg/providers/Microsoft.ContainerService/managedClusters/aks1";
+
+    /** Certificato client EC autofirmato, valido fino al 2034-01-01T00:00:00Z */
+    private static final String CERT_2034 = "MIIBQTCB6aADAgECAggIuq2qkZ8IkTAKBggqhkjOPQQDAzAWMRQwEgYDVQQDEwtjbHVzdGVyVXNlcjAeFw0yNDAxMDEwMDAwMDBa"
+            + "Fw0zNDAxMDEwMDAwMDBaMBYxFDASBgNVBAMTC2NsdXN0ZXJVc2VyMFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAEWZtQtKkE/zWd+FqFj58F+Kns"
+            + "bEt+FlW5RsXfvBtq+gIyxAb2CdSIHPvCCYvjMml319JJyKbOM4MqplMuFqM8BaMhMB8wHQYDVR0OBBYEFGhmRY9Ohc0DVEzWNfvOf8miyZ+bMAoG"
+            + "CCqGSM49BAMDA0cAMEQCIDfFKYmmxP04vMKIQ+a3XF9iIv8vNFeXdkWLJgSFIHnxAiAbYYxCuj+pO5RmrkMbq5KOt/vaIKK26mrmWtSgv34iGQ==";
+
+    /** Certificato client EC autofirmato, scaduto il 2020-01-01T00:00:00Z */
+    private static final String CERT_2020 = "MIIBQjCB6aADAgECAgg4BnHkWCQMCjAKBggqhkjOPQQDAzAWMRQwEgYDVQQDEwtjbHVzdGVyVXNlcjAeFw0xOTAxMDEwMDAwMDBa"
+            + "Fw0yMDAxMDEwMDAwMDBaMBYxFDASBgNVBAMTC2NsdXN0ZXJVc2VyMFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAEwcK7Qf3i3eoUz+RrD/KZv/EE"
+            + "5gW8061ydcNpGj2dRckZ/9UX73cOoHccH70hJIm6qr+Qs8PxvMfMS3za7DOLxaMhMB8wHQYDVR0OBBYEFJ/7UDgXsxHaUr6p9B9EYdVocrZaMAoG"
+            + "CCqGSM49BAMDA0gAMEUCIQDmfP6NB07U+a1KnA7gWBQ9lJvfXnFZ7DDUC7vxSlJMUwIgJrhZODdFehXFWFgjeT3zmQYgqDPyiHoKDp/HJNbHLNU=";
+
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    @Test
+    void entryExpiresBeforeClientCertificate() {
+        AzureAksCredentialCache cache = cache(Duration.ofDays(365 * 100), Duration.ofMinutes(5));
+
+        AzureAksCredentialCache.Entry entry = cache.get(CLUSTER, false, fetch(certificateKubeconfig(CERT_2034))).block();
+
+        assertEquals(Instant.parse("2033-12-31T23:55:00Z"), entry.expiresAt());
+        List<?> users = (List<?>) entry.kubeconfigs().get(0).get("users");
+        Map<?, ?> user = (Map<?, ?>) users.get(0);
+        assertEquals("clientCertificate", user.get("auth"));
+        assertEquals("2034-01-01T00:00:00Z", user.get("certificateExpiresAt"));
+    }
+
+    @Test
+    void ttlCapsEntryWithoutCertificate() {
+        AzureAksCredentialCache cache = cache(Duration.ofHours(1), Duration.ofMinutes(5));
+
+        AzureAksCredentialCache.Entry entry = cache.get(CLUSTER, false, fetch(tokenKubeconfig())).block();
+
+        assertEquals(entry.fetchedAt().plus(Duration.ofHours(1)), entry.expiresAt());
+    }
+
+    @Test
+    void repeatedCallsAreServedFromCache() {
+        AzureAksCredentialCache cache = cache(Duration.ofHours(1), Duration.ofMinutes(5));
+        Supplier<Mono<Map<String, Object>>> fetch = fetch(certificateKubeconfig(CERT_2034));
+
+        Instant first = cache.get(CLUSTER, false, fetch).block().fetchedAt();
+        Instant second = cache.get(CLUSTER.toUpperCase(), false, fetch).block().fetchedAt();
+
+        assertEquals(first, second);
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void concurrentCallsShareOneFetch() {
+        AzureAksCredentialCache cache = cache(Duration.ofHours(1), Duration.ofMinutes(5));
+        Supplier<Mono<Map<String, Object>>> slow = () -> fetch(tokenKubeconfig()).get().delayElement(Duration.ofMillis(100));
+
+        Mono.zip(cache.get(CLUSTER, false, slow), cache.get(CLUSTER, false, slow)).block(Duration.ofSeconds(2));
+
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void expiredCertificateIsFetchedAgain() {
+        AzureAksCredentialCache cache = cache(Duration.ofHours(1), Duration.ofMinutes(5));
+        Supplier<Mono<Map<String, Object>>> fetch = fetch(certificateKubeconfig(CERT_2020));
+
+        AzureAksCredentialCache.Entry entry = cache.get(CLUSTER, false, fetch).block();
+        cache.get(CLUSTER, false, fetch).block();
+
+        assertTrue(entry.expiresAt().isBefore(entry.fetchedAt()));
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void refreshBypassesCache() {
+        AzureAksCredentialCache cache = cache(Duration.ofHours(1), Duration.ofMinutes(5));
+        Supplier<Mono<Map<String, Object>>> fetch = fetch(tokenKubeconfig());
+
+        cache.get(CLUSTER, false, fetch).block();
+        cache.get(CLUSTER, true, fetch).block();
+        cache.get(CLUSTER, false, fetch).block();
+
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void invalidateDropsEveryProfileOfTheCluster() {
+        AzureAksCredentialCache cache = cache(Duration.ofHours(1), Duration.ofMinutes(5));
+        Supplier<Mono<Map<String, Object>>> fetch = fetch(tokenKubeconfig());
+        cache.get("default|" + CLUSTER, false, fetch).block();
+        cache.get("prod|" + CLUSTER, false, fetch).block();
+        cache.get("default|" + CLUSTER.replace("aks1", "aks2"), false, fetch).block();
+
+        cache.invalidate("rg", "aks1");
+        cache.get("default|" + CLUSTER, false, fetch).block();
+        cache.get("prod|" + CLUSTER, false, fetch).block();
+        cache.get("default|" + CLUSTER.replace("aks1", "aks2"), false, fetch).block();
+
+        assertEquals(5, fetches.get());
+    }
+
+    @Test
+    void errorsAreNotCached() {
+        AzureAksCredentialCache cache = cache(Duration.ofHours(1), Duration.ofMinutes(5));
+        Supplier<Mono<Map<String, Object>>> fetch = () -> fetches.incrementAndGet() == 1
+                ? Mono.error(new IllegalStateException("403 Forbidden"))
+                : Mono.just(tokenKubeconfig());
+
+        assertThrows(IllegalStateException.class, () -> cache.get(CLUSTER, false, fetch).block());
+        cache.get(CLUSTER, false, fetch).block();
+
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysFetches() {
+        AzureProperties.Aks config = new AzureProperties.Aks();
+        config.setCredentialCacheEnabled(false);
+        AzureAksCredentialCache cache = new AzureAksCredentialCache(config);
+        Supplier<Mono<Map<String, Object>>> fetch = fetch(tokenKubeconfig());
+
+        cache.get(CLUSTER, false, fetch).block();
+        cache.get(CLUSTER, false, fetch).block();
+
+        assertEquals(2, fetches.get());
+    }
+
+    private static AzureAksCredentialCache cache(Duration ttl, Duration margin) {
+        AzureProperties.Aks config = new AzureProperties.Aks();
+        config.setCredentialCacheTtl(ttl);
+        config.setCredentialRefreshMargin(margin);
+        return new AzureAksCredentialCache(config);
+    }
+
+    private Supplier<Mono<Map<String, Object>>> fetch(Map<String, Object> response) {
+        return () -> Mono.fromSupplier(() -> {
+            fetches.incrementAndGet();
+            return response;
+        });
+    }
+
+    private static Map<String, Object> certificateKubeconfig(String certificate) {
+        return response("""
+                apiVersion: v1
+                current-context: aks1
+                clusters:
+                - name: aks1
+                  cluster:
+                    server: https://aks1.hcp.westeurope.azmk8s.io:443
+                    certificate-authority-data: Y2E=
+                users:
+                - name: clusterUser_rg_aks1
+                  user:
+                    client-certificate-data: %s
+                    client-key-data: a2V5
+                """.formatted(certificate));
+    }
+
+    private static Map<String, Object> tokenKubeconfig() {
+        return response("""
+                apiVersion: v1
+                current-context: aks1
+                users:
+                - name: clusterUser_rg_aks1
+                  user:
+                    token: abc
+                """);
+    }
+
+    /** Risposta di listClusterUserCredential con un solo kubeconfig */
+    private static Map<String, Object> response(String yaml) {
+        String value = Base64.getEncoder().encodeToString(yaml.getBytes(StandardCharsets.UTF_8));
+        return Map.of("kubeconfigs", List.of(Map.of("name", "clusterUser", "value", value)));
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.massimilianopili.mcp.azure.compute;
+
+import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AzureContainerLogsTest {
+
+    @Test
+    void followStopsAtLineLimitWithoutWaitingForTimeout() {
+        AtomicInteger emitted = new AtomicInteger();
+        // tail di 2 righe, poi 3 righe nuove e uno stream che resta aperto
+        Flux<String> stream = Flux.range(1, 5).map(i -> "riga " + emitted.incrementAndGet()).concatWith(Flux.never());
+
+        Map<String, Object> logs = AzureContainerLogs.collect(stream, config(4, 1024), null, true).block(Duration.ofSeconds(2));
+
+        assertEquals(List.of("riga 1", "riga 2", "riga 3", "riga 4"), logs.get("lines"));
+        assertEquals("maxLines", logs.get("truncatedBy"));
+        assertEquals(4, emitted.get());
+    }
+
+    @Test
+    void followTailLeavesHalfOfTheBudgetForNewLines() {
+        AzureProperties.Logs config = config(500, 1024);
+
+        assertEquals(250, AzureContainerLogs.tail(null, config, true));
+        assertEquals(250, AzureContainerLogs.tail(1000, config, true));
+        assertEquals(100, AzureContainerLogs.tail(100, config, true));
+        assertEquals(500, AzureContainerLogs.tail(null, config, false));
+    }
+
+    @Test
+    void fullTailWithoutFollowIsNotTruncated() {
+        Map<String, Object> logs = AzureContainerLogs.collect(Flux.just("a", "b", "c"), config(10, 1024), 3, false).block();
+
+        assertEquals(3, logs.get("lineCount"));
+        assertEquals(false, logs.get("truncated"));
+    }
+
+    @Test
+    void byteBudgetStopsTheStream() {
+        Map<String, Object> logs = AzureContainerLogs.collect(Flux.just("12345", "67890", "abcde"), config(10, 12), null, false)
+                .block();
+
+        assertEquals(List.of("12345", "67890"), logs.get("lines"));
+        assertEquals(12L, logs.get("bytes"));
+        assertEquals("maxBytes", logs.get("truncatedBy"));
+    }
+
+    private static AzureProperties.Logs config(int maxLines, int maxBytes) {
+        AzureProperties.Logs config = new AzureProperties.Logs();
+        config.setMaxLines(maxLines);
+        config.setMaxBytes(maxBytes);
+        config.setFollowTimeout(Duration.ofSeconds(30));
+        return config;
+    }
+}
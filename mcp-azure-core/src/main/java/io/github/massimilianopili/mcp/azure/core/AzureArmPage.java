@@ -0,0 +1,14 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/** Pagina di una lista ARM deserializzata in record tipizzati */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureArmPage<T>(List<T> value, String nextLink) {
+
+    public List<T> items() {
+        return value == null ? List.of() : value;
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lettura delle liste ARM seguendo {@code nextLink}: le pagine vengono richieste
+ * in sequenza solo quando servono, gli elementi escono in streaming.
+ * Le varianti tipizzate deserializzano direttamente in record, senza mappe intermedie.
+ */
+public final class AzureArmPaging {
+
+    private AzureArmPaging() {
+    }
+
+    /** Pagine grezze della lista, a partire da {@code url}; ogni pagina è notificata come avanzamento */
+    @SuppressWarnings("unchecked")
+    public static Flux<Map<String, Object>> pages(WebClient webClient, String url) {
+        return AzureProgress.pages(firstPage(webClient, url).expand(page -> {
+            String next = nextLink(page);
+            return next != null ? nextPage(webClient, next) : Mono.empty();
+        }), page -> ((List<Object>) page.getOrDefault("value", List.of())).size());
+    }
+
+    /** Elementi di {@code value} di tutte le pagine */
+    @SuppressWarnings("unchecked")
+    public static Flux<Map<String, Object>> items(WebClient webClient, String url) {
+        return pages(webClient, url)
+                .concatMapIterable(page -> (List<Map<String, Object>>) page.getOrDefault("value", List.of()));
+    }
+
+    /** Elementi di {@code value} di tutte le pagine, deserializzati nel record indicato */
+    public static <T> Flux<T> items(WebClient webClient, String url, Class<T> type) {
+        return pages(webClient, url, type).concatMapIterable(AzureArmPage::items);
+    }
+
+    /** Pagine tipizzate della lista, a partire da {@code url}; ogni pagina è notificata come avanzamento */
+    public static <T> Flux<AzureArmPage<T>> pages(WebClient webClient, String url, Class<T> type) {
+        ParameterizedTypeReference<AzureArmPage<T>> pageType = ParameterizedTypeReference.forType(
+                ResolvableType.forClassWithGenerics(AzureArmPage.class, type).getType());
+        return AzureProgress.pages(webClient.get().uri(url).retrieve().bodyToMono(pageType)
+                .expand(page -> page.nextLink() != null && !page.nextLink().isBlank()
+                        ? webClient.get().uri(URI.create(page.nextLink())).retrieve().bodyToMono(pageType)
+                        : Mono.empty()), page -> page.items().size());
+    }
+
+    /** nextLink della pagina, null se è l'ultima */
+    public static String nextLink(Map<String, Object> page) {
+        Object next = page.get("nextLink");
+        return next instanceof String s && !s.isBlank() ? s : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Mono<Map<String, Object>> firstPage(WebClient webClient, String url) {
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .map(r -> (Map<String, Object>) r);
+    }
+
+    /** nextLink è già codificato da ARM: niente URI template, altrimenti verrebbe ricodificato */
+    @SuppressWarnings("unchecked")
+    private static Mono<Map<String, Object>> nextPage(WebClient webClient, String nextLink) {
+        return webClient.get()
+                .uri(URI.create(nextLink))
+                .retrieve()
+                .bodyToMono(Map.class)
+                .map(r -> (Map<String, Object>) r);
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Campi comuni a ogni risorsa ARM; il resto del JSON viene saltato dal parser
+ * senza creare mappe intermedie.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureArmResource(String id, String name, String type, String location) {
+
+    /** Resource group ricavato dall'ID ARM, stringa vuota se assente */
+    public String resourceGroup() {
+        return resourceGroupOf(id);
+    }
+
+    public static String resourceGroupOf(String id) {
+        if (id == null || id.isEmpty()) return "";
+        String[] parts = id.split("/");
+        for (int i = 0; i < parts.length - 1; i++) {
+            if ("resourceGroups".equalsIgnoreCase(parts[i])) return parts[i + 1];
+        }
+        return "";
+    }
+
+    /**
+     * true se {@code id} è l'ID ARM di una risorsa di tipo {@code type} (es: {@code Microsoft.Compute/virtualMachines}),
+     * esclusi risorse figlie, query e frammenti: i tool che compongono URL a partire dall'ID lo verificano prima.
+     */
+    public static boolean isOfType(String id, String type) {
+        if (id == null || id.indexOf('?') >= 0 || id.indexOf('#') >= 0) return false;
+        // "", subscriptions, {sub}, resourceGroups, {rg}, providers, {namespace}, {tipo}, {nome}
+        String[] parts = id.split("/", -1);
+        String[] t = type.split("/");
+        return parts.length == 9 && parts[0].isEmpty()
+                && "subscriptions".equalsIgnoreCase(parts[1]) && !parts[2].isEmpty()
+                && "resourceGroups".equalsIgnoreCase(parts[3]) && !parts[4].isEmpty()
+                && "providers".equalsIgnoreCase(parts[5])
+                && parts[6].equalsIgnoreCase(t[0]) && parts[7].equalsIgnoreCase(t[1]) && !parts[8].isEmpty();
+    }
+
+    /** Valore o stringa vuota, come i {@code getOrDefault(key, "")} sulle mappe */
+    public static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
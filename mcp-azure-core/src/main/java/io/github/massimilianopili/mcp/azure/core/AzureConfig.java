@@ -1,56 +1,176 @@
 package io.github.massimilianopili.mcp.azure.core;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.file.Path;
 
 @Configuration
 public class AzureConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(AzureConfig.class);
+
+    @Bean
+    public AzureProfileRegistry azureProfileRegistry(AzureProperties props) {
+        return new AzureProfileRegistry(props);
+    }
+
+    /** Pool di connessioni unico per token, ARM, Graph e Key Vault di tutti i profili */
+    @Bean(name = "azureConnectionProvider", destroyMethod = "dispose")
+    public ConnectionProvider azureConnectionProvider(AzureProperties props) {
+        return ConnectionProvider.builder("mcp-azure")
+                .maxConnections(props.getHttp().getMaxConnections())
+                .maxIdleTime(props.getHttp().getMaxIdleTime())
+                .pendingAcquireTimeout(props.getHttp().getPendingAcquireTimeout())
+                .build();
+    }
+
     @Bean
-    public AzureTokenService azureTokenService(AzureProperties props) {
+    public AzureTokenService azureTokenService(AzureProperties props, AzureProfileRegistry profiles,
+                                               @Qualifier("azureConnectionProvider") ConnectionProvider connectionProvider) {
         WebClient tokenWebClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
                 .defaultHeader("Content-Type", MediaType.APPLICATION_FORM_URLENCODED_VALUE)
                 .build();
-        return new AzureTokenService(tokenWebClient, props);
+        AzureTokenService service = new AzureTokenService(tokenWebClient, profiles, tokenCacheStore(props));
+        service.restore();
+        return service;
+    }
+
+    /** File cifrato della cache token; la passphrase di default è il client secret del profilo principale */
+    private static AzureTokenCacheStore tokenCacheStore(AzureProperties props) {
+        AzureProperties.TokenCache config = props.getTokenCache();
+        if (!config.isEnabled()) return null;
+        String passphrase = config.getPassphrase();
+        if (passphrase == null || passphrase.isBlank()) passphrase = props.getClientSecret();
+        if (passphrase == null || passphrase.isBlank()) {
+            log.warn("Cache token persistente disattivata: nessuna passphrase né client secret configurati");
+            return null;
+        }
+        return new AzureTokenCacheStore(Path.of(config.getFile()), passphrase);
+    }
+
+    /** Bulkhead e circuit breaker per provider, condivisi dai WebClient ARM, Graph e Key Vault */
+    @Bean
+    public AzureProviderGuardFilter azureProviderGuardFilter(AzureProperties props) {
+        return new AzureProviderGuardFilter(props.getResilience());
+    }
+
+    /** Budget di throttling per profilo e subscription ARM */
+    @Bean
+    public AzureSubscriptionThrottleFilter azureSubscriptionThrottleFilter(AzureProperties props) {
+        return new AzureSubscriptionThrottleFilter(props.getThrottling());
     }
 
     /** WebClient per Azure Resource Manager (ARM scope) */
     @Bean(name = "azureArmWebClient")
-    public WebClient azureArmWebClient(AzureTokenService tokenService) {
-        return buildWebClient(tokenService, AzureTokenService.ARM_SCOPE);
+    public WebClient azureArmWebClient(AzureClientPipeline pipeline) {
+        return pipeline.build(AzureTokenService.ARM_SCOPE);
     }
 
     /** WebClient per Microsoft Graph (Graph scope) */
     @Bean(name = "azureGraphWebClient")
-    public WebClient azureGraphWebClient(AzureTokenService tokenService) {
-        return buildWebClient(tokenService, AzureTokenService.GRAPH_SCOPE);
+    public WebClient azureGraphWebClient(AzureClientPipeline pipeline) {
+        return pipeline.build(AzureTokenService.GRAPH_SCOPE);
     }
 
     /** WebClient per Azure Key Vault data plane (vault scope) */
     @Bean(name = "azureKvWebClient")
-    public WebClient azureKvWebClient(AzureTokenService tokenService) {
-        return buildWebClient(tokenService, AzureTokenService.KV_SCOPE);
-    }
-
-    private WebClient buildWebClient(AzureTokenService tokenService, String scope) {
-        ExchangeFilterFunction bearerFilter = ExchangeFilterFunction.ofRequestProcessor(
-                req -> tokenService.getToken(scope)
-                        .map(token -> ClientRequest.from(req)
-                                .header("Authorization", "Bearer " + token)
-                                .build())
-        );
-
-        return WebClient.builder()
-                .filter(bearerFilter)
-                .defaultHeader("Accept", "application/json")
-                .exchangeStrategies(ExchangeStrategies.builder()
-                        .codecs(c -> c.defaultCodecs().maxInMemorySize(5 * 1024 * 1024))
-                        .build())
-                .build();
+    public WebClient azureKvWebClient(AzureClientPipeline pipeline) {
+        return pipeline.build(AzureTokenService.KV_SCOPE);
+    }
+
+    @Bean
+    public AzureClientPipeline azureClientPipeline(AzureTokenService tokenService, AzureProperties props,
+                                                   AzureProfileRegistry profiles,
+                                                   AzureSubscriptionThrottleFilter throttleFilter,
+                                                   AzureProviderGuardFilter guardFilter,
+                                                   @Qualifier("azureConnectionProvider") ConnectionProvider connectionProvider) {
+        return new AzureClientPipeline(tokenService, props, profiles, throttleFilter, guardFilter, connectionProvider);
+    }
+
+    /** Fan-out dei tool di lista su più subscription */
+    @Bean
+    public AzureSubscriptionFanOut azureSubscriptionFanOut(
+            @Qualifier("azureArmWebClient") WebClient armWebClient, AzureProperties props, AzureProfileRegistry profiles) {
+        return new AzureSubscriptionFanOut(armWebClient, props, profiles);
+    }
+
+    /** Cursori lato server per la paginazione dei tool di lista */
+    @Bean
+    public AzureResultCursors azureResultCursors(AzureProperties props) {
+        return new AzureResultCursors(props);
+    }
+
+    /**
+     * Catena di filtri comune ai WebClient Azure, nell'ordine:
+     * metriche per profilo, throttling per subscription, bulkhead/circuit breaker, hedging, bearer token.
+     */
+    public static class AzureClientPipeline {
+
+        private final AzureTokenService tokenService;
+        private final AzureProperties props;
+        private final AzureProfileRegistry profiles;
+        private final AzureSubscriptionThrottleFilter throttleFilter;
+        private final AzureProviderGuardFilter guardFilter;
+        private final ConnectionProvider connectionProvider;
+
+        public AzureClientPipeline(AzureTokenService tokenService, AzureProperties props,
+                                   AzureProfileRegistry profiles,
+                                   AzureSubscriptionThrottleFilter throttleFilter,
+                                   AzureProviderGuardFilter guardFilter,
+                                   ConnectionProvider connectionProvider) {
+            this.tokenService = tokenService;
+            this.props = props;
+            this.profiles = profiles;
+            this.throttleFilter = throttleFilter;
+            this.guardFilter = guardFilter;
+            this.connectionProvider = connectionProvider;
+        }
+
+        /** WebClient autenticato per lo scope indicato, con il profilo preso dal Context Reactor */
+        public WebClient build(String scope) {
+            ExchangeFilterFunction bearerFilter = ExchangeFilterFunction.ofRequestProcessor(
+                    req -> Mono.deferContextual(ctx -> tokenService.getToken(AzureProfileRegistry.currentProfile(ctx), scope))
+                            .map(token -> ClientRequest.from(req)
+                                    .header("Authorization", "Bearer " + token)
+                                    .build())
+            );
+
+            WebClient.Builder builder = WebClient.builder()
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                    .filter(profiles.metricsFilter());
+            if (props.getThrottling().isEnabled()) {
+                // l'attesa per il budget della subscription non deve occupare posti del bulkhead
+                builder.filter(throttleFilter);
+            }
+            if (props.getResilience().isEnabled()) {
+                // esterno all'hedging: una chiamata logica occupa un solo posto
+                builder.filter(guardFilter);
+            }
+            if (props.getHedging().isEnabled()) {
+                // esterno al bearer filter: ogni hedge riusa il token in cache
+                builder.filter(new AzureHedgingFilter(props.getHedging()));
+            }
+            return builder
+                    .filter(bearerFilter)
+                    .defaultHeader("Accept", "application/json")
+                    .exchangeStrategies(ExchangeStrategies.builder()
+                            .codecs(c -> c.defaultCodecs().maxInMemorySize(5 * 1024 * 1024))
+                            .build())
+                    .build();
+        }
     }
 }
@@ -1,13 +1,20 @@
 package io.github.massimilianopili.mcp.azure.core;
 
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.env.Environment;
+import reactor.netty.resources.ConnectionProvider;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
 @EnableConfigurationProperties(AzureProperties.class)
+@ImportRuntimeHints(AzureCoreRuntimeHints.class)
 @Import({
         AzureConfig.class,
         AzureSubscriptionTools.class,
@@ -17,4 +24,29 @@ import org.springframework.context.annotation.Import;
         AzureLockTools.class
 })
 public class AzureCoreAutoConfiguration {
+
+    /** Token e connessioni pronti prima che l'istanza risulti ready */
+    @Bean
+    @ConditionalOnProperty(name = "mcp.azure.warmup.enabled", matchIfMissing = true)
+    public AzureWarmup azureWarmup(AzureProperties props, AzureTokenService tokenService,
+                                   AzureProfileRegistry profiles, AzureSubscriptionFanOut fanOut,
+                                   @Qualifier("azureConnectionProvider") ConnectionProvider connectionProvider) {
+        return new AzureWarmup(props, tokenService, profiles, fanOut, connectionProvider);
+    }
+
+    /** Tool letti dagli indici generati a compile time, senza introspezione reflection */
+    @Bean
+    @ConditionalOnProperty(name = "mcp.azure.tool-index.enabled", havingValue = "true")
+    public AzureIndexedToolCallbackProvider azureIndexedToolCallbackProvider(ListableBeanFactory beanFactory,
+                                                                             Environment env, AzureProperties props) {
+        return new AzureIndexedToolCallbackProvider(beanFactory, AzureIndexedToolCallbackProvider.class.getClassLoader(),
+                AzureToolFilter.from(env), props.getProgress().getHeartbeat());
+    }
+
+    /** Include/exclude dei tool e bean tool lazy con l'indice; static perché post-processa le bean definition */
+    @Bean
+    public static AzureToolFilterPostProcessor azureToolFilterPostProcessor(Environment env) {
+        return new AzureToolFilterPostProcessor(AzureToolFilter.from(env),
+                env.getProperty("mcp.azure.tool-index.enabled", Boolean.class, false));
+    }
 }
@@ -0,0 +1,23 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.RuntimeHints;
+
+/**
+ * Hint GraalVM del modulo core: oltre ai tool, i record serializzati da Jackson
+ * (pagine ARM tipizzate e cache token) e il proxy JDK dei provider filtrati da {@link AzureToolFilterPostProcessor}.
+ */
+class AzureCoreRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureCoreRuntimeHints() {
+        super(AzureCoreRuntimeHints.class.getPackageName());
+    }
+
+    @Override
+    protected void registerModuleHints(RuntimeHints hints, ClassLoader classLoader) {
+        registerDtos(hints, AzureArmPage.class, AzureArmResource.class, AzureTokenCacheStore.Entry.class,
+                AzureLongRunningOperation.Result.class);
+        hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(ToolCallbackProvider.class));
+    }
+}
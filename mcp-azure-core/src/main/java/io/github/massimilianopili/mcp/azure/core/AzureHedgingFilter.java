@@ -0,0 +1,107 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging delle GET idempotenti verso Azure.
+ * Se la risposta non arriva entro il percentile di latenza osservato per l'host,
+ * invia una seconda richiesta identica: vince la prima risposta, l'altra viene cancellata
+ * o, se è già arrivata, rilasciata senza leggerne il body.
+ * Un budget a token limita le richieste extra a {@code budgetPercent} delle GET totali.
+ */
+public class AzureHedgingFilter implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureHedgingFilter.class);
+
+    /** Un hedge costa un'unità intera; ogni GET accredita una frazione di unità */
+    private static final long CREDIT_UNIT = 1000;
+    private static final long MAX_CREDITS = 10 * CREDIT_UNIT;
+
+    private final AzureProperties.Hedging config;
+    private final long creditPerRequest;
+    private final AtomicLong credits = new AtomicLong();
+    private final Map<String, AzureLatencyTracker> trackers = new ConcurrentHashMap<>();
+
+    public AzureHedgingFilter(AzureProperties.Hedging config) {
+        this.config = config;
+        this.creditPerRequest = Math.round(config.getBudgetPercent() * CREDIT_UNIT / 100.0);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!HttpMethod.GET.equals(request.method())) {
+            return next.exchange(request);
+        }
+
+        AzureLatencyTracker tracker = trackers.computeIfAbsent(request.url().getHost(),
+                h -> new AzureLatencyTracker(config.getWindowSize(), config.getPercentile()));
+        credits.accumulateAndGet(creditPerRequest, (c, inc) -> Math.min(c + inc, MAX_CREDITS));
+
+        Mono<ClientResponse> primary = timed(next.exchange(request), tracker);
+        Duration delay = hedgeDelay(tracker);
+        if (delay == null) {
+            return primary;
+        }
+
+        Mono<ClientResponse> hedge = Mono.delay(delay)
+                .filter(tick -> tryConsumeCredit())
+                .flatMap(tick -> {
+                    log.debug("Hedge GET {} dopo {} ms", request.url().getPath(), delay.toMillis());
+                    return timed(next.exchange(request), tracker);
+                });
+
+        return Mono.firstWithValue(primary, hedge)
+                // risposta arrivata dopo quella vincente: il body non verrà letto, la connessione torna al pool
+                .doOnDiscard(ClientResponse.class, r -> r.releaseBody().subscribe())
+                .onErrorMap(NoSuchElementException.class, AzureHedgingFilter::unwrap);
+    }
+
+    /** Ritardo di hedge per l'host, null finché non ci sono abbastanza campioni */
+    private Duration hedgeDelay(AzureLatencyTracker tracker) {
+        if (tracker.sampleCount() < config.getMinSamples()) return null;
+        long p = tracker.percentileNanos();
+        if (p < 0) return null;
+        return Duration.ofNanos(Math.max(p, config.getMinDelay().toNanos()));
+    }
+
+    private boolean tryConsumeCredit() {
+        long current;
+        do {
+            current = credits.get();
+            if (current < CREDIT_UNIT) return false;
+        } while (!credits.compareAndSet(current, current - CREDIT_UNIT));
+        return true;
+    }
+
+    private static Mono<ClientResponse> timed(Mono<ClientResponse> exchange, AzureLatencyTracker tracker) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return exchange.doOnNext(r -> tracker.record(System.nanoTime() - start));
+        });
+    }
+
+    /** Se nessuna delle due richieste ha risposto, propaga l'errore originale e non quello composito */
+    private static Throwable unwrap(NoSuchElementException e) {
+        if (e.getSuppressed().length > 0) return e.getSuppressed()[0];
+        if (e.getCause() != null) {
+            List<Throwable> causes = Exceptions.unwrapMultiple(e.getCause());
+            if (!causes.isEmpty()) return causes.get(0);
+        }
+        return e;
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.ToolExecutionException;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Espone come {@link ToolCallback} i tool degli indici generati a compile time
+ * ({@code GeneratedAzureToolIndex}), senza introspezione reflection dei bean all'avvio.
+ * Sono inclusi solo i tool abilitati da {@code mcp.azure.tools.include/exclude}
+ * e appartenenti a bean registrati nel contesto;
+ * i bean vengono risolti alla prima chiamata.
+ * Se il ToolContext contiene un {@link AzureProgress.Listener} sotto {@link AzureProgress#TOOL_CONTEXT_KEY}
+ * la chiamata gli invia le notifiche di avanzamento e l'heartbeat.
+ * L'indice sostituisce la scansione reflection di spring-ai-reactive-tools: se un altro provider
+ * pubblica gli stessi tool l'avvio fallisce, invece di esporli due volte al client.
+ */
+public class AzureIndexedToolCallbackProvider implements ToolCallbackProvider, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureIndexedToolCallbackProvider.class);
+
+    private final ListableBeanFactory beanFactory;
+    private final ClassLoader classLoader;
+    private final AzureToolFilter filter;
+    private final Duration heartbeat;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile ToolCallback[] callbacks;
+
+    public AzureIndexedToolCallbackProvider(ListableBeanFactory beanFactory, ClassLoader classLoader,
+                                            AzureToolFilter filter, Duration heartbeat) {
+        this.beanFactory = beanFactory;
+        this.classLoader = classLoader;
+        this.filter = filter;
+        this.heartbeat = heartbeat;
+    }
+
+    @Override
+    public ToolCallback[] getToolCallbacks() {
+        ToolCallback[] result = callbacks;
+        if (result == null) {
+            synchronized (this) {
+                if (callbacks == null) callbacks = load();
+                result = callbacks;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Set<String> indexed = Arrays.stream(getToolCallbacks())
+                .map(c -> c.getToolDefinition().name())
+                .collect(Collectors.toSet());
+        Stream<ToolCallback> others = Stream.concat(
+                beanFactory.getBeansOfType(ToolCallbackProvider.class).values().stream()
+                        .filter(p -> p != this)
+                        .flatMap(p -> Arrays.stream(p.getToolCallbacks())),
+                beanFactory.getBeansOfType(ToolCallback.class).values().stream());
+        Set<String> duplicates = others.map(c -> c.getToolDefinition().name())
+                .filter(indexed::contains)
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException("Tool Azure registrati due volte (indice e scansione reflection): " + duplicates
+                    + ". Disattivare la scansione di spring-ai-reactive-tools oppure mcp.azure.tool-index.enabled");
+        }
+    }
+
+    private ToolCallback[] load() {
+        List<ToolCallback> result = new ArrayList<>();
+        for (AzureToolIndex index : ServiceLoader.load(AzureToolIndex.class, classLoader)) {
+            for (AzureToolDescriptor d : index.tools()) {
+                if (!filter.isEnabled(d.name())) continue;
+                // getBeanNamesForType senza inizializzazione: non istanzia i bean
+                if (beanFactory.getBeanNamesForType(d.beanType(), true, false).length == 0) continue;
+                result.add(new IndexedToolCallback(d));
+            }
+        }
+        log.info("Indice tool Azure: {} tool registrati senza scansione reflection", result.size());
+        return result.toArray(ToolCallback[]::new);
+    }
+
+    private String inputSchema(AzureToolDescriptor d) {
+        ObjectNode schema = mapper.createObjectNode().put("type", "object");
+        ObjectNode properties = schema.putObject("properties");
+        ArrayNode required = schema.putArray("required");
+        for (AzureToolDescriptor.Param p : d.params()) {
+            ObjectNode prop = properties.putObject(p.name()).put("type", p.type());
+            if (!p.description().isEmpty()) prop.put("description", p.description());
+            if (p.required()) required.add(p.name());
+        }
+        return schema.toString();
+    }
+
+    /** Tool dell'indice; {@link #callAsync} esegue la chiamata senza bloccare */
+    public final class IndexedToolCallback implements ToolCallback {
+
+        private final AzureToolDescriptor descriptor;
+        private final ToolDefinition definition;
+        private volatile Object bean;
+
+        IndexedToolCallback(AzureToolDescriptor descriptor) {
+            this.descriptor = descriptor;
+            this.definition = ToolDefinition.builder()
+                    .name(descriptor.name())
+                    .description(descriptor.description())
+                    .inputSchema(inputSchema(descriptor))
+                    .build();
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return definition;
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        /**
+         * Adattatore sincrono richiesto da {@link ToolCallback}: l'unica attesa è qui, sul thread dell'host
+         * (boundedElastic nel server MCP async). Su un thread non bloccante Reactor rifiuta l'attesa con un errore.
+         */
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return callAsync(toolInput, toolContext).block();
+        }
+
+        /** Esegue il tool e serializza il risultato; gli errori arrivano come {@link ToolExecutionException} */
+        @SuppressWarnings("unchecked")
+        public Mono<String> callAsync(String toolInput, ToolContext toolContext) {
+            Object listener = toolContext != null ? toolContext.getContext().get(AzureProgress.TOOL_CONTEXT_KEY) : null;
+            return Mono.defer(() -> {
+                        try {
+                            Map<String, Object> args = toolInput == null || toolInput.isBlank()
+                                    ? Map.of() : mapper.readValue(toolInput, Map.class);
+                            Mono<?> call = descriptor.invoker().invoke(bean(), new AzureToolArgs(args, mapper));
+                            return AzureProgress.heartbeat(call, heartbeat);
+                        } catch (Exception e) {
+                            return Mono.error(e);
+                        }
+                    })
+                    .map(this::serialize)
+                    .contextWrite(AzureProgress.withListener(listener instanceof AzureProgress.Listener l ? l : null))
+                    .onErrorMap(e -> !(e instanceof ToolExecutionException), e -> new ToolExecutionException(definition, e));
+        }
+
+        private String serialize(Object result) {
+            try {
+                return mapper.writeValueAsString(result);
+            } catch (Exception e) {
+                throw new ToolExecutionException(definition, e);
+            }
+        }
+
+        private Object bean() {
+            Object b = bean;
+            if (b == null) {
+                b = beanFactory.getBean(descriptor.beanType());
+                bean = b;
+            }
+            return b;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Finestra scorrevole delle ultime N latenze osservate (in nanosecondi).
+ * Il percentile viene ricalcolato ogni {@value #RECOMPUTE_EVERY} campioni
+ * e letto senza lock dal percorso caldo delle richieste.
+ */
+public class AzureLatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final double percentile;
+    private volatile long cachedPercentileNanos = -1;
+
+    public AzureLatencyTracker(int windowSize, double percentile) {
+        this.samples = new AtomicLongArray(Math.max(windowSize, RECOMPUTE_EVERY));
+        this.percentile = Math.min(Math.max(percentile, 0.0), 100.0);
+    }
+
+    public void record(long nanos) {
+        long n = count.getAndIncrement();
+        samples.set((int) (n % samples.length()), nanos);
+        if ((n + 1) % RECOMPUTE_EVERY == 0) {
+            recompute();
+        }
+    }
+
+    /** Numero di campioni disponibili nella finestra */
+    public long sampleCount() {
+        return Math.min(count.get(), samples.length());
+    }
+
+    /** Percentile configurato in nanosecondi, -1 se non ancora calcolato */
+    public long percentileNanos() {
+        return cachedPercentileNanos;
+    }
+
+    private void recompute() {
+        int size = (int) sampleCount();
+        if (size == 0) return;
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) copy[i] = samples.get(i);
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        cachedPercentileNanos = copy[Math.min(Math.max(idx, 0), size - 1)];
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Formato dei risultati dei tool di lista.
+ * <ul>
+ *   <li>{@code rows}: lista di oggetti, una mappa per riga (default);</li>
+ *   <li>{@code table}: nomi delle colonne una sola volta, righe come array di valori e
+ *       colonne di stringhe ripetute (location, resource group, subscription...) codificate
+ *       con un dizionario: nella riga c'è l'indice del valore.</li>
+ * </ul>
+ */
+public final class AzureListFormat {
+
+    public static final String ROWS = "rows";
+    public static final String TABLE = "table";
+
+    /** Descrizione condivisa del parametro {@code format} dei tool di lista */
+    public static final String FORMAT_PARAM =
+            "Formato del risultato: rows (lista di oggetti) o table (colonne + righe, stringhe ripetute in dizionario); vuoto = default";
+
+    private AzureListFormat() {
+    }
+
+    public static Mono<Object> format(String format, AzureProperties.Output defaults, Mono<List<Map<String, Object>>> rows) {
+        return rows.map(r -> format(format, defaults, r));
+    }
+
+    public static Object format(String format, AzureProperties.Output defaults, List<Map<String, Object>> rows) {
+        String f = format == null || format.isBlank() ? defaults.getListFormat() : format.trim();
+        return TABLE.equalsIgnoreCase(f) ? table(rows) : rows;
+    }
+
+    /** Codifica tabellare: {@code columns}, {@code rows}, {@code dictionary} (solo colonne ripetute), {@code count} */
+    public static Map<String, Object> table(List<Map<String, Object>> rows) {
+        // unione delle colonne nell'ordine di prima apparizione (le righe di errore hanno solo "error")
+        Set<String> columnSet = new LinkedHashSet<>();
+        rows.forEach(r -> columnSet.addAll(r.keySet()));
+        List<String> columns = new ArrayList<>(columnSet);
+
+        Map<String, List<Object>> dictionary = new LinkedHashMap<>();
+        Map<String, Map<Object, Integer>> indexes = new HashMap<>();
+        for (String column : columns) {
+            if (isRepeatedString(rows, column)) {
+                dictionary.put(column, new ArrayList<>());
+                indexes.put(column, new HashMap<>());
+            }
+        }
+
+        List<List<Object>> values = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            List<Object> line = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                Object v = row.get(column);
+                Map<Object, Integer> index = indexes.get(column);
+                if (index != null && v != null) {
+                    List<Object> dict = dictionary.get(column);
+                    v = index.computeIfAbsent(v, k -> {
+                        dict.add(k);
+                        return dict.size() - 1;
+                    });
+                }
+                line.add(v);
+            }
+            values.add(line);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("format", TABLE);
+        result.put("count", rows.size());
+        result.put("columns", columns);
+        if (!dictionary.isEmpty()) result.put("dictionary", dictionary);
+        result.put("rows", values);
+        return result;
+    }
+
+    /** Colonna di sole stringhe con al massimo un valore distinto ogni due righe: il dizionario conviene */
+    private static boolean isRepeatedString(List<Map<String, Object>> rows, String column) {
+        if (rows.size() < 4) return false;
+        Set<Object> distinct = new HashSet<>();
+        for (Map<String, Object> row : rows) {
+            Object v = row.get(column);
+            if (v == null) continue;
+            if (!(v instanceof String)) return false;
+            distinct.add(v);
+        }
+        return !distinct.isEmpty() && distinct.size() * 2 <= rows.size();
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attesa del completamento delle operazioni asincrone ARM (LRO).
+ * Dalla risposta 201/202 iniziale si segue {@code Azure-AsyncOperation} (body con {@code status})
+ * oppure {@code Location} (202 finché l'operazione è in corso), rispettando {@code Retry-After}.
+ * Ogni poll è notificato come avanzamento ({@link AzureProgress}).
+ */
+public final class AzureLongRunningOperation {
+
+    public static final String SUCCEEDED = "Succeeded";
+    public static final String FAILED = "Failed";
+    public static final String CANCELED = "Canceled";
+    public static final String TIMED_OUT = "TimedOut";
+    /** Operazione accettata e non attesa */
+    public static final String ACCEPTED = "Accepted";
+
+    private AzureLongRunningOperation() {
+    }
+
+    /** Esito di un'operazione: stato finale, eventuale errore ARM e durata complessiva */
+    public record Result(String status, String error, long elapsedMs) {
+
+        public boolean succeeded() {
+            return SUCCEEDED.equals(status) || ACCEPTED.equals(status);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("status", status);
+            if (error != null) r.put("error", error);
+            r.put("elapsedMs", elapsedMs);
+            return r;
+        }
+    }
+
+    /**
+     * Esegue la richiesta iniziale e, se ARM risponde in modo asincrono e {@code wait} è true, ne attende la conclusione.
+     * Gli errori HTTP della richiesta iniziale diventano un risultato {@link #FAILED}.
+     */
+    public static Mono<Result> run(WebClient webClient, Mono<ResponseEntity<Void>> request,
+                                   AzureProperties.Operations config, boolean wait) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request
+                    .flatMap(initial -> {
+                        String url = pollUrl(initial);
+                        if (url == null || initial.getStatusCode().value() == 200 || initial.getStatusCode().value() == 204) {
+                            return Mono.just(new Result(SUCCEEDED, null, elapsedMs(start)));
+                        }
+                        if (!wait) {
+                            return Mono.just(new Result(ACCEPTED, null, elapsedMs(start)));
+                        }
+                        boolean asyncOperation = initial.getHeaders().getFirst("Azure-AsyncOperation") != null;
+                        return poll(webClient, url, asyncOperation, retryAfter(initial, config), config, start);
+                    })
+                    .onErrorResume(e -> Mono.just(new Result(FAILED, e.getMessage(), elapsedMs(start))));
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Mono<Result> poll(WebClient webClient, String url, boolean asyncOperation, Duration wait,
+                                     AzureProperties.Operations config, long start) {
+        return Mono.delay(wait)
+                .then(webClient.get().uri(URI.create(url)).retrieve().toEntity(Map.class))
+                .flatMap(response -> {
+                    Map<String, Object> body = response.getBody() != null ? response.getBody() : Map.of();
+                    String status = asyncOperation
+                            ? String.valueOf(body.getOrDefault("status", "InProgress"))
+                            : response.getStatusCode().value() == 202 ? "InProgress" : SUCCEEDED;
+                    if (isTerminal(status)) {
+                        return Mono.just(new Result(normalize(status), errorOf(body), elapsedMs(start)));
+                    }
+                    if (elapsedMs(start) >= config.getTimeout().toMillis()) {
+                        return Mono.just(new Result(TIMED_OUT, "Operazione ancora in corso dopo " + config.getTimeout(), elapsedMs(start)));
+                    }
+                    Object percent = body.get("percentComplete");
+                    return AzureProgress.report("status=" + status + (percent != null ? ", " + percent + "%" : ""))
+                            .then(poll(webClient, url, asyncOperation, retryAfter(response, config), config, start));
+                });
+    }
+
+    private static String pollUrl(ResponseEntity<?> response) {
+        String url = response.getHeaders().getFirst("Azure-AsyncOperation");
+        return url != null ? url : response.getHeaders().getFirst("Location");
+    }
+
+    private static boolean isTerminal(String status) {
+        return SUCCEEDED.equalsIgnoreCase(status) || FAILED.equalsIgnoreCase(status) || CANCELED.equalsIgnoreCase(status)
+                || "Cancelled".equalsIgnoreCase(status);
+    }
+
+    private static String normalize(String status) {
+        if (SUCCEEDED.equalsIgnoreCase(status)) return SUCCEEDED;
+        if (FAILED.equalsIgnoreCase(status)) return FAILED;
+        return CANCELED;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String errorOf(Map<String, Object> body) {
+        if (body.get("error") instanceof Map<?, ?> error) {
+            Map<String, Object> e = (Map<String, Object>) error;
+            return e.getOrDefault("code", "") + ": " + e.getOrDefault("message", "");
+        }
+        return null;
+    }
+
+    /** Retry-After in secondi se presente, altrimenti l'intervallo configurato */
+    private static Duration retryAfter(ResponseEntity<?> response, AzureProperties.Operations config) {
+        List<String> values = response.getHeaders().get("Retry-After");
+        if (values != null && !values.isEmpty()) {
+            try {
+                return Duration.ofSeconds(Math.max(Long.parseLong(values.get(0).trim()), 1));
+            } catch (NumberFormatException ignored) {
+                // formato HTTP-date: si usa l'intervallo configurato
+            }
+        }
+        return config.getPollInterval();
+    }
+
+    private static long elapsedMs(long start) {
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
+}
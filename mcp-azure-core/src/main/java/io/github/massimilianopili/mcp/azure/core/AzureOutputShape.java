@@ -0,0 +1,315 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Riduzione del JSON restituito da un tool: selezione dei campi, limite di profondità,
+ * troncamento degli array e budget in byte.
+ * Si applica durante la copia in streaming parser → generator: il parser non bloccante riceve il body
+ * un buffer alla volta e i campi scartati vengono saltati senza essere mai materializzati in mappe o alberi.
+ * Il budget è contato sui byte UTF-8 effettivamente scritti; una stringa che non ci sta viene troncata,
+ * quindi il risultato lo supera al più per i delimitatori di chiusura e i segnaposto.
+ */
+public record AzureOutputShape(List<String> fields, int maxDepth, int maxItems, int maxBytes, boolean minify) {
+
+    public static final String FIELDS_PARAM =
+            "Campi da restituire separati da virgola, con path puntati (es: name,properties.provisioningState); vuoto = tutti";
+    public static final String MAX_DEPTH_PARAM =
+            "Profondità massima di oggetti e array annidati, oltre viene mostrato un segnaposto; vuoto = default, 0 = nessun limite";
+    public static final String MAX_ITEMS_PARAM =
+            "Numero massimo di elementi per array, gli altri vengono contati e omessi; vuoto = default, 0 = nessun limite";
+    public static final String MAX_BYTES_PARAM =
+            "Budget in byte del risultato (circa 4 byte per token), superato il JSON viene troncato; vuoto = default, 0 = nessun limite";
+
+    /** Campo aggiunto all'oggetto in cui il budget in byte si esaurisce */
+    public static final String TRUNCATED_FIELD = "_truncated";
+
+    /** Caratteri conservati comunque di una stringa troncata, anche a budget quasi esaurito */
+    private static final int MIN_SCALAR_CHARS = 32;
+
+    /** Capacità iniziale dell'output quando la dimensione del body non è nota */
+    private static final int OUTPUT_SIZE_HINT = 8192;
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    /** Parametri della chiamata, con i default di {@code mcp.azure.output.*} per quelli assenti */
+    public static AzureOutputShape of(String fields, Integer maxDepth, Integer maxItems, Integer maxBytes,
+                                      AzureProperties.Output defaults) {
+        List<String> selected = fields == null || fields.isBlank() ? List.of()
+                : Arrays.stream(fields.split(",")).map(String::trim).filter(f -> !f.isEmpty()).toList();
+        return new AzureOutputShape(selected,
+                maxDepth != null ? maxDepth : defaults.getMaxDepth(),
+                maxItems != null ? maxItems : defaults.getMaxItems(),
+                maxBytes != null ? maxBytes : defaults.getMaxBytes(),
+                defaults.isMinify());
+    }
+
+    /** Solo i default di configurazione, per i tool senza parametri di shaping */
+    public static AzureOutputShape defaults(AzureProperties.Output defaults) {
+        return of(null, null, null, null, defaults);
+    }
+
+    /** Nessuna selezione né limite: il JSON resta invariato */
+    public boolean isIdentity() {
+        return fields.isEmpty() && maxDepth <= 0 && maxItems <= 0 && maxBytes <= 0 && !minify;
+    }
+
+    /** Applica selezione e limiti al documento JSON */
+    public String apply(String json) {
+        if (isIdentity()) return json;
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        try (Copy copy = new Copy(bytes.length)) {
+            copy.feed(bytes);
+            return copy.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Come {@link #apply(String)}, con i buffer del body passati uno alla volta al parser non bloccante:
+     * il documento non viene mai ricomposto in memoria, ogni buffer è rilasciato appena letto.
+     */
+    public Mono<String> apply(Flux<DataBuffer> json) {
+        return Mono.using(() -> new Copy(OUTPUT_SIZE_HINT),
+                copy -> json.doOnNext(buffer -> {
+                            try {
+                                byte[] bytes = new byte[buffer.readableByteCount()];
+                                buffer.read(bytes);
+                                copy.feed(bytes);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            } finally {
+                                DataBufferUtils.release(buffer);
+                            }
+                        })
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .then(Mono.fromCallable(copy::finish)),
+                Copy::close);
+    }
+
+    private boolean selected(String path) {
+        if (fields.isEmpty()) return true;
+        for (String f : fields) {
+            // il campo stesso, un suo antenato (per raggiungerlo) o un suo discendente
+            if (f.equals(path) || f.startsWith(path + ".") || path.startsWith(f + ".")) return true;
+        }
+        return false;
+    }
+
+    /** Caratteri iniziali di {@code text} che occupano al più {@code maxUtf8} byte UTF-8 */
+    static int prefixLength(String text, long maxUtf8) {
+        long bytes = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            int size = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (bytes + size > maxUtf8) break;
+            bytes += size;
+            i += Character.charCount(cp);
+        }
+        return i;
+    }
+
+    /** Oggetto o array aperto nell'output: path, profondità ed elementi copiati/omessi */
+    private static final class Frame {
+
+        final boolean object;
+        final String path;
+        final int depth;
+        int copied;
+        int omitted;
+
+        Frame(boolean object, String path, int depth) {
+            this.object = object;
+            this.path = path;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * Copia di un documento: riceve i token dal parser non bloccante man mano che arrivano i byte,
+     * con la pila degli oggetti/array aperti al posto della ricorsione.
+     */
+    private final class Copy implements AutoCloseable {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final ByteArrayOutputStream out;
+        private final JsonGenerator generator;
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        /** Livelli ancora aperti della struttura che si sta saltando */
+        private int skipDepth;
+        /** Il prossimo valore va saltato (campo non selezionato o oltre il budget) */
+        private boolean skipNext;
+        /** Path del campo di cui si attende il valore */
+        private String fieldPath;
+        private boolean exhausted;
+        private boolean marked;
+
+        Copy(int sizeHint) throws IOException {
+            this.parser = FACTORY.createNonBlockingByteArrayParser();
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.out = new ByteArrayOutputStream(maxBytes > 0 ? Math.min(sizeHint, maxBytes + 256) : sizeHint);
+            this.generator = FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        }
+
+        void feed(byte[] bytes) throws IOException {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        }
+
+        String finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            generator.close();
+            return out.toString(StandardCharsets.UTF_8);
+        }
+
+        /** Anche su errore o cancellazione; dopo {@link #finish} il generator è già chiuso */
+        @Override
+        public void close() {
+            try {
+                parser.close();
+                generator.close();
+            } catch (IOException e) {
+                // buffer in memoria: nessuna risorsa esterna da liberare
+            }
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                token(token);
+            }
+        }
+
+        private void token(JsonToken token) throws IOException {
+            if (skipDepth > 0) {
+                if (token.isStructStart()) skipDepth++;
+                else if (token.isStructEnd()) skipDepth--;
+                return;
+            }
+            if (token.isStructEnd()) {
+                end(frames.pop());
+                return;
+            }
+            Frame frame = frames.peek();
+            if (token == JsonToken.FIELD_NAME) {
+                field(frame);
+            } else if (skipNext) {
+                skipNext = false;
+                skip(token);
+            } else if (frame == null) {
+                value(token, "", 0);
+            } else if (frame.object) {
+                value(token, fieldPath, frame.depth + 1);
+            } else if (exhausted || (maxItems > 0 && frame.copied >= maxItems) || overBudget(1)) {
+                if (overBudget(1)) exhausted = true;
+                frame.omitted++;
+                skip(token);
+            } else {
+                // gli elementi restano alla profondità dell'array: il path non cambia
+                frame.copied++;
+                value(token, frame.path, frame.depth);
+            }
+        }
+
+        private void field(Frame frame) throws IOException {
+            String name = parser.currentName();
+            String child = frame.path.isEmpty() ? name : frame.path + "." + name;
+            if (!selected(child)) {
+                skipNext = true;
+                return;
+            }
+            // nome, virgolette, due punti e separatore
+            if (exhausted || overBudget(name.length() + 4)) {
+                exhausted = true;
+                skipNext = true;
+                if (!marked) {
+                    // un solo segnaposto, nel primo oggetto in cui mancano campi
+                    marked = true;
+                    generator.writeStringField(TRUNCATED_FIELD, "budget di " + maxBytes + " byte superato");
+                }
+                return;
+            }
+            generator.writeFieldName(name);
+            fieldPath = child;
+        }
+
+        private void value(JsonToken token, String path, int depth) throws IOException {
+            if (token.isStructStart()) {
+                boolean object = token == JsonToken.START_OBJECT;
+                if (maxDepth > 0 && depth >= maxDepth) {
+                    generator.writeString(object ? "{...}" : "[...]");
+                    skipDepth = 1;
+                } else {
+                    if (object) generator.writeStartObject();
+                    else generator.writeStartArray();
+                    frames.push(new Frame(object, path, depth));
+                }
+            } else if (token == JsonToken.VALUE_STRING && maxBytes > 0) {
+                string();
+            } else {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+
+        private void skip(JsonToken token) {
+            if (token.isStructStart()) skipDepth = 1;
+        }
+
+        private void end(Frame frame) throws IOException {
+            if (frame.object) {
+                generator.writeEndObject();
+                return;
+            }
+            if (frame.omitted > 0) {
+                generator.writeString("... altri " + frame.omitted + " elementi omessi (totale " + (frame.copied + frame.omitted) + ")");
+            }
+            generator.writeEndArray();
+        }
+
+        /** Stringa copiata per intero se entra nel budget, altrimenti troncata con l'indicazione della lunghezza */
+        private void string() throws IOException {
+            String text = parser.getText();
+            // virgolette e separatore
+            long remaining = maxBytes - written() - 3;
+            int keep = prefixLength(text, Math.max(remaining, 0));
+            if (keep == text.length()) {
+                generator.writeString(text);
+                return;
+            }
+            exhausted = true;
+            int cut = Math.max(keep, text.offsetByCodePoints(0, Math.min(MIN_SCALAR_CHARS, text.codePointCount(0, text.length()))));
+            generator.writeString(text.substring(0, cut) + "... [troncato, " + text.length() + " caratteri]");
+        }
+
+        /** Byte UTF-8 scritti finora, compresi quelli ancora nel buffer del generator */
+        private long written() {
+            return out.size() + generator.getOutputBuffered();
+        }
+
+        private boolean overBudget(int next) {
+            return maxBytes > 0 && written() + next > maxBytes;
+        }
+    }
+}
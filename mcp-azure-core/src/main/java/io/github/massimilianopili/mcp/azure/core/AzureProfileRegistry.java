@@ -0,0 +1,115 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Registro dei profili di credenziali (uno per tenant/Service Principal).
+ * Il profilo della chiamata viaggia nel Context Reactor: i WebClient condivisi
+ * scelgono token, budget di throttling e metriche in base al profilo corrente.
+ */
+public class AzureProfileRegistry {
+
+    public static final String DEFAULT_PROFILE = "default";
+
+    /** Chiave del Context Reactor con il nome del profilo */
+    public static final String CONTEXT_KEY = "mcp.azure.profile";
+
+    /** Descrizione condivisa del parametro {@code profile} dei tool */
+    public static final String PROFILE_PARAM =
+            "Profilo credenziali (tenant) definito in mcp.azure.profiles; vuoto = profilo di default";
+
+    private final Map<String, AzureProperties.Profile> profiles;
+    private final Map<String, Stats> stats;
+
+    public AzureProfileRegistry(AzureProperties props) {
+        Map<String, AzureProperties.Profile> all = new LinkedHashMap<>();
+        AzureProperties.Profile defaultProfile = new AzureProperties.Profile();
+        defaultProfile.setTenantId(props.getTenantId());
+        defaultProfile.setClientId(props.getClientId());
+        defaultProfile.setClientSecret(props.getClientSecret());
+        defaultProfile.setSubscriptionId(props.getSubscriptionId());
+        all.put(DEFAULT_PROFILE, defaultProfile);
+        all.putAll(props.getProfiles());
+        this.profiles = Collections.unmodifiableMap(all);
+
+        Map<String, Stats> s = new LinkedHashMap<>();
+        all.keySet().forEach(name -> s.put(name, new Stats()));
+        this.stats = Collections.unmodifiableMap(s);
+    }
+
+    /** Nomi dei profili configurati, "default" per primo */
+    public Set<String> names() {
+        return profiles.keySet();
+    }
+
+    /** Profilo con il nome indicato; vuoto o null = default */
+    public AzureProperties.Profile resolve(String name) {
+        String key = normalize(name);
+        AzureProperties.Profile profile = profiles.get(key);
+        if (profile == null) {
+            throw new IllegalArgumentException("Profilo Azure sconosciuto: " + key + " (disponibili: " + profiles.keySet() + ")");
+        }
+        return profile;
+    }
+
+    public Stats stats(String name) {
+        return stats.get(normalize(name));
+    }
+
+    /** Imposta il profilo nel Context Reactor; con nome vuoto lascia il default */
+    public static Function<Context, Context> withProfile(String name) {
+        return ctx -> (name == null || name.isBlank()) ? ctx : ctx.put(CONTEXT_KEY, name.trim());
+    }
+
+    /** Profilo della chiamata corrente */
+    public static String currentProfile(ContextView ctx) {
+        return ctx.getOrDefault(CONTEXT_KEY, DEFAULT_PROFILE);
+    }
+
+    public static String normalize(String name) {
+        return (name == null || name.isBlank()) ? DEFAULT_PROFILE : name.trim();
+    }
+
+    /** Conta richieste, errori e 429 per profilo */
+    public ExchangeFilterFunction metricsFilter() {
+        return (request, next) -> Mono.deferContextual(ctx -> {
+            Stats s = stats.get(currentProfile(ctx));
+            if (s == null) return next.exchange(request);
+            s.requests.incrementAndGet();
+            return next.exchange(request)
+                    .doOnNext(r -> {
+                        if (r.statusCode().value() == 429) s.throttled.incrementAndGet();
+                        if (r.statusCode().isError()) s.errors.incrementAndGet();
+                    })
+                    .doOnError(e -> s.errors.incrementAndGet());
+        });
+    }
+
+    /** Metriche per profilo */
+    public static final class Stats {
+
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong throttled = new AtomicLong();
+        final AtomicLong tokensAcquired = new AtomicLong();
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("requests", requests.get());
+            r.put("errors", errors.get());
+            r.put("throttled", throttled.get());
+            r.put("tokensAcquired", tokensAcquired.get());
+            return r;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Notifiche di avanzamento delle operazioni lunghe (liste multi-pagina, fan-out, polling LRO).
+ * Il listener della chiamata viaggia nel Context Reactor, come il profilo.
+ * Lo starter non dipende dall'SDK MCP e non invia da sé {@code notifications/progress}: il listener
+ * lo fornisce l'host, nel ToolContext Spring AI sotto {@link #TOOL_CONTEXT_KEY}, associandolo al
+ * progressToken della richiesta. Il ToolContext è letto solo dai tool dell'indice generato
+ * ({@code mcp.azure.tool-index.enabled=true}), che aggiungono anche l'heartbeat; i tool della
+ * scansione reflection non ricevono listener.
+ * Senza listener le notifiche finiscono solo nel log a livello debug.
+ * Il valore di progress è un contatore di eventi, quindi sempre crescente anche con più flussi concorrenti.
+ */
+public final class AzureProgress {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureProgress.class);
+
+    /** Chiave del Context Reactor con lo stato di avanzamento della chiamata */
+    public static final String CONTEXT_KEY = "mcp.azure.progress";
+
+    /**
+     * Chiave del ToolContext Spring AI in cui l'host passa il {@link Listener} della richiesta.
+     * Valori di altro tipo vengono ignorati; un listener che lancia eccezioni non fa fallire il tool.
+     */
+    public static final String TOOL_CONTEXT_KEY = "mcp.azure.progress.listener";
+
+    /** Destinatario delle notifiche: stessi campi della notifica MCP, senza il token */
+    @FunctionalInterface
+    public interface Listener {
+        void onProgress(double progress, Double total, String message);
+    }
+
+    private AzureProgress() {
+    }
+
+    /** Imposta il listener nel Context Reactor; con listener null il Context resta invariato */
+    public static Function<Context, Context> withListener(Listener listener) {
+        return ctx -> listener == null ? ctx : ctx.put(CONTEXT_KEY, new Tracker(listener));
+    }
+
+    /** Notifica un messaggio di avanzamento al listener della chiamata */
+    public static void report(ContextView ctx, String message) {
+        Tracker tracker = ctx.getOrDefault(CONTEXT_KEY, null);
+        if (tracker != null) {
+            tracker.emit(message);
+        } else if (log.isDebugEnabled()) {
+            log.debug("Avanzamento: {}", message);
+        }
+    }
+
+    /** Come {@link #report(ContextView, String)}, da concatenare in una catena reattiva */
+    public static Mono<Void> report(String message) {
+        return Mono.deferContextual(ctx -> {
+            report(ctx, message);
+            return Mono.empty();
+        });
+    }
+
+    /** Notifica ogni pagina letta con i totali della chiamata: "pagine lette: 3, 1500 elementi" */
+    public static <P> Flux<P> pages(Flux<P> pages, ToIntFunction<P> size) {
+        return Flux.deferContextual(ctx -> {
+            Tracker tracker = ctx.getOrDefault(CONTEXT_KEY, null);
+            return tracker == null ? pages : pages.doOnNext(p -> tracker.page(size.applyAsInt(p)));
+        });
+    }
+
+    /**
+     * Notifica "in corso da N s" ogni {@code interval} finché {@code call} non termina,
+     * così il client vede viva anche una chiamata che non produce altri eventi.
+     */
+    public static <T> Mono<T> heartbeat(Mono<T> call, Duration interval) {
+        if (interval == null || interval.isZero() || interval.isNegative()) return call;
+        return Mono.deferContextual(ctx -> {
+            if (!ctx.hasKey(CONTEXT_KEY)) return call;
+            Mono<T> shared = call.cache();
+            return Flux.interval(interval, interval)
+                    .doOnNext(n -> report(ctx, "in corso da " + (n + 1) * interval.toSeconds() + " s"))
+                    .takeUntilOther(shared.materialize())
+                    .then(shared);
+        });
+    }
+
+    /** Stato di avanzamento di una chiamata, condiviso da tutti i flussi che la compongono */
+    private static final class Tracker {
+
+        private final Listener listener;
+        private long events;
+        private long pages;
+        private long items;
+
+        Tracker(Listener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void page(int size) {
+            pages++;
+            items += size;
+            emit("pagine lette: " + pages + ", " + items + " elementi");
+        }
+
+        synchronized void emit(String message) {
+            try {
+                listener.onProgress(++events, null, message);
+            } catch (RuntimeException e) {
+                // la notifica è accessoria: un client disconnesso non deve far fallire il tool
+                log.debug("Notifica di avanzamento non inviata: {}", e.getMessage());
+            }
+        }
+    }
+}
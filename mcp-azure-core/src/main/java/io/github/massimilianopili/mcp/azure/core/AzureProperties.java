@@ -2,6 +2,13 @@ package io.github.massimilianopili.mcp.azure.core;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "mcp.azure")
 public class AzureProperties {
 
@@ -9,6 +16,22 @@ public class AzureProperties {
     private String clientId;
     private String clientSecret;
     private String subscriptionId;
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+    private final Http http = new Http();
+    private final TokenCache tokenCache = new TokenCache();
+    private final Hedging hedging = new Hedging();
+    private final Resilience resilience = new Resilience();
+    private final FanOut fanOut = new FanOut();
+    private final Throttling throttling = new Throttling();
+    private final Warmup warmup = new Warmup();
+    private final ToolIndex toolIndex = new ToolIndex();
+    private final Tools tools = new Tools();
+    private final Output output = new Output();
+    private final Cursors cursors = new Cursors();
+    private final Progress progress = new Progress();
+    private final Operations operations = new Operations();
+    private final Aks aks = new Aks();
+    private final Logs logs = new Logs();
 
     public String getTenantId() { return tenantId; }
     public void setTenantId(String tenantId) { this.tenantId = tenantId; }
@@ -22,13 +45,56 @@ public class AzureProperties {
     public String getSubscriptionId() { return subscriptionId; }
     public void setSubscriptionId(String subscriptionId) { this.subscriptionId = subscriptionId; }
 
+    public Map<String, Profile> getProfiles() { return profiles; }
+    public void setProfiles(Map<String, Profile> profiles) { this.profiles = profiles; }
+
+    public Http getHttp() { return http; }
+
+    public TokenCache getTokenCache() { return tokenCache; }
+
+    public Hedging getHedging() { return hedging; }
+
+    public Resilience getResilience() { return resilience; }
+
+    public FanOut getFanOut() { return fanOut; }
+
+    public Throttling getThrottling() { return throttling; }
+
+    public Warmup getWarmup() { return warmup; }
+
+    public ToolIndex getToolIndex() { return toolIndex; }
+
+    public Tools getTools() { return tools; }
+
+    public Output getOutput() { return output; }
+
+    public Cursors getCursors() { return cursors; }
+
+    public Progress getProgress() { return progress; }
+
+    public Operations getOperations() { return operations; }
+
+    public Aks getAks() { return aks; }
+
+    public Logs getLogs() { return logs; }
+
     /** Base URL ARM scoped alla subscription corrente */
     public String getArmBase() {
+        return getArmBase(subscriptionId);
+    }
+
+    /** Base URL ARM scoped alla subscription indicata */
+    public String getArmBase(String subscriptionId) {
         return "https://management.azure.com/subscriptions/" + subscriptionId;
     }
 
     /** URL endpoint token OAuth2 per questo tenant */
     public String getTokenUrl() {
+        return tokenUrlFor(tenantId);
+    }
+
+    /** URL endpoint token OAuth2 per il tenant indicato */
+    public static String tokenUrlFor(String tenantId) {
         return "https://login.microsoftonline.com/" + tenantId + "/oauth2/v2.0/token";
     }
 
@@ -36,4 +102,393 @@ public class AzureProperties {
     public String getGraphBase() {
         return "https://graph.microsoft.com/v1.0";
     }
+
+    /**
+     * Credenziali aggiuntive con nome (es: un profilo per tenant cliente).
+     * Le proprietà di primo livello formano il profilo "default".
+     */
+    public static class Profile {
+
+        private String tenantId;
+        private String clientId;
+        private String clientSecret;
+        private String subscriptionId;
+
+        public String getTenantId() { return tenantId; }
+        public void setTenantId(String tenantId) { this.tenantId = tenantId; }
+
+        public String getClientId() { return clientId; }
+        public void setClientId(String clientId) { this.clientId = clientId; }
+
+        public String getClientSecret() { return clientSecret; }
+        public void setClientSecret(String clientSecret) { this.clientSecret = clientSecret; }
+
+        public String getSubscriptionId() { return subscriptionId; }
+        public void setSubscriptionId(String subscriptionId) { this.subscriptionId = subscriptionId; }
+
+        public String getTokenUrl() {
+            return AzureProperties.tokenUrlFor(tenantId);
+        }
+    }
+
+    /** Pool di connessioni condiviso da tutti i WebClient e da tutti i profili */
+    public static class Http {
+
+        private int maxConnections = 200;
+        private Duration maxIdleTime = Duration.ofSeconds(60);
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+
+        public Duration getMaxIdleTime() { return maxIdleTime; }
+        public void setMaxIdleTime(Duration maxIdleTime) { this.maxIdleTime = maxIdleTime; }
+
+        public Duration getPendingAcquireTimeout() { return pendingAcquireTimeout; }
+        public void setPendingAcquireTimeout(Duration pendingAcquireTimeout) { this.pendingAcquireTimeout = pendingAcquireTimeout; }
+    }
+
+    /**
+     * Cache token persistente e cifrata (AES-GCM), riletta all'avvio
+     * per evitare nuove richieste ad AAD finché i token sono validi.
+     */
+    public static class TokenCache {
+
+        private boolean enabled = false;
+        private String file = System.getProperty("user.home") + "/.mcp-azure/token-cache.bin";
+        /** Passphrase per la chiave di cifratura; se assente si usa il client secret del profilo default */
+        private String passphrase;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public String getFile() { return file; }
+        public void setFile(String file) { this.file = file; }
+
+        public String getPassphrase() { return passphrase; }
+        public void setPassphrase(String passphrase) { this.passphrase = passphrase; }
+    }
+
+    /**
+     * Hedging delle GET idempotenti: dopo il percentile di latenza osservato
+     * parte una seconda richiesta identica e vince la prima risposta.
+     */
+    public static class Hedging {
+
+        /** Disabilitato di default (opt-in) */
+        private boolean enabled = false;
+        /** Percentile della latenza oltre il quale inviare la richiesta di hedge */
+        private double percentile = 95.0;
+        /** Ritardo minimo prima dell'hedge, anche se il percentile osservato è più basso */
+        private Duration minDelay = Duration.ofMillis(50);
+        /** Percentuale massima di richieste extra rispetto alle GET totali */
+        private double budgetPercent = 5.0;
+        /** Numero di campioni di latenza mantenuti per host */
+        private int windowSize = 1000;
+        /** Campioni minimi prima di iniziare a fare hedging */
+        private int minSamples = 100;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getPercentile() { return percentile; }
+        public void setPercentile(double percentile) { this.percentile = percentile; }
+
+        public Duration getMinDelay() { return minDelay; }
+        public void setMinDelay(Duration minDelay) { this.minDelay = minDelay; }
+
+        public double getBudgetPercent() { return budgetPercent; }
+        public void setBudgetPercent(double budgetPercent) { this.budgetPercent = budgetPercent; }
+
+        public int getWindowSize() { return windowSize; }
+        public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+
+        public int getMinSamples() { return minSamples; }
+        public void setMinSamples(int minSamples) { this.minSamples = minSamples; }
+    }
+
+    /**
+     * Bulkhead e circuit breaker per namespace del resource provider (es: Microsoft.CostManagement),
+     * così un provider degradato non satura il pool di connessioni condiviso.
+     */
+    public static class Resilience {
+
+        private boolean enabled = true;
+        /** Chiamate concorrenti massime per provider; oltre si attende in coda */
+        private int maxConcurrentCalls = 20;
+        /** Attesa massima in coda per un posto libero, poi BULKHEAD_FULL */
+        private Duration maxWait = Duration.ofSeconds(30);
+        /** Chiamate in coda massime per provider; oltre si fallisce subito */
+        private int maxQueuedCalls = 1000;
+        /** Override per singolo provider, es: Microsoft.CostManagement=4 */
+        private Map<String, Integer> providerMaxConcurrentCalls = new HashMap<>();
+        /** Ultime N chiamate considerate per il tasso di errore */
+        private int slidingWindowSize = 20;
+        /** Chiamate minime nella finestra prima di poter aprire il circuito */
+        private int minimumCalls = 10;
+        /** Percentuale di fallimenti (5xx, 429, errori di rete, chiamate lente) che apre il circuito */
+        private double failureRateThreshold = 50.0;
+        /** Oltre questa durata una chiamata conta come fallita */
+        private Duration slowCallThreshold = Duration.ofSeconds(10);
+        /** Tempo in stato aperto prima di lasciar passare una chiamata di prova */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getMaxConcurrentCalls() { return maxConcurrentCalls; }
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) { this.maxConcurrentCalls = maxConcurrentCalls; }
+
+        public Duration getMaxWait() { return maxWait; }
+        public void setMaxWait(Duration maxWait) { this.maxWait = maxWait; }
+
+        public int getMaxQueuedCalls() { return maxQueuedCalls; }
+        public void setMaxQueuedCalls(int maxQueuedCalls) { this.maxQueuedCalls = maxQueuedCalls; }
+
+        public Map<String, Integer> getProviderMaxConcurrentCalls() { return providerMaxConcurrentCalls; }
+        public void setProviderMaxConcurrentCalls(Map<String, Integer> providerMaxConcurrentCalls) { this.providerMaxConcurrentCalls = providerMaxConcurrentCalls; }
+
+        public int getSlidingWindowSize() { return slidingWindowSize; }
+        public void setSlidingWindowSize(int slidingWindowSize) { this.slidingWindowSize = slidingWindowSize; }
+
+        public int getMinimumCalls() { return minimumCalls; }
+        public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+
+        public double getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(double failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+
+        public Duration getSlowCallThreshold() { return slowCallThreshold; }
+        public void setSlowCallThreshold(Duration slowCallThreshold) { this.slowCallThreshold = slowCallThreshold; }
+
+        public Duration getOpenDuration() { return openDuration; }
+        public void setOpenDuration(Duration openDuration) { this.openDuration = openDuration; }
+
+        /** Limite di concorrenza effettivo per il provider indicato (namespace case-insensitive come in ARM) */
+        public int maxConcurrentCallsFor(String provider) {
+            for (Map.Entry<String, Integer> e : providerMaxConcurrentCalls.entrySet()) {
+                if (e.getKey().equalsIgnoreCase(provider)) return e.getValue();
+            }
+            return maxConcurrentCalls;
+        }
+    }
+
+    /** Esecuzione dei tool di lista su più subscription */
+    public static class FanOut {
+
+        /** Subscription interrogate in parallelo */
+        private int concurrency = 8;
+        /** Validità della lista di subscription risolta con "*" */
+        private Duration subscriptionCacheTtl = Duration.ofMinutes(10);
+
+        public int getConcurrency() { return concurrency; }
+        public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+
+        public Duration getSubscriptionCacheTtl() { return subscriptionCacheTtl; }
+        public void setSubscriptionCacheTtl(Duration subscriptionCacheTtl) { this.subscriptionCacheTtl = subscriptionCacheTtl; }
+    }
+
+    /**
+     * Budget di letture ARM per subscription (token bucket). I default ricalcano
+     * i limiti ARM (bucket 250, ricarica 25/s), così il server rallenta da solo
+     * invece di ricevere 429. Un 429 con Retry-After blocca solo la subscription coinvolta.
+     */
+    public static class Throttling {
+
+        private boolean enabled = true;
+        private double readsPerSecond = 25.0;
+        private int burst = 250;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public double getReadsPerSecond() { return readsPerSecond; }
+        public void setReadsPerSecond(double readsPerSecond) { this.readsPerSecond = readsPerSecond; }
+
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+    }
+
+    /**
+     * Warm-up all'avvio: token per tutti i profili e scope, connessioni già aperte
+     * verso login, ARM e Graph. Lo stato di readiness passa ad ACCEPTING_TRAFFIC solo dopo.
+     */
+    public static class Warmup {
+
+        private boolean enabled = true;
+        /** Connessioni da aprire per ogni host Azure */
+        private int connections = 4;
+        /** Carica anche la lista delle subscription usata dal fan-out ("*") */
+        private boolean primeSubscriptions = false;
+        /** Tempo massimo di attesa: scaduto, l'avvio prosegue comunque */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getConnections() { return connections; }
+        public void setConnections(int connections) { this.connections = connections; }
+
+        public boolean isPrimeSubscriptions() { return primeSubscriptions; }
+        public void setPrimeSubscriptions(boolean primeSubscriptions) { this.primeSubscriptions = primeSubscriptions; }
+
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+    }
+
+    /**
+     * Registrazione dei tool dall'indice generato a compile time (mcp-azure-processor)
+     * invece della scansione reflection dei bean {@code @ReactiveTool}.
+     */
+    public static class ToolIndex {
+
+        private boolean enabled = false;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    }
+
+    /**
+     * Selezione dei tool pubblicati, con pattern glob sul nome (es: {@code azure_list_*}).
+     * Letti anche direttamente dall'Environment da {@link AzureToolFilterPostProcessor}.
+     */
+    public static class Tools {
+
+        /** Vuoto = tutti i tool */
+        private List<String> include = new ArrayList<>();
+        private List<String> exclude = new ArrayList<>();
+
+        public List<String> getInclude() { return include; }
+        public void setInclude(List<String> include) { this.include = include; }
+
+        public List<String> getExclude() { return exclude; }
+        public void setExclude(List<String> exclude) { this.exclude = exclude; }
+    }
+
+    /**
+     * Formato dei risultati dei tool. I limiti sono i default di {@link AzureOutputShape}
+     * per i tool che supportano fields/maxDepth/maxItems/maxBytes; 0 = nessun limite.
+     */
+    public static class Output {
+
+        /**
+         * I get tool in passthrough JSON eliminano spazi e indentazione del body ARM.
+         * Richiede una copia token per token del body anche senza altri limiti, per questo è disattivato di default.
+         */
+        private boolean minify = false;
+        /** Limiti di default dei get tool con shaping; 0 = nessun limite, il body resta invariato */
+        private int maxDepth = 0;
+        private int maxItems = 0;
+        private int maxBytes = 0;
+        /** Formato dei tool di lista: rows o table ({@link AzureListFormat}) */
+        private String listFormat = AzureListFormat.ROWS;
+
+        public boolean isMinify() { return minify; }
+        public void setMinify(boolean minify) { this.minify = minify; }
+
+        public int getMaxDepth() { return maxDepth; }
+        public void setMaxDepth(int maxDepth) { this.maxDepth = maxDepth; }
+
+        public int getMaxItems() { return maxItems; }
+        public void setMaxItems(int maxItems) { this.maxItems = maxItems; }
+
+        public int getMaxBytes() { return maxBytes; }
+        public void setMaxBytes(int maxBytes) { this.maxBytes = maxBytes; }
+
+        public String getListFormat() { return listFormat; }
+        public void setListFormat(String listFormat) { this.listFormat = listFormat; }
+    }
+
+    /** Cursori lato server dei tool di lista paginati ({@link AzureResultCursors}) */
+    public static class Cursors {
+
+        /** Righe per pagina quando il tool è chiamato senza pageSize; 0 = risultato intero */
+        private int defaultPageSize = 0;
+        /** Inattività dopo la quale un cursore viene scartato */
+        private Duration ttl = Duration.ofMinutes(5);
+        /** Cursori aperti al massimo: oltre, viene scartato quello in scadenza più vicina */
+        private int maxOpen = 200;
+
+        public int getDefaultPageSize() { return defaultPageSize; }
+        public void setDefaultPageSize(int defaultPageSize) { this.defaultPageSize = defaultPageSize; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+
+        public int getMaxOpen() { return maxOpen; }
+        public void setMaxOpen(int maxOpen) { this.maxOpen = maxOpen; }
+    }
+
+    /** Notifiche di avanzamento dei tool ({@link AzureProgress}) */
+    public static class Progress {
+
+        /** Intervallo del messaggio "in corso" quando l'operazione non produce altri eventi; 0 = disattivato */
+        private Duration heartbeat = Duration.ofSeconds(10);
+
+        public Duration getHeartbeat() { return heartbeat; }
+        public void setHeartbeat(Duration heartbeat) { this.heartbeat = heartbeat; }
+    }
+
+    /** Operazioni asincrone ARM ({@link AzureLongRunningOperation}) e tool bulk che le eseguono */
+    public static class Operations {
+
+        /** Attesa tra due poll quando ARM non indica Retry-After */
+        private Duration pollInterval = Duration.ofSeconds(5);
+        /** Oltre questo tempo l'operazione viene riportata come TimedOut (su Azure prosegue) */
+        private Duration timeout = Duration.ofMinutes(30);
+        /** Operazioni contemporanee di un tool bulk quando la chiamata non indica concurrency */
+        private int concurrency = 10;
+        /** Attesa massima della verifica di warm-up (HTTP) dopo riavvii e swap di App Service */
+        private Duration healthCheckTimeout = Duration.ofMinutes(5);
+
+        public Duration getPollInterval() { return pollInterval; }
+        public void setPollInterval(Duration pollInterval) { this.pollInterval = pollInterval; }
+
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+
+        public int getConcurrency() { return concurrency; }
+        public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+
+        public Duration getHealthCheckTimeout() { return healthCheckTimeout; }
+        public void setHealthCheckTimeout(Duration healthCheckTimeout) { this.healthCheckTimeout = healthCheckTimeout; }
+    }
+
+    /** Cache delle credenziali kubeconfig AKS (listClusterUserCredential) */
+    public static class Aks {
+
+        private boolean credentialCacheEnabled = true;
+        /** Durata massima in cache, anche per kubeconfig senza scadenza (token statici, exec plugin) */
+        private Duration credentialCacheTtl = Duration.ofHours(1);
+        /** Anticipo sulla scadenza del certificato client oltre il quale la voce viene rinnovata */
+        private Duration credentialRefreshMargin = Duration.ofMinutes(5);
+
+        public boolean isCredentialCacheEnabled() { return credentialCacheEnabled; }
+        public void setCredentialCacheEnabled(boolean credentialCacheEnabled) { this.credentialCacheEnabled = credentialCacheEnabled; }
+
+        public Duration getCredentialCacheTtl() { return credentialCacheTtl; }
+        public void setCredentialCacheTtl(Duration credentialCacheTtl) { this.credentialCacheTtl = credentialCacheTtl; }
+
+        public Duration getCredentialRefreshMargin() { return credentialRefreshMargin; }
+        public void setCredentialRefreshMargin(Duration credentialRefreshMargin) { this.credentialRefreshMargin = credentialRefreshMargin; }
+    }
+
+    /** Limiti dei tool che leggono log di container (ACI, Container Apps) */
+    public static class Logs {
+
+        /** Righe massime restituite per chiamata */
+        private int maxLines = 500;
+        /** Byte massimi restituiti per chiamata: oltre, la lettura si interrompe */
+        private int maxBytes = 256 * 1024;
+        /** Durata massima di una lettura in follow prima di chiudere lo stream */
+        private Duration followTimeout = Duration.ofSeconds(30);
+
+        public int getMaxLines() { return maxLines; }
+        public void setMaxLines(int maxLines) { this.maxLines = maxLines; }
+
+        public int getMaxBytes() { return maxBytes; }
+        public void setMaxBytes(int maxBytes) { this.maxBytes = maxBytes; }
+
+        public Duration getFollowTimeout() { return followTimeout; }
+        public void setFollowTimeout(Duration followTimeout) { this.followTimeout = followTimeout; }
+    }
 }
@@ -0,0 +1,290 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkhead + circuit breaker per namespace del resource provider ARM
+ * (o per host, per Graph e Key Vault).
+ * Oltre il limite di concorrenza le chiamate attendono in coda fino a {@code maxWait};
+ * il posto resta occupato finché il body della risposta non è stato letto o rilasciato.
+ * Le chiamate verso un provider con circuito aperto, o rimaste in coda troppo a lungo,
+ * falliscono con {@link AzureProviderUnavailableException} senza occupare connessioni del pool condiviso.
+ */
+public class AzureProviderGuardFilter implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureProviderGuardFilter.class);
+
+    /** Chiamate ARM senza /providers/ (subscription, resource group, deployment) */
+    private static final String ARM_GENERIC_PROVIDER = "Microsoft.Resources";
+    private static final Duration BULKHEAD_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final AzureProperties.Resilience config;
+    private final Map<String, ProviderGuard> guards = new ConcurrentHashMap<>();
+
+    public AzureProviderGuardFilter(AzureProperties.Resilience config) {
+        this.config = config;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String provider = providerOf(request.url());
+        ProviderGuard guard = guards.computeIfAbsent(provider.toLowerCase(), k -> new ProviderGuard(provider));
+
+        return Mono.defer(() -> {
+            AzureProviderUnavailableException rejection = guard.checkCircuit();
+            if (rejection != null) {
+                return Mono.error(rejection);
+            }
+            Permit permit = new Permit(guard);
+            AtomicBoolean recorded = new AtomicBoolean();
+            return guard.acquire(permit)
+                    // rimasta in coda oltre maxWait: l'eventuale chiamata di prova non è partita
+                    .doOnError(e -> guard.onCancel())
+                    .then(Mono.defer(() -> {
+                        long start = System.nanoTime();
+                        return next.exchange(request)
+                                .doOnNext(r -> {
+                                    if (recorded.compareAndSet(false, true)) {
+                                        guard.onResult(isFailure(r.statusCode()) || isSlow(start));
+                                    }
+                                })
+                                .doOnError(e -> {
+                                    if (recorded.compareAndSet(false, true)) guard.onResult(true);
+                                });
+                    }))
+                    .map(response -> response.mutate().body(body -> body.doFinally(signal -> permit.release())).build())
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_COMPLETE) return;
+                        // cancellata prima della risposta: nessun esito da registrare
+                        if (signal == SignalType.CANCEL && recorded.compareAndSet(false, true)) guard.onCancel();
+                        // errore o cancellazione, anche dopo gli header e prima che il body sia letto;
+                        // il rilascio è idempotente, il doFinally del body non libera un secondo posto
+                        permit.release();
+                    });
+        });
+    }
+
+    /** Stato corrente dei circuiti, per diagnostica */
+    public Map<String, String> states() {
+        Map<String, String> states = new TreeMap<>();
+        guards.values().forEach(g -> states.put(g.provider, g.state().name()));
+        return states;
+    }
+
+    /**
+     * Namespace del provider dal path ARM: l'ultimo segmento dopo /providers/
+     * (così le extension resource come Microsoft.Insights su un sito web contano per Insights).
+     */
+    static String providerOf(URI url) {
+        String host = url.getHost() == null ? "" : url.getHost();
+        if (!host.startsWith("management.")) return host;
+        String[] parts = url.getPath().split("/");
+        String provider = ARM_GENERIC_PROVIDER;
+        for (int i = 0; i < parts.length - 1; i++) {
+            if ("providers".equalsIgnoreCase(parts[i]) && !parts[i + 1].isEmpty()) provider = parts[i + 1];
+        }
+        return provider;
+    }
+
+    private static boolean isFailure(HttpStatusCode status) {
+        return status.is5xxServerError() || status.value() == 429;
+    }
+
+    private boolean isSlow(long startNanos) {
+        return System.nanoTime() - startNanos > config.getSlowCallThreshold().toNanos();
+    }
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Posto nel bulkhead di una chiamata: in attesa, assegnato oppure concluso.
+     * Il passaggio di stato è atomico, così un posto assegnato mentre la chiamata viene
+     * cancellata torna comunque al provider.
+     */
+    private static final class Permit {
+
+        private static final int WAITING = 0;
+        private static final int HELD = 1;
+        private static final int DONE = 2;
+
+        private final ProviderGuard guard;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile MonoSink<Void> sink;
+
+        Permit(ProviderGuard guard) {
+            this.guard = guard;
+        }
+
+        boolean grant() {
+            return state.compareAndSet(WAITING, HELD);
+        }
+
+        void release() {
+            int previous = state.getAndSet(DONE);
+            if (previous == HELD) {
+                guard.release();
+            } else if (previous == WAITING) {
+                guard.dequeue(this);
+            }
+        }
+    }
+
+    private final class ProviderGuard {
+
+        private final String provider;
+        private final Deque<Permit> waiters = new ArrayDeque<>();
+        private int inFlight;
+        private final boolean[] window = new boolean[Math.max(config.getSlidingWindowSize(), 1)];
+        private int windowIndex;
+        private int windowCount;
+        private int windowFailures;
+        private State state = State.CLOSED;
+        private long openedAtNanos;
+        private boolean trialInFlight;
+
+        ProviderGuard(String provider) {
+            this.provider = provider;
+        }
+
+        /** Rifiuto se il circuito è aperto; in half-open lascia passare una sola chiamata di prova */
+        synchronized AzureProviderUnavailableException checkCircuit() {
+            if (state == State.OPEN) {
+                long elapsed = System.nanoTime() - openedAtNanos;
+                long open = config.getOpenDuration().toNanos();
+                if (elapsed < open) {
+                    return new AzureProviderUnavailableException(provider,
+                            AzureProviderUnavailableException.Reason.CIRCUIT_OPEN, Duration.ofNanos(open - elapsed));
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialInFlight) {
+                    return new AzureProviderUnavailableException(provider,
+                            AzureProviderUnavailableException.Reason.CIRCUIT_OPEN, BULKHEAD_RETRY_AFTER);
+                }
+                trialInFlight = true;
+            }
+            return null;
+        }
+
+        /** Completa quando il posto è assegnato: subito se libero, altrimenti in ordine di arrivo entro maxWait */
+        Mono<Void> acquire(Permit permit) {
+            return Mono.<Void>create(sink -> {
+                        boolean granted = false;
+                        boolean full = false;
+                        synchronized (this) {
+                            if (inFlight < config.maxConcurrentCallsFor(provider) && permit.grant()) {
+                                inFlight++;
+                                granted = true;
+                            } else if (waiters.size() >= config.getMaxQueuedCalls()) {
+                                full = true;
+                            } else {
+                                permit.sink = sink;
+                                waiters.addLast(permit);
+                            }
+                        }
+                        if (granted) {
+                            sink.success();
+                        } else if (full) {
+                            sink.error(bulkheadFull());
+                        } else {
+                            sink.onCancel(permit::release);
+                        }
+                    })
+                    .timeout(config.getMaxWait(), Mono.error(this::bulkheadFull));
+        }
+
+        /** Il posto passa alla prima chiamata in coda ancora in attesa, altrimenti torna libero */
+        void release() {
+            Permit next;
+            synchronized (this) {
+                do {
+                    next = waiters.pollFirst();
+                    if (next == null) {
+                        inFlight--;
+                        return;
+                    }
+                } while (!next.grant());
+            }
+            next.sink.success();
+        }
+
+        synchronized void dequeue(Permit permit) {
+            waiters.remove(permit);
+        }
+
+        private AzureProviderUnavailableException bulkheadFull() {
+            return new AzureProviderUnavailableException(provider,
+                    AzureProviderUnavailableException.Reason.BULKHEAD_FULL, BULKHEAD_RETRY_AFTER);
+        }
+
+        synchronized void onResult(boolean failure) {
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+                if (failure) {
+                    open();
+                } else {
+                    log.info("Circuit breaker {} chiuso", provider);
+                    state = State.CLOSED;
+                    resetWindow();
+                }
+                return;
+            }
+            if (windowCount == window.length) {
+                if (window[windowIndex]) windowFailures--;
+            } else {
+                windowCount++;
+            }
+            window[windowIndex] = failure;
+            if (failure) windowFailures++;
+            windowIndex = (windowIndex + 1) % window.length;
+
+            if (state == State.CLOSED && windowCount >= config.getMinimumCalls()
+                    && windowFailures * 100.0 / windowCount >= config.getFailureRateThreshold()) {
+                open();
+            }
+        }
+
+        synchronized void onCancel() {
+            if (state == State.HALF_OPEN) trialInFlight = false;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        private void open() {
+            log.warn("Circuit breaker {} aperto per {} s ({} fallimenti su {} chiamate)",
+                    provider, config.getOpenDuration().toSeconds(), windowFailures, windowCount);
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            resetWindow();
+        }
+
+        private void resetWindow() {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import java.time.Duration;
+
+/**
+ * Chiamata rifiutata localmente senza contattare Azure: il circuit breaker del provider
+ * è aperto oppure il bulkhead non ha liberato un posto entro l'attesa massima.
+ */
+public class AzureProviderUnavailableException extends RuntimeException {
+
+    public enum Reason { CIRCUIT_OPEN, BULKHEAD_FULL }
+
+    private final String provider;
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    public AzureProviderUnavailableException(String provider, Reason reason, Duration retryAfter) {
+        super(buildMessage(provider, reason, retryAfter), null, false, false);
+        this.provider = provider;
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getProvider() { return provider; }
+    public Reason getReason() { return reason; }
+    public Duration getRetryAfter() { return retryAfter; }
+
+    private static String buildMessage(String provider, Reason reason, Duration retryAfter) {
+        String cause = reason == Reason.CIRCUIT_OPEN
+                ? "circuit breaker aperto"
+                : "troppe chiamate concorrenti";
+        return "[" + reason + "] provider " + provider + " non disponibile (" + cause
+                + "), riprova tra " + Math.max(retryAfter.toSeconds(), 1) + " s";
+    }
+}
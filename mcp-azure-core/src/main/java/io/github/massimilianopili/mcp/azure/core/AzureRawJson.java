@@ -0,0 +1,44 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Body JSON ARM verso il risultato del tool senza decodifica in {@code Map} e successiva riserializzazione.
+ * Con una riduzione i buffer della risposta passano uno alla volta al parser non bloccante di
+ * {@link AzureOutputShape}, senza ricomporre il body; il risultato è incapsulato in {@link RawValue},
+ * che Jackson scrive così com'è nella risposta MCP.
+ */
+public final class AzureRawJson {
+
+    private AzureRawJson() {
+    }
+
+    /**
+     * GET del documento JSON all'URL indicato, ridotto secondo {@code shape}
+     * (copia in streaming token per token, nessun albero in memoria).
+     */
+    public static Mono<Object> get(WebClient webClient, String url, AzureOutputShape shape) {
+        Flux<DataBuffer> body = webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+        // senza riduzione il risultato è il body stesso: l'unica copia è la String finale
+        Mono<String> json = shape.isIdentity()
+                ? DataBufferUtils.join(body).map(buffer -> {
+                    try {
+                        return buffer.toString(StandardCharsets.UTF_8);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                : shape.apply(body);
+        return json.map(RawValue::new);
+    }
+}
@@ -17,49 +17,56 @@ public class AzureResourceGroupTools {
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
     public AzureResourceGroupTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_resource_groups",
           description = "Elenca tutti i resource group nella subscription Azure corrente")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listResourceGroups() {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> rgs = (List<Map<String, Object>>) response.get("value");
-                    return rgs.stream().map(rg -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", rg.getOrDefault("name", ""));
-                        r.put("location", rg.getOrDefault("location", ""));
-                        r.put("provisioningState", rg.containsKey("properties")
-                                ? ((Map<String, Object>) rg.get("properties")).getOrDefault("provisioningState", "")
-                                : "");
-                        r.put("tags", rg.getOrDefault("tags", Map.of()));
-                        return r;
-                    }).toList();
+    public Mono<Object> listResourceGroups(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_resource_groups", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + "/resourceGroups?api-version=" + API_VERSION)
+                .map(rg -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", rg.getOrDefault("name", ""));
+                    r.put("location", rg.getOrDefault("location", ""));
+                    r.put("provisioningState", rg.containsKey("properties")
+                            ? ((Map<String, Object>) rg.get("properties")).getOrDefault("provisioningState", "")
+                            : "");
+                    r.put("tags", rg.getOrDefault("tags", Map.of()));
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista resource group: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista resource group: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_resource_group",
           description = "Recupera i dettagli di un resource group Azure")
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getResourceGroup(
-            @ToolParam(description = "Nome del resource group") String rgName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + rgName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del resource group") String rgName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + rgName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero resource group: " + e.getMessage())));
     }
 
@@ -69,7 +76,8 @@ public class AzureResourceGroupTools {
     public Mono<Map<String, Object>> createResourceGroup(
             @ToolParam(description = "Nome del resource group") String name,
             @ToolParam(description = "Location Azure, es: italynorth, westeurope, eastus") String location,
-            @ToolParam(description = "Tag in formato chiave=valore separati da virgola, es: env=prod,team=backend", required = false) String tags) {
+            @ToolParam(description = "Tag in formato chiave=valore separati da virgola, es: env=prod,team=backend", required = false) String tags,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("location", location);
         if (tags != null && !tags.isBlank()) {
@@ -81,25 +89,26 @@ public class AzureResourceGroupTools {
             body.put("tags", tagsMap);
         }
 
-        return webClient.put()
-                .uri(props.getArmBase() + "/resourceGroups/" + name + "?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+        return fanOut.inProfile(profile, arm -> webClient.put()
+                        .uri(arm + "/resourceGroups/" + name + "?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore creazione resource group: " + e.getMessage())));
     }
 
     @ReactiveTool(name = "azure_delete_resource_group",
           description = "Elimina un resource group Azure e tutte le risorse al suo interno. Operazione asincrona.")
     public Mono<Map<String, Object>> deleteResourceGroup(
-            @ToolParam(description = "Nome del resource group da eliminare") String rgName) {
-        return webClient.delete()
-                .uri(props.getArmBase() + "/resourceGroups/" + rgName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .toBodilessEntity()
-                .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "Eliminazione avviata per: " + rgName))
+            @ToolParam(description = "Nome del resource group da eliminare") String rgName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.delete()
+                        .uri(arm + "/resourceGroups/" + rgName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .map(r -> Map.<String, Object>of("status", r.getStatusCode().value(), "message", "Eliminazione avviata per: " + rgName)))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore eliminazione resource group: " + e.getMessage())));
     }
 }
@@ -0,0 +1,170 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Paginazione lato server dei tool di lista.
+ * Alla prima chiamata con {@code pageSize} il risultato completo (già aggregato su pagine ARM e
+ * subscription) resta in memoria come snapshot; il client riceve la prima pagina e un cursore opaco
+ * con cui chiedere le successive senza che il server rifaccia le chiamate ARM.
+ * Il cursore contiene l'offset: ripetere una chiamata con lo stesso cursore restituisce la stessa pagina.
+ * Lo snapshot è legato agli argomenti della prima chiamata (profilo, subscription, filtri, formato):
+ * un cursore usato con argomenti diversi viene rifiutato, invece di restituire righe di un'altra query.
+ */
+public class AzureResultCursors {
+
+    public static final String PAGE_SIZE_PARAM =
+            "Righe per pagina: il risultato include nextCursor se ci sono altre righe; vuoto = default (tutte)";
+    public static final String CURSOR_PARAM =
+            "Cursore nextCursor restituito dalla chiamata precedente dello stesso tool, per la pagina successiva";
+
+    private final AzureProperties.Cursors config;
+    private final AzureProperties.Output output;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public AzureResultCursors(AzureProperties props) {
+        this.config = props.getCursors();
+        this.output = props.getOutput();
+    }
+
+    /** Snapshot di un risultato: righe, tool di origine, argomenti, pagina e formato della prima chiamata */
+    private static final class Snapshot {
+
+        final String tool;
+        final String args;
+        final List<Map<String, Object>> rows;
+        final int pageSize;
+        final String format;
+        volatile long expiresAtNanos;
+
+        Snapshot(String tool, String args, List<Map<String, Object>> rows, int pageSize, String format, long expiresAtNanos) {
+            this.tool = tool;
+            this.args = args;
+            this.rows = rows;
+            this.pageSize = pageSize;
+            this.format = format;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    /**
+     * Impronta degli argomenti che determinano le righe (profilo, subscription, filtri), da passare a {@link #list}.
+     * Valori vuoti e null si equivalgono; maiuscole e spazi esterni non contano.
+     */
+    public static String args(Object... values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object v : values) {
+            String s = v == null ? "" : v.toString().trim().toLowerCase(Locale.ROOT);
+            sb.append(s.length()).append(':').append(s).append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Risultato di un tool di lista, paginato se richiesto.
+     * Senza {@code pageSize}, {@code cursor} né default configurato il risultato è quello di
+     * {@link AzureListFormat#format}; con un cursore la sorgente non viene sottoscritta.
+     * {@code args} è l'impronta {@link #args} degli altri argomenti della chiamata.
+     */
+    public Mono<Object> list(String tool, String args, String format, Integer pageSize, String cursor,
+                             Mono<List<Map<String, Object>>> source) {
+        if (cursor != null && !cursor.isBlank()) {
+            return Mono.fromSupplier(() -> next(tool, args, format, pageSize, cursor.trim()));
+        }
+        int size = pageSize != null ? pageSize : config.getDefaultPageSize();
+        if (size <= 0) {
+            return AzureListFormat.format(format, output, source);
+        }
+        String fmt = formatOrDefault(format);
+        return source.<Object>map(rows -> {
+            if (rows.size() <= size) return page(rows, 0, size, fmt, null);
+            String id = open(new Snapshot(tool, args, List.copyOf(rows), size, fmt, expiry()));
+            return page(rows, 0, size, fmt, id);
+        });
+    }
+
+    private Object next(String tool, String args, String format, Integer pageSize, String cursor) {
+        String[] decoded = decode(cursor);
+        Snapshot snapshot = decoded == null ? null : snapshots.get(decoded[0]);
+        if (snapshot == null || snapshot.expiresAtNanos - System.nanoTime() < 0) {
+            if (decoded != null) snapshots.remove(decoded[0]);
+            return Map.of("error", "Cursore scaduto o sconosciuto: ripetere la chiamata senza cursor");
+        }
+        if (!snapshot.tool.equals(tool)) {
+            return Map.of("error", "Cursore emesso da " + snapshot.tool + ", non utilizzabile con " + tool);
+        }
+        String fmt = format != null && !format.isBlank() ? format.trim() : snapshot.format;
+        if (!snapshot.args.equals(args) || !snapshot.format.equalsIgnoreCase(fmt)) {
+            return Map.of("error", "Cursore emesso con argomenti diversi (profilo, subscription, filtri o formato): "
+                    + "ripetere la chiamata senza cursor");
+        }
+        int offset = Integer.parseInt(decoded[1]);
+        int size = pageSize != null && pageSize > 0 ? pageSize : snapshot.pageSize;
+        snapshot.expiresAtNanos = expiry();
+        if (offset + size >= snapshot.rows.size()) {
+            // ultima pagina: lo snapshot resta valido fino alla scadenza per eventuali ripetizioni
+            return page(snapshot.rows, offset, size, fmt, null);
+        }
+        return page(snapshot.rows, offset, size, fmt, decoded[0]);
+    }
+
+    private Map<String, Object> page(List<Map<String, Object>> rows, int offset, int size, String format, String id) {
+        int end = Math.min(offset + size, rows.size());
+        List<Map<String, Object>> slice = offset >= end ? List.of() : rows.subList(offset, end);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("items", AzureListFormat.format(format, output, slice));
+        result.put("offset", offset);
+        result.put("count", slice.size());
+        result.put("total", rows.size());
+        if (id != null) result.put("nextCursor", encode(id, end));
+        return result;
+    }
+
+    private String open(Snapshot snapshot) {
+        long now = System.nanoTime();
+        snapshots.values().removeIf(s -> s.expiresAtNanos - now < 0);
+        while (snapshots.size() >= Math.max(config.getMaxOpen(), 1)) {
+            snapshots.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().expiresAtNanos - now))
+                    .ifPresent(e -> snapshots.remove(e.getKey()));
+        }
+        String id = UUID.randomUUID().toString();
+        snapshots.put(id, snapshot);
+        return id;
+    }
+
+    private String formatOrDefault(String format) {
+        return format != null && !format.isBlank() ? format.trim() : output.getListFormat();
+    }
+
+    private long expiry() {
+        return System.nanoTime() + config.getTtl().toNanos();
+    }
+
+    private static String encode(String id, int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + ":" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** [id, offset] oppure null se il cursore non è stato emesso da questo server */
+    private static String[] decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 2);
+            if (parts.length != 2 || Integer.parseInt(parts[1]) < 0) return null;
+            return parts;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
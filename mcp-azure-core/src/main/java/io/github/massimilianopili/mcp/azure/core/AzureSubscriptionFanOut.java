@@ -0,0 +1,133 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Esegue una lista su più subscription in parallelo, con concorrenza limitata.
+ * Le righe escono in ordine di arrivo, ciascuna con il proprio {@code subscriptionId};
+ * l'errore di una subscription diventa una riga di errore e non interrompe le altre.
+ */
+public class AzureSubscriptionFanOut {
+
+    /** Valore del parametro che seleziona tutte le subscription abilitate */
+    public static final String ALL = "*";
+
+    /** Descrizione condivisa del parametro {@code subscriptions} dei tool di lista */
+    public static final String SUBSCRIPTIONS_PARAM =
+            "Subscription da interrogare: vuoto = quella configurata, '*' = tutte quelle abilitate, "
+                    + "oppure ID separati da virgola";
+
+    private static final String SUBSCRIPTIONS_API = "2022-12-01";
+
+    private final WebClient webClient;
+    private final AzureProperties props;
+    private final AzureProfileRegistry profiles;
+    private final Map<String, CachedSubscriptions> cache = new ConcurrentHashMap<>();
+
+    public AzureSubscriptionFanOut(WebClient webClient, AzureProperties props, AzureProfileRegistry profiles) {
+        this.webClient = webClient;
+        this.props = props;
+        this.profiles = profiles;
+    }
+
+    /** Come {@link #fanOut(String, String, Function)} con il profilo di default */
+    public Mono<List<Map<String, Object>>> fanOut(String subscriptions,
+                                                  Function<String, Mono<List<Map<String, Object>>>> perSubscription) {
+        return fanOut(null, subscriptions, perSubscription);
+    }
+
+    /**
+     * Applica {@code perSubscription} alle subscription selezionate, con le credenziali del profilo indicato.
+     * Con parametro vuoto interroga solo la subscription del profilo e lascia le righe invariate.
+     */
+    public Mono<List<Map<String, Object>>> fanOut(String profile, String subscriptions,
+                                                  Function<String, Mono<List<Map<String, Object>>>> perSubscription) {
+        return Mono.defer(() -> {
+                    String defaultSubscription = profiles.resolve(profile).getSubscriptionId();
+                    if (subscriptions == null || subscriptions.isBlank()) {
+                        return perSubscription.apply(defaultSubscription);
+                    }
+                    return resolve(profile, subscriptions)
+                            .flatMapMany(ids -> {
+                                AtomicInteger done = new AtomicInteger();
+                                return Flux.fromIterable(ids)
+                                        .flatMap(id -> Mono.defer(() -> perSubscription.apply(id))
+                                                .onErrorResume(e -> Mono.just(List.of(Map.of("error", String.valueOf(e.getMessage())))))
+                                                .flatMap(rows -> AzureProgress.report("subscription completate: "
+                                                        + done.incrementAndGet() + "/" + ids.size()).thenReturn(rows))
+                                                .flatMapIterable(rows -> tag(id, rows)),
+                                                Math.max(props.getFanOut().getConcurrency(), 1));
+                            })
+                            .collectList();
+                })
+                .contextWrite(AzureProfileRegistry.withProfile(profile))
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore fan-out subscription: " + e.getMessage()))));
+    }
+
+    /**
+     * Esegue una chiamata singola con le credenziali del profilo indicato:
+     * {@code call} riceve la base URL ARM della subscription del profilo.
+     * Un profilo sconosciuto diventa un errore del Mono restituito.
+     */
+    public <T> Mono<T> inProfile(String profile, Function<String, Mono<T>> call) {
+        return Mono.defer(() -> call.apply(props.getArmBase(profiles.resolve(profile).getSubscriptionId())))
+                .contextWrite(AzureProfileRegistry.withProfile(profile));
+    }
+
+    /** ID delle subscription indicate: "*" per tutte quelle abilitate, altrimenti lista separata da virgola */
+    public Mono<List<String>> resolve(String profile, String subscriptions) {
+        if (ALL.equals(subscriptions.trim())) {
+            return listEnabledSubscriptions(profile);
+        }
+        return Mono.just(Arrays.stream(subscriptions.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .toList());
+    }
+
+    /**
+     * Subscription in stato Enabled visibili al principal del profilo,
+     * in cache per {@code subscription-cache-ttl}.
+     */
+    public Mono<List<String>> listEnabledSubscriptions(String profile) {
+        String name = AzureProfileRegistry.normalize(profile);
+        CachedSubscriptions cached = cache.get(name);
+        if (cached != null && cached.isValid()) {
+            return Mono.just(cached.ids);
+        }
+        return AzureArmPaging.items(webClient, "https://management.azure.com/subscriptions?api-version=" + SUBSCRIPTIONS_API)
+                .filter(s -> "Enabled".equalsIgnoreCase(String.valueOf(s.getOrDefault("state", ""))))
+                .map(s -> String.valueOf(s.get("subscriptionId")))
+                .collectList()
+                .doOnNext(ids -> cache.put(name, new CachedSubscriptions(ids,
+                        Instant.now().plus(props.getFanOut().getSubscriptionCacheTtl()))))
+                .contextWrite(AzureProfileRegistry.withProfile(profile));
+    }
+
+    private static List<Map<String, Object>> tag(String subscriptionId, List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("subscriptionId", subscriptionId);
+            r.putAll(row);
+            return r;
+        }).toList();
+    }
+
+    private record CachedSubscriptions(List<String> ids, Instant expiresAt) {
+        boolean isValid() {
+            return Instant.now().isBefore(expiresAt);
+        }
+    }
+}
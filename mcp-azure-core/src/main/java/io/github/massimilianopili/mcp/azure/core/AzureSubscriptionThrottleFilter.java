@@ -0,0 +1,112 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Budget di throttling separato per ogni profilo e subscription ARM.
+ * Le letture consumano un token dal bucket della propria subscription (attendendo se vuoto);
+ * un 429 con Retry-After sospende solo quella subscription, le altre proseguono.
+ */
+public class AzureSubscriptionThrottleFilter implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureSubscriptionThrottleFilter.class);
+
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 5;
+
+    private final AzureProperties.Throttling config;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    public AzureSubscriptionThrottleFilter(AzureProperties.Throttling config) {
+        this.config = config;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String subscriptionId = subscriptionOf(request.url());
+        if (subscriptionId == null) {
+            return next.exchange(request);
+        }
+        boolean read = HttpMethod.GET.equals(request.method()) || HttpMethod.HEAD.equals(request.method());
+
+        return Mono.deferContextual(ctx -> {
+            // ARM applica i limiti per principal e subscription: il profilo fa parte della chiave
+            String key = AzureProfileRegistry.currentProfile(ctx) + "|" + subscriptionId.toLowerCase();
+            Budget budget = budgets.computeIfAbsent(key, k -> new Budget());
+            long waitNanos = budget.reserve(read);
+            Mono<ClientResponse> call = next.exchange(request)
+                    .doOnNext(r -> {
+                        if (r.statusCode().value() == 429) budget.block(subscriptionId, retryAfterSeconds(r));
+                    });
+            return waitNanos > 0 ? Mono.delay(Duration.ofNanos(waitNanos)).then(call) : call;
+        });
+    }
+
+    /** ID subscription dal path ARM /subscriptions/{id}/..., null per le chiamate fuori subscription */
+    static String subscriptionOf(URI url) {
+        if (url.getHost() == null || !url.getHost().startsWith("management.")) return null;
+        String[] parts = url.getPath().split("/");
+        for (int i = 0; i < parts.length - 1; i++) {
+            if ("subscriptions".equalsIgnoreCase(parts[i]) && !parts[i + 1].isEmpty()) return parts[i + 1];
+        }
+        return null;
+    }
+
+    private static long retryAfterSeconds(ClientResponse response) {
+        List<String> values = response.headers().header("Retry-After");
+        if (!values.isEmpty()) {
+            try {
+                return Math.max(Long.parseLong(values.get(0).trim()), 1);
+            } catch (NumberFormatException ignored) {
+                // formato HTTP-date: si usa il default
+            }
+        }
+        return DEFAULT_RETRY_AFTER_SECONDS;
+    }
+
+    private final class Budget {
+
+        private double tokens = config.getBurst();
+        private long lastRefillNanos = System.nanoTime();
+        private long blockedUntilNanos;
+
+        /**
+         * Prenota una chiamata e restituisce l'attesa in nanosecondi.
+         * I token possono andare in negativo: le chiamate in coda si distribuiscono nel tempo.
+         */
+        synchronized long reserve(boolean read) {
+            long now = System.nanoTime();
+            long wait = Math.max(blockedUntilNanos - now, 0);
+            if (!read) return wait;
+
+            double rate = Math.max(config.getReadsPerSecond(), 0.001);
+            tokens = Math.min(config.getBurst(), tokens + (now - lastRefillNanos) * rate / 1_000_000_000.0);
+            lastRefillNanos = now;
+            tokens -= 1;
+            if (tokens < 0) {
+                wait = Math.max(wait, (long) (-tokens / rate * 1_000_000_000.0));
+            }
+            return wait;
+        }
+
+        synchronized void block(String subscriptionId, long seconds) {
+            long until = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+            if (until > blockedUntilNanos) {
+                blockedUntilNanos = until;
+                log.warn("Subscription {} in throttling ARM (429), pausa di {} s", subscriptionId, seconds);
+            }
+        }
+    }
+}
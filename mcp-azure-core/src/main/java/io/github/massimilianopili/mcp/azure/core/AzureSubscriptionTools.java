@@ -14,18 +14,22 @@ public class AzureSubscriptionTools {
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureProfileRegistry profiles;
 
     public AzureSubscriptionTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureProfileRegistry profiles) {
         this.webClient = webClient;
         this.props = props;
+        this.profiles = profiles;
     }
 
     @ReactiveTool(name = "azure_list_subscriptions",
           description = "Elenca tutte le subscription Azure accessibili con il Service Principal configurato")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listSubscriptions() {
+    public Mono<List<Map<String, Object>>> listSubscriptions(
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
         return webClient.get()
                 .uri("https://management.azure.com/subscriptions?api-version=2022-12-01")
                 .retrieve()
@@ -42,6 +46,7 @@ public class AzureSubscriptionTools {
                         return r;
                     }).toList();
                 })
+                .contextWrite(AzureProfileRegistry.withProfile(profile))
                 .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista subscription: " + e.getMessage()))));
     }
 
@@ -49,13 +54,33 @@ public class AzureSubscriptionTools {
           description = "Recupera i dettagli della subscription Azure corrente configurata")
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getSubscription(
-            @ToolParam(description = "ID subscription (lascia vuoto per usare quella configurata)", required = false) String subscriptionId) {
-        String subId = (subscriptionId != null && !subscriptionId.isBlank()) ? subscriptionId : props.getSubscriptionId();
-        return webClient.get()
-                .uri("https://management.azure.com/subscriptions/" + subId + "?api-version=2022-12-01")
-                .retrieve()
-                .bodyToMono(Map.class)
+            @ToolParam(description = "ID subscription (lascia vuoto per usare quella configurata)", required = false) String subscriptionId,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return Mono.defer(() -> {
+                    String subId = (subscriptionId != null && !subscriptionId.isBlank())
+                            ? subscriptionId : profiles.resolve(profile).getSubscriptionId();
+                    return webClient.get()
+                            .uri("https://management.azure.com/subscriptions/" + subId + "?api-version=2022-12-01")
+                            .retrieve()
+                            .bodyToMono(Map.class);
+                })
                 .map(r -> (Map<String, Object>) r)
+                .contextWrite(AzureProfileRegistry.withProfile(profile))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero subscription: " + e.getMessage())));
     }
+
+    @ReactiveTool(name = "azure_list_profiles",
+          description = "Elenca i profili di credenziali Azure configurati (tenant, client, subscription di default) con le metriche di utilizzo")
+    public Mono<List<Map<String, Object>>> listProfiles() {
+        return Mono.fromSupplier(() -> profiles.names().stream().map(name -> {
+            AzureProperties.Profile p = profiles.resolve(name);
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("profile", name);
+            r.put("tenantId", p.getTenantId() != null ? p.getTenantId() : "");
+            r.put("clientId", p.getClientId() != null ? p.getClientId() : "");
+            r.put("subscriptionId", p.getSubscriptionId() != null ? p.getSubscriptionId() : "");
+            r.put("stats", profiles.stats(name).toMap());
+            return r;
+        }).toList());
+    }
 }
@@ -0,0 +1,163 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File cifrato con i token OAuth2 ancora validi, condivisibile tra processi.
+ * Formato: magic | salt PBKDF2 | IV | JSON cifrato con AES-GCM.
+ * Ogni scrittura rilegge il file, unisce le voci e lo sostituisce con un move atomico,
+ * così repliche concorrenti non lasciano mai un file parziale.
+ */
+public class AzureTokenCacheStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureTokenCacheStore.class);
+
+    private static final byte[] MAGIC = "MCPAZTC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int SALT_LENGTH = 16;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int PBKDF2_ITERATIONS = 210_000;
+
+    /** Token salvato con il principal che l'ha ottenuto, per scartarlo se le credenziali cambiano */
+    public record Entry(String key, String tenantId, String clientId, String accessToken, long expiresAtEpochMs) {
+    }
+
+    private final Path file;
+    private final char[] passphrase;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SecureRandom random = new SecureRandom();
+    private byte[] salt;
+    private SecretKey key;
+
+    public AzureTokenCacheStore(Path file, String passphrase) {
+        this.file = file;
+        this.passphrase = passphrase.toCharArray();
+    }
+
+    /** Voci non scadute presenti su disco; file assente o illeggibile = nessuna voce */
+    public synchronized List<Entry> load() {
+        return List.copyOf(readValid().values());
+    }
+
+    /** Unisce le voci con quelle su disco (vince la scadenza più lontana) e riscrive il file */
+    public synchronized void save(List<Entry> entries) {
+        Map<String, Entry> merged = readValid();
+        for (Entry e : entries) {
+            Entry current = merged.get(e.key());
+            if (current == null || current.expiresAtEpochMs() < e.expiresAtEpochMs()) {
+                merged.put(e.key(), e);
+            }
+        }
+        try {
+            write(List.copyOf(merged.values()));
+        } catch (IOException | GeneralSecurityException ex) {
+            log.warn("Impossibile salvare la cache token in {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private Map<String, Entry> readValid() {
+        Map<String, Entry> result = new LinkedHashMap<>();
+        if (!Files.isRegularFile(file)) return result;
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            byte[] magic = new byte[MAGIC.length];
+            buf.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                log.warn("Cache token {} in formato non riconosciuto, ignorata", file);
+                return result;
+            }
+            byte[] fileSalt = new byte[SALT_LENGTH];
+            byte[] iv = new byte[IV_LENGTH];
+            buf.get(fileSalt);
+            buf.get(iv);
+            byte[] cipherText = new byte[buf.remaining()];
+            buf.get(cipherText);
+
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, keyFor(fileSalt), new GCMParameterSpec(TAG_BITS, iv));
+            List<Entry> entries = mapper.readValue(cipher.doFinal(cipherText), new TypeReference<List<Entry>>() { });
+
+            long now = System.currentTimeMillis();
+            for (Entry e : entries) {
+                if (e.expiresAtEpochMs() > now) result.put(e.key(), e);
+            }
+        } catch (IOException | GeneralSecurityException | RuntimeException ex) {
+            // passphrase cambiata o file corrotto: verrà sovrascritto al prossimo salvataggio
+            log.warn("Cache token {} non leggibile, ignorata: {}", file, ex.getMessage());
+        }
+        return result;
+    }
+
+    private void write(List<Entry> entries) throws IOException, GeneralSecurityException {
+        if (salt == null) {
+            salt = new byte[SALT_LENGTH];
+            random.nextBytes(salt);
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, keyFor(salt), new GCMParameterSpec(TAG_BITS, iv));
+        byte[] cipherText = cipher.doFinal(mapper.writeValueAsBytes(entries));
+
+        ByteBuffer out = ByteBuffer.allocate(MAGIC.length + SALT_LENGTH + IV_LENGTH + cipherText.length);
+        out.put(MAGIC).put(salt).put(iv).put(cipherText);
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, ".token-cache", ".tmp");
+        try {
+            restrictPermissions(tmp);
+            Files.write(tmp, out.array());
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** La derivazione PBKDF2 è costosa: la chiave resta in memoria finché il salt non cambia */
+    private SecretKey keyFor(byte[] fileSalt) throws GeneralSecurityException {
+        if (key == null || !Arrays.equals(salt, fileSalt)) {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            byte[] raw = factory.generateSecret(new PBEKeySpec(passphrase, fileSalt, PBKDF2_ITERATIONS, 256)).getEncoded();
+            key = new SecretKeySpec(raw, "AES");
+            salt = fileSalt.clone();
+        }
+        return key;
+    }
+
+    private static void restrictPermissions(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // filesystem non POSIX (es: Windows)
+        }
+    }
+}
@@ -5,14 +5,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gestisce i token OAuth2 per Azure (ARM, Graph, Key Vault).
- * Cache per scope con refresh anticipato di 5 minuti prima della scadenza.
+ * Cache per profilo e scope con refresh anticipato di 5 minuti prima della scadenza;
+ * opzionalmente persistita su file cifrato per sopravvivere ai riavvii.
  */
 public class AzureTokenService {
 
@@ -28,41 +32,97 @@ public class AzureTokenService {
     private static final int REFRESH_BUFFER_SECONDS = 300;
 
     private final WebClient tokenWebClient;
-    private final AzureProperties props;
+    private final AzureProfileRegistry profiles;
+    private final AzureTokenCacheStore store;
     private final Map<String, CachedToken> tokenCache = new ConcurrentHashMap<>();
 
-    public AzureTokenService(WebClient tokenWebClient, AzureProperties props) {
+    public AzureTokenService(WebClient tokenWebClient, AzureProfileRegistry profiles) {
+        this(tokenWebClient, profiles, null);
+    }
+
+    public AzureTokenService(WebClient tokenWebClient, AzureProfileRegistry profiles, AzureTokenCacheStore store) {
         this.tokenWebClient = tokenWebClient;
-        this.props = props;
+        this.profiles = profiles;
+        this.store = store;
+    }
+
+    /**
+     * Ricarica dal file cifrato i token ancora validi.
+     * Le voci di profili rimossi o con tenant/client diversi da quelli configurati vengono scartate.
+     */
+    public void restore() {
+        if (store == null) return;
+        int restored = 0;
+        for (AzureTokenCacheStore.Entry e : store.load()) {
+            String name = e.key().substring(0, Math.max(e.key().indexOf('|'), 0));
+            if (!profiles.names().contains(name)) continue;
+            AzureProperties.Profile p = profiles.resolve(name);
+            if (!e.tenantId().equals(p.getTenantId()) || !e.clientId().equals(p.getClientId())) continue;
+            CachedToken token = new CachedToken(e.accessToken(), Instant.ofEpochMilli(e.expiresAtEpochMs()));
+            if (token.isValid()) {
+                tokenCache.put(e.key(), token);
+                restored++;
+            }
+        }
+        log.info("Cache token Azure: {} token ripristinati da disco", restored);
     }
 
     /**
-     * Restituisce un access token valido per il dato scope.
+     * Restituisce un access token valido per il dato scope, con il profilo di default.
+     */
+    public Mono<String> getToken(String scope) {
+        return getToken(AzureProfileRegistry.DEFAULT_PROFILE, scope);
+    }
+
+    /**
+     * Restituisce un access token valido per il profilo e lo scope indicati.
      * Ricicla il token dalla cache se non è prossimo alla scadenza.
      */
     @SuppressWarnings("unchecked")
-    public Mono<String> getToken(String scope) {
-        CachedToken cached = tokenCache.get(scope);
+    public Mono<String> getToken(String profile, String scope) {
+        String name = AzureProfileRegistry.normalize(profile);
+        String key = name + "|" + scope;
+        CachedToken cached = tokenCache.get(key);
         if (cached != null && cached.isValid()) {
             return Mono.just(cached.accessToken);
         }
 
-        return tokenWebClient.post()
-                .uri(props.getTokenUrl())
-                .body(BodyInserters.fromFormData("client_id", props.getClientId())
-                        .with("client_secret", props.getClientSecret())
-                        .with("grant_type", "client_credentials")
-                        .with("scope", scope))
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    String token = (String) response.get("access_token");
-                    int expiresIn = (int) response.getOrDefault("expires_in", 3600);
-                    Instant expiry = Instant.now().plusSeconds(expiresIn - REFRESH_BUFFER_SECONDS);
-                    tokenCache.put(scope, new CachedToken(token, expiry));
-                    log.debug("Token Azure acquisito per scope {}, scade tra {} s", scope, expiresIn - REFRESH_BUFFER_SECONDS);
-                    return token;
-                });
+        return Mono.defer(() -> {
+            AzureProperties.Profile p = profiles.resolve(name);
+            return tokenWebClient.post()
+                    .uri(p.getTokenUrl())
+                    .body(BodyInserters.fromFormData("client_id", p.getClientId())
+                            .with("client_secret", p.getClientSecret())
+                            .with("grant_type", "client_credentials")
+                            .with("scope", scope))
+                    .retrieve()
+                    .bodyToMono(Map.class);
+        }).map(response -> {
+            String token = (String) response.get("access_token");
+            int expiresIn = (int) response.getOrDefault("expires_in", 3600);
+            Instant expiry = Instant.now().plusSeconds(expiresIn - REFRESH_BUFFER_SECONDS);
+            tokenCache.put(key, new CachedToken(token, expiry));
+            profiles.stats(name).tokensAcquired.incrementAndGet();
+            log.debug("Token Azure acquisito per profilo {} scope {}, scade tra {} s", name, scope, expiresIn - REFRESH_BUFFER_SECONDS);
+            persist();
+            return token;
+        });
+    }
+
+    /** Salva in background i token validi: la cifratura e l'I/O non bloccano la chiamata */
+    private void persist() {
+        if (store == null) return;
+        List<AzureTokenCacheStore.Entry> entries = new ArrayList<>();
+        tokenCache.forEach((key, token) -> {
+            if (!token.isValid()) return;
+            AzureProperties.Profile p = profiles.resolve(key.substring(0, key.indexOf('|')));
+            if (p.getTenantId() == null || p.getClientId() == null) return;
+            entries.add(new AzureTokenCacheStore.Entry(key, p.getTenantId(), p.getClientId(),
+                    token.accessToken, token.expiresAt.toEpochMilli()));
+        });
+        Mono.fromRunnable(() -> store.save(entries))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> log.warn("Salvataggio cache token Azure fallito: {}", e.getMessage()));
     }
 
     private static class CachedToken {
@@ -0,0 +1,52 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+
+/**
+ * Argomenti di una chiamata tool (JSON già deserializzato), con conversioni
+ * verso i tipi dei parametri usate dagli indici generati.
+ * Gli argomenti assenti valgono null, o 0/false per i tipi primitivi.
+ */
+public final class AzureToolArgs {
+
+    private final Map<String, Object> values;
+    private final ObjectMapper mapper;
+
+    public AzureToolArgs(Map<String, Object> values, ObjectMapper mapper) {
+        this.values = values == null ? Map.of() : values;
+        this.mapper = mapper;
+    }
+
+    public String string(String name) {
+        Object v = values.get(name);
+        return v == null ? null : v.toString();
+    }
+
+    public int intValue(String name) {
+        Object v = values.get(name);
+        return v == null ? 0 : v instanceof Number n ? n.intValue() : Integer.parseInt(v.toString().trim());
+    }
+
+    public long longValue(String name) {
+        Object v = values.get(name);
+        return v == null ? 0L : v instanceof Number n ? n.longValue() : Long.parseLong(v.toString().trim());
+    }
+
+    public double doubleValue(String name) {
+        Object v = values.get(name);
+        return v == null ? 0.0 : v instanceof Number n ? n.doubleValue() : Double.parseDouble(v.toString().trim());
+    }
+
+    public boolean booleanValue(String name) {
+        Object v = values.get(name);
+        return v instanceof Boolean b ? b : v != null && Boolean.parseBoolean(v.toString().trim());
+    }
+
+    /** Conversione generica via Jackson (tipi wrapper, liste, oggetti) */
+    public <T> T get(String name, Class<T> type) {
+        Object v = values.get(name);
+        return v == null ? null : mapper.convertValue(v, type);
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Metadati di un tool ({@code @ReactiveTool}) letti a compile time,
+ * con un invoker che chiama il metodo senza reflection.
+ */
+public record AzureToolDescriptor(String name, String description, Class<?> beanType,
+                                  List<Param> params, Invoker invoker) {
+
+    /** Parametro del tool; {@code type} è il tipo JSON Schema (string, integer, number, boolean, array, object) */
+    public record Param(String name, String type, String description, boolean required) {
+    }
+
+    @FunctionalInterface
+    public interface Invoker {
+        Mono<?> invoke(Object bean, AzureToolArgs args);
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Allowlist/denylist dei tool per nome, con pattern glob ({@code *}, {@code ?}).
+ * Include vuoto = tutti i tool; exclude vince su include.
+ */
+public final class AzureToolFilter {
+
+    private final List<Pattern> include;
+    private final List<Pattern> exclude;
+
+    public AzureToolFilter(List<String> include, List<String> exclude) {
+        this.include = compile(include);
+        this.exclude = compile(exclude);
+    }
+
+    /**
+     * Legge {@code mcp.azure.tools.include/exclude} direttamente dall'Environment:
+     * serve prima del binding di {@link AzureProperties}, nei post-processor delle bean definition.
+     */
+    public static AzureToolFilter from(Environment env) {
+        Binder binder = Binder.get(env);
+        return new AzureToolFilter(
+                binder.bind("mcp.azure.tools.include", Bindable.listOf(String.class)).orElse(List.of()),
+                binder.bind("mcp.azure.tools.exclude", Bindable.listOf(String.class)).orElse(List.of()));
+    }
+
+    public boolean isEnabled(String toolName) {
+        if (exclude.stream().anyMatch(p -> p.matcher(toolName).matches())) return false;
+        return include.isEmpty() || include.stream().anyMatch(p -> p.matcher(toolName).matches());
+    }
+
+    /** Nessun filtro configurato: tutti i tool abilitati */
+    public boolean isEmpty() {
+        return include.isEmpty() && exclude.isEmpty();
+    }
+
+    private static List<Pattern> compile(List<String> globs) {
+        return globs.stream()
+                .map(String::trim)
+                .filter(g -> !g.isEmpty())
+                .map(g -> Pattern.compile(("\\Q" + g + "\\E").replace("*", "\\E.*\\Q").replace("?", "\\E.\\Q"),
+                        Pattern.CASE_INSENSITIVE))
+                .toList();
+    }
+}
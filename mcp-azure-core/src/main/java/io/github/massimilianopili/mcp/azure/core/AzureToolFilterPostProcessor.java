@@ -0,0 +1,105 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.core.NativeDetector;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Applica {@code mcp.azure.tools.include/exclude}.
+ * <ul>
+ *   <li>le classi tool con tutti i tool esclusi non vengono registrate come bean;</li>
+ *   <li>con {@code mcp.azure.tool-index.enabled} le classi tool restanti diventano lazy: le istanzia
+ *       {@link AzureIndexedToolCallbackProvider} alla prima chiamata di uno dei loro tool;</li>
+ *   <li>i {@link ToolCallbackProvider} vengono filtrati, così i tool esclusi non sono pubblicati al client MCP.
+ *       Il provider non viene sostituito: un proxy della stessa classe filtra {@code getToolCallbacks},
+ *       quindi il bean resta iniettabile e ispezionabile col suo tipo concreto.
+ *       In un'immagine nativa, dove non si generano classi a runtime, il proxy espone solo {@link ToolCallbackProvider}.</li>
+ * </ul>
+ * Le classi tool e i nomi dei tool vengono letti dagli indici generati a compile time, senza reflection.
+ */
+public class AzureToolFilterPostProcessor implements BeanDefinitionRegistryPostProcessor, BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureToolFilterPostProcessor.class);
+
+    private final AzureToolFilter filter;
+    private final boolean lazyTools;
+
+    public AzureToolFilterPostProcessor(AzureToolFilter filter, boolean lazyTools) {
+        this.filter = filter;
+        this.lazyTools = lazyTools;
+    }
+
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+        // classe tool -> nomi dei suoi tool
+        Map<String, List<String>> toolsByClass = new HashMap<>();
+        for (AzureToolIndex index : ServiceLoader.load(AzureToolIndex.class, AzureToolIndex.class.getClassLoader())) {
+            for (AzureToolDescriptor d : index.tools()) {
+                toolsByClass.computeIfAbsent(d.beanType().getName(), k -> new ArrayList<>()).add(d.name());
+            }
+        }
+        int removed = 0;
+        int lazy = 0;
+        for (String beanName : registry.getBeanDefinitionNames()) {
+            BeanDefinition bd = registry.getBeanDefinition(beanName);
+            List<String> tools = toolsByClass.get(bd.getBeanClassName());
+            if (tools == null) continue;
+            if (tools.stream().noneMatch(filter::isEnabled)) {
+                registry.removeBeanDefinition(beanName);
+                removed++;
+            } else if (lazyTools) {
+                // senza la scansione reflection nessuno le richiede all'avvio
+                bd.setLazyInit(true);
+                lazy++;
+            }
+        }
+        log.info("Tool Azure: {} classi escluse, {} lazy", removed, lazy);
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (filter.isEmpty() || !(bean instanceof ToolCallbackProvider provider)) return bean;
+        if (bean instanceof AzureIndexedToolCallbackProvider) return bean;
+        // le classi parzialmente escluse restano registrate: i loro tool esclusi si tolgono qui
+        ProxyFactory factory = new ProxyFactory(provider);
+        if (NativeDetector.inNativeImage()) {
+            factory.setInterfaces(ToolCallbackProvider.class);
+        } else {
+            factory.setProxyTargetClass(!Modifier.isFinal(bean.getClass().getModifiers()));
+        }
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            Object result = invocation.proceed();
+            return "getToolCallbacks".equals(invocation.getMethod().getName())
+                    && result instanceof ToolCallback[] callbacks ? enabled(callbacks) : result;
+        });
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private ToolCallback[] enabled(ToolCallback[] callbacks) {
+        return Arrays.stream(callbacks)
+                .filter(c -> filter.isEnabled(c.getToolDefinition().name()))
+                .toArray(ToolCallback[]::new);
+    }
+}
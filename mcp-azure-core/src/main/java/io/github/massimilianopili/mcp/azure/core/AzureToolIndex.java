@@ -0,0 +1,12 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import java.util.List;
+
+/**
+ * Indice statico dei tool di un package, generato a compile time da mcp-azure-processor
+ * e caricato con {@link java.util.ServiceLoader}.
+ */
+public interface AzureToolIndex {
+
+    List<AzureToolDescriptor> tools();
+}
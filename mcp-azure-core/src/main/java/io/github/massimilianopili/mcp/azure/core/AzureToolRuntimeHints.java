@@ -0,0 +1,49 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.ServiceLoader;
+
+/**
+ * Hint GraalVM per i tool di un modulo: classi tool (introspezione {@code @ReactiveTool}
+ * di spring-ai-reactive-tools), indice generato e relativo service file.
+ * Le classi tool vengono lette dall'indice generato, durante l'elaborazione AOT sulla JVM.
+ * Ogni modulo ne registra una sottoclasse con il proprio package.
+ */
+public abstract class AzureToolRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final String toolPackage;
+
+    protected AzureToolRuntimeHints(String toolPackage) {
+        this.toolPackage = toolPackage;
+    }
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern("META-INF/services/" + AzureToolIndex.class.getName());
+        hints.reflection().registerType(TypeReference.of(toolPackage + ".GeneratedAzureToolIndex"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        for (AzureToolIndex index : ServiceLoader.load(AzureToolIndex.class, classLoader)) {
+            for (AzureToolDescriptor d : index.tools()) {
+                if (!d.beanType().getPackageName().equals(toolPackage)) continue;
+                hints.reflection().registerType(d.beanType(),
+                        MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+        }
+        registerModuleHints(hints, classLoader);
+    }
+
+    /** Hint aggiuntivi specifici del modulo */
+    protected void registerModuleHints(RuntimeHints hints, ClassLoader classLoader) {
+    }
+
+    /** Record deserializzati da Jackson, inclusi i tipi annidati */
+    protected static void registerDtos(RuntimeHints hints, Class<?>... types) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), types);
+    }
+}
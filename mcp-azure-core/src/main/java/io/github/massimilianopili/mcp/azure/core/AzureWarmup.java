@@ -0,0 +1,102 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+
+/**
+ * Warm-up eseguito su {@link ApplicationReadyEvent}: acquisisce i token di tutti i profili
+ * e scope e apre in anticipo connessioni (DNS + TLS) nel pool condiviso.
+ * Il listener è bloccante: Spring Boot pubblica ReadinessState.ACCEPTING_TRAFFIC
+ * solo al termine dei listener, quindi la probe di readiness resta negativa fino a warm-up concluso.
+ */
+public class AzureWarmup implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(AzureWarmup.class);
+
+    private static final List<String> SCOPES = List.of(
+            AzureTokenService.ARM_SCOPE, AzureTokenService.GRAPH_SCOPE, AzureTokenService.KV_SCOPE);
+
+    /** Host comuni a tutti i profili; i vault Key Vault hanno host propri e restano a freddo */
+    private static final List<String> HOSTS = List.of(
+            "https://login.microsoftonline.com/",
+            "https://management.azure.com/",
+            "https://graph.microsoft.com/");
+
+    private final AzureProperties.Warmup config;
+    private final AzureTokenService tokenService;
+    private final AzureProfileRegistry profiles;
+    private final AzureSubscriptionFanOut fanOut;
+    private final WebClient rawWebClient;
+
+    public AzureWarmup(AzureProperties props, AzureTokenService tokenService, AzureProfileRegistry profiles,
+                       AzureSubscriptionFanOut fanOut, ConnectionProvider connectionProvider) {
+        this.config = props.getWarmup();
+        this.tokenService = tokenService;
+        this.profiles = profiles;
+        this.fanOut = fanOut;
+        // senza filtri: le richieste di warm-up non consumano budget di throttling né posti del bulkhead
+        this.rawWebClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!config.isEnabled()) return;
+        long start = System.nanoTime();
+        try {
+            Mono.when(tokens(), connections(), primeSubscriptions()).block(config.getTimeout());
+            log.info("Warm-up Azure completato in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // un warm-up incompleto non deve impedire l'avvio: le chiamate successive pagano il costo a freddo
+            log.warn("Warm-up Azure interrotto dopo {} ms: {}", (System.nanoTime() - start) / 1_000_000, e.getMessage());
+        }
+    }
+
+    private Mono<Void> tokens() {
+        return Flux.fromIterable(profiles.names())
+                .flatMap(profile -> Flux.fromIterable(SCOPES)
+                        .flatMap(scope -> tokenService.getToken(profile, scope)
+                                .onErrorResume(e -> {
+                                    log.warn("Warm-up: token non acquisito per profilo {} scope {}: {}", profile, scope, e.getMessage());
+                                    return Mono.empty();
+                                })))
+                .then();
+    }
+
+    /** Richieste HEAD concorrenti: ognuna occupa una connessione, che poi torna al pool già stabilita */
+    private Mono<Void> connections() {
+        int n = Math.max(config.getConnections(), 0);
+        return Flux.fromIterable(HOSTS)
+                .flatMap(host -> Flux.range(0, n)
+                        .flatMap(i -> rawWebClient.head().uri(host)
+                                .exchangeToMono(r -> r.releaseBody())
+                                .onErrorResume(e -> {
+                                    log.debug("Warm-up: connessione a {} fallita: {}", host, e.getMessage());
+                                    return Mono.empty();
+                                })))
+                .then();
+    }
+
+    private Mono<Void> primeSubscriptions() {
+        if (!config.isPrimeSubscriptions()) return Mono.empty();
+        return Flux.fromIterable(profiles.names())
+                .flatMap(profile -> fanOut.listEnabledSubscriptions(profile)
+                        .doOnNext(ids -> log.info("Warm-up: {} subscription abilitate per profilo {}", ids.size(), profile))
+                        .onErrorResume(e -> {
+                            log.warn("Warm-up: subscription non caricate per profilo {}: {}", profile, e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureArmResourceTest {
+
+    private static final String VM_TYPE = "Microsoft.Compute/virtualMachines";
+
+    @Test
+    void acceptsResourceOfGivenTypeIgnoringCase() {
+        assertTrue(AzureArmResource.isOfType("/subscriptions/s1/resourceGroups/rg/providers/Microsoft.Compute/virtualMachines/vm1", VM_TYPE));
+        assertTrue(AzureArmResource.isOfType("/SUBSCRIPTIONS/s1/resourcegroups/rg/providers/microsoft.compute/VIRTUALMACHINES/vm1", VM_TYPE));
+    }
+
+    @Test
+    void rejectsOtherTypesChildrenAndMalformedIds() {
+        assertFalse(AzureArmResource.isOfType("/subscriptions/s1/resourceGroups/rg/providers/Microsoft.Compute/disks/d1", VM_TYPE));
+        assertFalse(AzureArmResource.isOfType("/subscriptions/s1/resourceGroups/rg/providers/Microsoft.Compute/virtualMachineScaleSets/ss/virtualMachines/0", VM_TYPE));
+        assertFalse(AzureArmResource.isOfType("/subscriptions/s1/resourceGroups/rg/providers/Microsoft.Compute/virtualMachines/vm1/extensions/e1", VM_TYPE));
+        assertFalse(AzureArmResource.isOfType("/subscriptions/s1/resourceGroups/rg/providers/Microsoft.Compute/virtualMachines/", VM_TYPE));
+        assertFalse(AzureArmResource.isOfType("/subscriptions/s1/resourceGroups/rg/providers/Microsoft.Compute/virtualMachines/vm1?x=1", VM_TYPE));
+        assertFalse(AzureArmResource.isOfType("subscriptions/s1/resourceGroups/rg/providers/Microsoft.Compute/virtualMachines/vm1", VM_TYPE));
+        assertFalse(AzureArmResource.isOfType("https://evil.example/x", VM_TYPE));
+        assertFalse(AzureArmResource.isOfType(null, VM_TYPE));
+    }
+
+    @Test
+    void resourceGroupIsReadFromId() {
+        assertEquals("rg", AzureArmResource.resourceGroupOf("/subscriptions/s1/resourceGroups/rg/providers/Microsoft.Web/sites/app"));
+        assertEquals("", AzureArmResource.resourceGroupOf("/subscriptions/s1"));
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureHedgingFilterTest {
+
+    /** Campioni necessari: il percentile viene calcolato ogni 64 richieste */
+    private static final int WARMUP = 64;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void hedgeAnswersWhenPrimaryHangs() {
+        AzureHedgingFilter filter = new AzureHedgingFilter(config(5.0));
+        ExchangeFunction next = exchange(n -> n == WARMUP + 1 ? Mono.never() : ok());
+        warmUp(filter, next);
+
+        ClientResponse response = filter.filter(get(), next).block(Duration.ofSeconds(2));
+
+        assertEquals(HttpStatus.OK, response.statusCode());
+        assertEquals(WARMUP + 2, calls.get());
+    }
+
+    @Test
+    void losingResponseArrivedLateIsReleased() throws InterruptedException {
+        AtomicBoolean released = new AtomicBoolean();
+        AzureHedgingFilter filter = new AzureHedgingFilter(config(5.0));
+        ExchangeFunction next = exchange(n -> n == WARMUP + 1 ? late(150, released) : ok());
+        warmUp(filter, next);
+
+        filter.filter(get(), next).block(Duration.ofSeconds(2));
+        Thread.sleep(250);
+
+        assertTrue(released.get());
+    }
+
+    @Test
+    void noHedgeWithoutBudget() {
+        AzureHedgingFilter filter = new AzureHedgingFilter(config(0.0));
+        ExchangeFunction next = exchange(n -> n > WARMUP ? slow(150) : ok());
+        warmUp(filter, next);
+
+        filter.filter(get(), next).block(Duration.ofSeconds(2));
+
+        assertEquals(WARMUP + 1, calls.get());
+    }
+
+    @Test
+    void budgetLimitsHedgesToPercentOfGets() {
+        // 5% di 64 GET = 3,2 crediti: solo le prime tre richieste lente ottengono un hedge
+        AzureHedgingFilter filter = new AzureHedgingFilter(config(5.0));
+        ExchangeFunction next = exchange(n -> n > WARMUP ? slow(60) : ok());
+        warmUp(filter, next);
+
+        for (int i = 0; i < 5; i++) {
+            filter.filter(get(), next).block(Duration.ofSeconds(2));
+        }
+
+        assertEquals(WARMUP + 5 + 3, calls.get());
+    }
+
+    @Test
+    void nonGetRequestsAreNeverHedged() {
+        AzureHedgingFilter filter = new AzureHedgingFilter(config(100.0));
+        ExchangeFunction next = exchange(n -> n > WARMUP ? slow(100) : ok());
+        warmUp(filter, next);
+
+        ClientRequest post = ClientRequest.create(HttpMethod.POST, URI.create("https://management.azure.com/x/start")).build();
+        filter.filter(post, next).block(Duration.ofSeconds(2));
+
+        assertEquals(WARMUP + 1, calls.get());
+    }
+
+    private static AzureProperties.Hedging config(double budgetPercent) {
+        AzureProperties.Hedging config = new AzureProperties.Hedging();
+        config.setEnabled(true);
+        config.setBudgetPercent(budgetPercent);
+        config.setMinSamples(WARMUP);
+        config.setWindowSize(WARMUP);
+        config.setMinDelay(Duration.ofMillis(20));
+        return config;
+    }
+
+    private void warmUp(AzureHedgingFilter filter, ExchangeFunction next) {
+        for (int i = 0; i < WARMUP; i++) {
+            filter.filter(get(), next).block(Duration.ofSeconds(1));
+        }
+    }
+
+    private ExchangeFunction exchange(IntFunction<Mono<ClientResponse>> responses) {
+        return request -> responses.apply(calls.incrementAndGet());
+    }
+
+    private static ClientRequest get() {
+        return ClientRequest.create(HttpMethod.GET, URI.create("https://management.azure.com/subscriptions/s/resourceGroups")).build();
+    }
+
+    private static Mono<ClientResponse> ok() {
+        return Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK).build());
+    }
+
+    /** Risposta che ignora la cancellazione, come una già in volo quando vince l'hedge */
+    private static Mono<ClientResponse> late(long millis, AtomicBoolean released) {
+        Flux<DataBuffer> body = Flux.<DataBuffer>empty().doOnSubscribe(s -> released.set(true));
+        return Mono.create(sink -> Mono.delay(Duration.ofMillis(millis))
+                .subscribe(t -> sink.success(ClientResponse.create(HttpStatus.OK).body(body).build())));
+    }
+
+    private static Mono<ClientResponse> slow(long millis) {
+        return Mono.delay(Duration.ofMillis(millis)).map(t -> ClientResponse.create(HttpStatus.OK).build());
+    }
+}
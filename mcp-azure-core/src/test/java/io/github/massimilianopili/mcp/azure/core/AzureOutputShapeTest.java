@@ -0,0 +1,114 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureOutputShapeTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String VM = """
+            {"name":"vm1","location":"westeurope",
+             "properties":{"provisioningState":"Succeeded","hardwareProfile":{"vmSize":"Standard_D2s_v3"},
+                           "storageProfile":{"dataDisks":[{"lun":0},{"lun":1},{"lun":2},{"lun":3}]}}}
+            """;
+
+    @Test
+    void fieldsKeepSelectedPathsOnly() throws Exception {
+        JsonNode result = shape(new AzureOutputShape(List.of("name", "properties.hardwareProfile.vmSize"), 0, 0, 0, false), VM);
+
+        assertEquals("vm1", result.path("name").asText());
+        assertEquals("Standard_D2s_v3", result.path("properties").path("hardwareProfile").path("vmSize").asText());
+        assertFalse(result.has("location"));
+        assertFalse(result.path("properties").has("provisioningState"));
+    }
+
+    @Test
+    void maxDepthReplacesDeeperValues() throws Exception {
+        JsonNode result = shape(new AzureOutputShape(List.of(), 2, 0, 0, false), VM);
+
+        assertEquals("{...}", result.path("properties").path("hardwareProfile").asText());
+        assertEquals("Succeeded", result.path("properties").path("provisioningState").asText());
+    }
+
+    @Test
+    void maxItemsCountsOmittedElements() throws Exception {
+        JsonNode disks = shape(new AzureOutputShape(List.of(), 0, 2, 0, false), VM)
+                .path("properties").path("storageProfile").path("dataDisks");
+
+        assertEquals(3, disks.size());
+        assertEquals("... altri 2 elementi omessi (totale 4)", disks.get(2).asText());
+    }
+
+    @Test
+    void maxBytesTruncatesOversizedScalar() throws Exception {
+        String json = "{\"name\":\"vm1\",\"customData\":\"" + "x".repeat(10_000) + "\",\"location\":\"westeurope\"}";
+        AzureOutputShape shape = new AzureOutputShape(List.of(), 0, 0, 200, false);
+
+        String result = shape.apply(json);
+
+        // oltre il budget solo segnaposto e delimitatori di chiusura
+        assertTrue(result.getBytes(StandardCharsets.UTF_8).length <= 200 + 120, result);
+        JsonNode node = MAPPER.readTree(result);
+        assertTrue(node.path("customData").asText().endsWith("... [troncato, 10000 caratteri]"));
+        assertFalse(node.has("location"));
+        assertTrue(node.has(AzureOutputShape.TRUNCATED_FIELD));
+    }
+
+    @Test
+    void maxBytesBoundsManySmallFields() throws Exception {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ",").append("\"tag").append(i).append("\":\"value").append(i).append('"');
+        }
+        String result = new AzureOutputShape(List.of(), 0, 0, 512, false).apply(json.append('}').toString());
+
+        assertTrue(result.getBytes(StandardCharsets.UTF_8).length <= 512 + 80, result);
+        assertTrue(MAPPER.readTree(result).has(AzureOutputShape.TRUNCATED_FIELD));
+    }
+
+    @Test
+    void prefixLengthCountsUtf8Bytes() {
+        assertEquals(2, AzureOutputShape.prefixLength("àèì", 5));
+        assertEquals(3, AzureOutputShape.prefixLength("abc", 10));
+        assertEquals(0, AzureOutputShape.prefixLength("😀", 3));
+    }
+
+    @Test
+    void dataBuffersSplitAnywhereGiveSameResultAsString() throws Exception {
+        String json = VM.replace("vm1", "vm-àèì-😀");
+        AzureOutputShape shape = new AzureOutputShape(List.of("name", "properties"), 3, 1, 0, true);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        // buffer da 7 byte: token e caratteri multibyte spezzati tra un buffer e l'altro
+        Flux<DataBuffer> buffers = Flux.range(0, (bytes.length + 6) / 7)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, i * 7, Math.min(bytes.length, i * 7 + 7))));
+
+        assertEquals(shape.apply(json), shape.apply(buffers).block());
+        assertEquals("vm-àèì-😀", shape(shape, json).path("name").asText());
+    }
+
+    @Test
+    void defaultsLeaveOutputUnchanged() {
+        AzureOutputShape shape = AzureOutputShape.defaults(new AzureProperties.Output());
+
+        assertTrue(shape.isIdentity());
+        assertEquals(VM, shape.apply(VM));
+    }
+
+    private static JsonNode shape(AzureOutputShape shape, String json) throws Exception {
+        return MAPPER.readTree(shape.apply(json));
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureProgressTest {
+
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private final List<Double> values = new CopyOnWriteArrayList<>();
+
+    private final AzureProgress.Listener listener = (progress, total, message) -> {
+        values.add(progress);
+        messages.add(message);
+    };
+
+    @Test
+    void toolContextListenerReceivesReportsAndHeartbeat() {
+        AzureIndexedToolCallbackProvider.IndexedToolCallback callback = callback(Duration.ofMillis(40),
+                Mono.deferContextual(ctx -> {
+                    AzureProgress.report(ctx, "pagine lette: 1, 10 elementi");
+                    return Mono.delay(Duration.ofMillis(200)).thenReturn("ok");
+                }));
+
+        String result = callback.callAsync("{}", new ToolContext(Map.of(AzureProgress.TOOL_CONTEXT_KEY, listener)))
+                .block(Duration.ofSeconds(2));
+
+        assertEquals("\"ok\"", result);
+        assertEquals("pagine lette: 1, 10 elementi", messages.get(0));
+        assertTrue(messages.size() >= 3, messages.toString());
+        assertTrue(messages.subList(1, messages.size()).stream().allMatch(m -> m.startsWith("in corso da")));
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i + 1.0, values.get(i));
+        }
+    }
+
+    @Test
+    void heartbeatStopsWhenCallCompletes() throws InterruptedException {
+        AzureIndexedToolCallbackProvider.IndexedToolCallback callback = callback(Duration.ofMillis(30),
+                Mono.delay(Duration.ofMillis(100)).thenReturn("ok"));
+
+        callback.callAsync("{}", new ToolContext(Map.of(AzureProgress.TOOL_CONTEXT_KEY, listener))).block(Duration.ofSeconds(2));
+        int afterCall = messages.size();
+        Thread.sleep(120);
+
+        assertEquals(afterCall, messages.size());
+    }
+
+    @Test
+    void callWithoutListenerIsNotAffected() {
+        AzureIndexedToolCallbackProvider.IndexedToolCallback callback = callback(Duration.ofMillis(20),
+                Mono.deferContextual(ctx -> {
+                    AzureProgress.report(ctx, "ignorato");
+                    return Mono.delay(Duration.ofMillis(60)).thenReturn("ok");
+                }));
+
+        assertEquals("\"ok\"", callback.callAsync("{}", new ToolContext(Map.of())).block(Duration.ofSeconds(2)));
+        assertEquals("\"ok\"", callback.callAsync("{}", new ToolContext(Map.of(AzureProgress.TOOL_CONTEXT_KEY, "altro")))
+                .block(Duration.ofSeconds(2)));
+        assertEquals("\"ok\"", callback.callAsync("{}", null).block(Duration.ofSeconds(2)));
+        assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    void failingListenerDoesNotFailTheTool() {
+        AzureProgress.Listener broken = (progress, total, message) -> {
+            throw new IllegalStateException("client disconnesso");
+        };
+        AzureIndexedToolCallbackProvider.IndexedToolCallback callback = callback(Duration.ofMillis(20),
+                Mono.deferContextual(ctx -> {
+                    AzureProgress.report(ctx, "subscription completate: 1/2");
+                    return Mono.delay(Duration.ofMillis(60)).thenReturn("ok");
+                }));
+
+        assertEquals("\"ok\"", callback.callAsync("{}", new ToolContext(Map.of(AzureProgress.TOOL_CONTEXT_KEY, broken)))
+                .block(Duration.ofSeconds(2)));
+    }
+
+    @Test
+    void pagesReportRunningTotals() {
+        Flux.just(List.of(1, 2, 3), List.of(4, 5))
+                .as(pages -> AzureProgress.pages(pages, List::size))
+                .contextWrite(AzureProgress.withListener(listener))
+                .blockLast(Duration.ofSeconds(1));
+
+        assertEquals(List.of("pagine lette: 1, 3 elementi", "pagine lette: 2, 5 elementi"), messages);
+    }
+
+    /** Callback dell'indice per un bean fittizio, con l'invoker che restituisce {@code call} */
+    private static AzureIndexedToolCallbackProvider.IndexedToolCallback callback(Duration heartbeat, Mono<?> call) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("probe", new Probe());
+        AzureIndexedToolCallbackProvider provider = new AzureIndexedToolCallbackProvider(beanFactory,
+                AzureProgressTest.class.getClassLoader(), new AzureToolFilter(List.of(), List.of()), heartbeat);
+        AzureToolDescriptor descriptor = new AzureToolDescriptor("azure_probe", "probe", Probe.class, List.of(),
+                (bean, args) -> call);
+        return provider.new IndexedToolCallback(descriptor);
+    }
+
+    static final class Probe {
+    }
+}
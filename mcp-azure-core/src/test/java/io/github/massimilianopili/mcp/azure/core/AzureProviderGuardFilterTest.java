@@ -0,0 +1,151 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AzureProviderGuardFilterTest {
+
+    private static final String COMPUTE = "https://management.azure.com/subscriptions/s/providers/Microsoft.Compute/virtualMachines";
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void providerIsLastNamespaceInArmPath() {
+        assertEquals("Microsoft.Insights", AzureProviderGuardFilter.providerOf(URI.create(
+                "https://management.azure.com/subscriptions/s/resourceGroups/rg/providers/Microsoft.Web/sites/app/providers/Microsoft.Insights/diagnosticSettings")));
+        assertEquals("Microsoft.Resources", AzureProviderGuardFilter.providerOf(URI.create(
+                "https://management.azure.com/subscriptions/s/resourceGroups")));
+        assertEquals("graph.microsoft.com", AzureProviderGuardFilter.providerOf(URI.create("https://graph.microsoft.com/v1.0/users")));
+    }
+
+    @Test
+    void queuedCallProceedsWhenBodyIsConsumed() {
+        AzureProviderGuardFilter filter = new AzureProviderGuardFilter(config(1, Duration.ofSeconds(5)));
+        ExchangeFunction next = exchange(HttpStatus.OK);
+
+        ClientResponse first = filter.filter(get(), next).block(Duration.ofSeconds(1));
+        AtomicReference<ClientResponse> second = new AtomicReference<>();
+        Disposable waiting = filter.filter(get(), next).subscribe(second::set);
+
+        // headers arrivati ma body non letto: il posto è ancora occupato
+        assertEquals(1, calls.get());
+        assertNull(second.get());
+
+        assertEquals("ok", first.bodyToMono(String.class).block(Duration.ofSeconds(1)));
+
+        assertEquals(2, calls.get());
+        assertNotNull(second.get());
+        waiting.dispose();
+    }
+
+    @Test
+    void waitingCallFailsWithBulkheadFullAfterMaxWait() {
+        AzureProviderGuardFilter filter = new AzureProviderGuardFilter(config(1, Duration.ofMillis(50)));
+        ExchangeFunction next = exchange(HttpStatus.OK);
+        filter.filter(get(), next).block(Duration.ofSeconds(1));
+
+        AzureProviderUnavailableException e = assertThrows(AzureProviderUnavailableException.class,
+                () -> filter.filter(get(), next).block(Duration.ofSeconds(1)));
+
+        assertEquals(AzureProviderUnavailableException.Reason.BULKHEAD_FULL, e.getReason());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void cancelledWaiterDoesNotKeepItsPlace() {
+        AzureProviderGuardFilter filter = new AzureProviderGuardFilter(config(1, Duration.ofSeconds(5)));
+        ExchangeFunction next = exchange(HttpStatus.OK);
+        ClientResponse first = filter.filter(get(), next).block(Duration.ofSeconds(1));
+
+        filter.filter(get(), next).subscribe().dispose();
+        first.releaseBody().block(Duration.ofSeconds(1));
+
+        // il posto liberato non va alla chiamata cancellata
+        filter.filter(get(), next).block(Duration.ofSeconds(1));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void cancelAfterHeadersReleasesThePlace() {
+        AzureProviderGuardFilter filter = new AzureProviderGuardFilter(config(1, Duration.ofMillis(200)));
+        // header arrivati ma la risposta non completa: il chiamante cancella prima di leggere il body
+        ExchangeFunction hanging = request -> Mono.fromDirect(exchange(HttpStatus.OK).exchange(request).concatWith(Mono.never()));
+        filter.filter(get(), hanging).subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnNext(ClientResponse value) {
+                cancel();
+            }
+        });
+
+        filter.filter(get(), exchange(HttpStatus.OK)).block(Duration.ofSeconds(1));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void circuitOpensAfterFailureRateAndRejectsWithoutCalling() {
+        AzureProviderGuardFilter filter = new AzureProviderGuardFilter(config(10, Duration.ofSeconds(1)));
+        ExchangeFunction failing = exchange(HttpStatus.SERVICE_UNAVAILABLE);
+        for (int i = 0; i < 4; i++) {
+            filter.filter(get(), failing).flatMap(ClientResponse::releaseBody).block(Duration.ofSeconds(1));
+        }
+
+        AzureProviderUnavailableException e = assertThrows(AzureProviderUnavailableException.class,
+                () -> filter.filter(get(), failing).block(Duration.ofSeconds(1)));
+
+        assertEquals(AzureProviderUnavailableException.Reason.CIRCUIT_OPEN, e.getReason());
+        assertEquals(4, calls.get());
+        assertEquals("OPEN", filter.states().get("Microsoft.Compute"));
+    }
+
+    @Test
+    void successfulTrialClosesCircuit() throws InterruptedException {
+        AzureProperties.Resilience config = config(10, Duration.ofSeconds(1));
+        config.setOpenDuration(Duration.ofMillis(50));
+        AzureProviderGuardFilter filter = new AzureProviderGuardFilter(config);
+        for (int i = 0; i < 4; i++) {
+            filter.filter(get(), exchange(HttpStatus.SERVICE_UNAVAILABLE)).flatMap(ClientResponse::releaseBody).block(Duration.ofSeconds(1));
+        }
+        Thread.sleep(80);
+
+        filter.filter(get(), exchange(HttpStatus.OK)).flatMap(ClientResponse::releaseBody).block(Duration.ofSeconds(1));
+
+        assertEquals("CLOSED", filter.states().get("Microsoft.Compute"));
+    }
+
+    private static AzureProperties.Resilience config(int maxConcurrentCalls, Duration maxWait) {
+        AzureProperties.Resilience config = new AzureProperties.Resilience();
+        config.setMaxConcurrentCalls(maxConcurrentCalls);
+        config.setMaxWait(maxWait);
+        config.setSlidingWindowSize(4);
+        config.setMinimumCalls(4);
+        return config;
+    }
+
+    private ExchangeFunction exchange(HttpStatus status) {
+        return request -> Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return ClientResponse.create(status).body("ok").build();
+        });
+    }
+
+    private static ClientRequest get() {
+        return ClientRequest.create(HttpMethod.GET, URI.create(COMPUTE)).build();
+    }
+}
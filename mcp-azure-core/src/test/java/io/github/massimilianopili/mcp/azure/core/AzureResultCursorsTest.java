@@ -0,0 +1,159 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureResultCursorsTest {
+
+    private static final String TOOL = "azure_list_vms";
+    private static final String ARGS = AzureResultCursors.args("prod", "s1,s2", null);
+
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    @Test
+    void cursorWalksPagesWithoutResubscribing() {
+        AzureResultCursors cursors = cursors(Duration.ofMinutes(5), 10);
+
+        Map<String, Object> first = page(cursors.list(TOOL, ARGS, null, 4, null, source(10)));
+        Map<String, Object> second = page(cursors.list(TOOL, ARGS, null, null, cursor(first), source(10)));
+        Map<String, Object> last = page(cursors.list(TOOL, ARGS, null, null, cursor(second), source(10)));
+
+        assertEquals(List.of("vm0", "vm1", "vm2", "vm3"), names(first));
+        assertEquals(List.of("vm4", "vm5", "vm6", "vm7"), names(second));
+        assertEquals(List.of("vm8", "vm9"), names(last));
+        assertNull(last.get("nextCursor"));
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void sameCursorReturnsSamePage() {
+        AzureResultCursors cursors = cursors(Duration.ofMinutes(5), 10);
+        String next = cursor(page(cursors.list(TOOL, ARGS, null, 3, null, source(9))));
+
+        Map<String, Object> once = page(cursors.list(TOOL, ARGS, null, null, next, source(9)));
+        Map<String, Object> again = page(cursors.list(TOOL, ARGS, null, null, next, source(9)));
+
+        assertEquals(names(once), names(again));
+    }
+
+    @Test
+    void cursorExpiresAfterTtl() throws InterruptedException {
+        AzureResultCursors cursors = cursors(Duration.ofMillis(50), 10);
+        String next = cursor(page(cursors.list(TOOL, ARGS, null, 2, null, source(5))));
+
+        Thread.sleep(120);
+
+        assertTrue(error(cursors.list(TOOL, ARGS, null, null, next, source(5))).startsWith("Cursore scaduto"));
+    }
+
+    @Test
+    void readingACursorExtendsItsTtl() throws InterruptedException {
+        AzureResultCursors cursors = cursors(Duration.ofMillis(300), 10);
+        String next = cursor(page(cursors.list(TOOL, ARGS, null, 1, null, source(5))));
+
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(150);
+            Map<String, Object> page = page(cursors.list(TOOL, ARGS, null, null, next, source(5)));
+            assertFalse(page.containsKey("error"));
+        }
+    }
+
+    @Test
+    void oldestCursorIsEvictedBeyondMaxOpen() {
+        AzureResultCursors cursors = cursors(Duration.ofMinutes(5), 2);
+        String first = cursor(page(cursors.list(TOOL, ARGS, null, 1, null, source(3))));
+        String second = cursor(page(cursors.list(TOOL, ARGS, null, 1, null, source(3))));
+        String third = cursor(page(cursors.list(TOOL, ARGS, null, 1, null, source(3))));
+
+        assertTrue(error(cursors.list(TOOL, ARGS, null, null, first, source(3))).startsWith("Cursore scaduto"));
+        assertEquals(List.of("vm1"), names(page(cursors.list(TOOL, ARGS, null, null, second, source(3)))));
+        assertEquals(List.of("vm1"), names(page(cursors.list(TOOL, ARGS, null, null, third, source(3)))));
+    }
+
+    @Test
+    void cursorOfAnotherToolIsRejected() {
+        AzureResultCursors cursors = cursors(Duration.ofMinutes(5), 10);
+        String next = cursor(page(cursors.list(TOOL, ARGS, null, 2, null, source(5))));
+
+        assertEquals("Cursore emesso da azure_list_vms, non utilizzabile con azure_list_disks",
+                error(cursors.list("azure_list_disks", ARGS, null, null, next, source(5))));
+    }
+
+    @Test
+    void cursorWithOtherArgumentsIsRejected() {
+        AzureResultCursors cursors = cursors(Duration.ofMinutes(5), 10);
+        String next = cursor(page(cursors.list(TOOL, ARGS, null, 2, null, source(5))));
+
+        assertTrue(error(cursors.list(TOOL, AzureResultCursors.args("prod", "s1", null), null, null, next, source(5)))
+                .startsWith("Cursore emesso con argomenti diversi"));
+        assertTrue(error(cursors.list(TOOL, AzureResultCursors.args(null, "s1,s2", null), null, null, next, source(5)))
+                .startsWith("Cursore emesso con argomenti diversi"));
+        assertTrue(error(cursors.list(TOOL, ARGS, AzureListFormat.TABLE, null, next, source(5)))
+                .startsWith("Cursore emesso con argomenti diversi"));
+        // stessi argomenti, a meno di maiuscole e spazi, e formato esplicito uguale al default
+        assertEquals(List.of("vm2", "vm3"), names(page(cursors.list(TOOL, AzureResultCursors.args(" PROD", "s1,s2 ", ""),
+                AzureListFormat.ROWS, null, next, source(5)))));
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void forgedCursorIsUnknown() {
+        AzureResultCursors cursors = cursors(Duration.ofMinutes(5), 10);
+
+        assertTrue(error(cursors.list(TOOL, ARGS, null, null, "non-un-cursore", source(5))).startsWith("Cursore scaduto"));
+        assertEquals(0, subscriptions.get());
+    }
+
+    @Test
+    void smallResultOpensNoCursor() {
+        AzureResultCursors cursors = cursors(Duration.ofMinutes(5), 10);
+
+        Map<String, Object> page = page(cursors.list(TOOL, ARGS, null, 10, null, source(3)));
+
+        assertEquals(3, page.get("total"));
+        assertNull(page.get("nextCursor"));
+    }
+
+    private static AzureResultCursors cursors(Duration ttl, int maxOpen) {
+        AzureProperties props = new AzureProperties();
+        props.getCursors().setTtl(ttl);
+        props.getCursors().setMaxOpen(maxOpen);
+        return new AzureResultCursors(props);
+    }
+
+    private Mono<List<Map<String, Object>>> source(int rows) {
+        return Mono.fromSupplier(() -> {
+            subscriptions.incrementAndGet();
+            return IntStream.range(0, rows).<Map<String, Object>>mapToObj(i -> Map.of("name", "vm" + i)).toList();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> page(Mono<Object> result) {
+        return (Map<String, Object>) result.block();
+    }
+
+    private static String cursor(Map<String, Object> page) {
+        return (String) page.get("nextCursor");
+    }
+
+    private static String error(Mono<Object> result) {
+        return (String) page(result).get("error");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> names(Map<String, Object> page) {
+        return ((List<Map<String, Object>>) page.get("items")).stream().map(r -> (String) r.get("name")).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureSubscriptionThrottleFilterTest {
+
+    private static final ExchangeFunction OK = request -> Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK).build());
+
+    @Test
+    void subscriptionIsTakenFromArmPathOnly() {
+        assertEquals("s1", AzureSubscriptionThrottleFilter.subscriptionOf(URI.create("https://management.azure.com/subscriptions/s1/resourceGroups")));
+        assertNull(AzureSubscriptionThrottleFilter.subscriptionOf(URI.create("https://management.azure.com/providers/Microsoft.Compute/operations")));
+        assertNull(AzureSubscriptionThrottleFilter.subscriptionOf(URI.create("https://graph.microsoft.com/v1.0/subscriptions/s1")));
+    }
+
+    @Test
+    void readsBeyondBurstWaitForRefill() {
+        // burst 2 a 10 letture/s: la terza lettura attende ~100 ms
+        AzureSubscriptionThrottleFilter filter = new AzureSubscriptionThrottleFilter(config(10.0, 2));
+
+        // riscaldamento su un'altra subscription, che ha un bucket proprio
+        for (int i = 0; i < 3; i++) elapsedMillis(filter, request(HttpMethod.GET, "s0"), OK);
+
+        long burst = elapsedMillis(filter, request(HttpMethod.GET, "s1"), OK)
+                + elapsedMillis(filter, request(HttpMethod.GET, "s1"), OK);
+        long third = elapsedMillis(filter, request(HttpMethod.GET, "s1"), OK);
+
+        assertTrue(third >= 70);
+        assertTrue(burst < third);
+    }
+
+    @Test
+    void writesDoNotConsumeReadTokens() {
+        AzureSubscriptionThrottleFilter filter = new AzureSubscriptionThrottleFilter(config(1.0, 1));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(elapsedMillis(filter, request(HttpMethod.POST, "s1"), OK) < 50);
+        }
+        assertTrue(elapsedMillis(filter, request(HttpMethod.GET, "s1"), OK) < 50);
+    }
+
+    @Test
+    void retryAfterPausesOnlyThrottledSubscription() {
+        AzureSubscriptionThrottleFilter filter = new AzureSubscriptionThrottleFilter(config(100.0, 100));
+        ExchangeFunction throttled = request -> Mono.fromSupplier(() ->
+                ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").build());
+
+        filter.filter(request(HttpMethod.GET, "s1"), throttled).block(Duration.ofSeconds(1));
+
+        assertTrue(elapsedMillis(filter, request(HttpMethod.GET, "s2"), OK) < 50);
+        assertTrue(elapsedMillis(filter, request(HttpMethod.POST, "s1"), OK) >= 800);
+    }
+
+    @Test
+    void profilesHaveSeparateBudgets() {
+        AzureSubscriptionThrottleFilter filter = new AzureSubscriptionThrottleFilter(config(100.0, 100));
+        ExchangeFunction throttled = request -> Mono.fromSupplier(() ->
+                ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").build());
+
+        filter.filter(request(HttpMethod.GET, "s1"), throttled)
+                .contextWrite(AzureProfileRegistry.withProfile("prod"))
+                .block(Duration.ofSeconds(1));
+
+        assertTrue(elapsedMillis(filter, request(HttpMethod.GET, "s1"), OK) < 50);
+    }
+
+    private static AzureProperties.Throttling config(double readsPerSecond, int burst) {
+        AzureProperties.Throttling config = new AzureProperties.Throttling();
+        config.setReadsPerSecond(readsPerSecond);
+        config.setBurst(burst);
+        return config;
+    }
+
+    private static long elapsedMillis(AzureSubscriptionThrottleFilter filter, ClientRequest request, ExchangeFunction next) {
+        long start = System.nanoTime();
+        filter.filter(request, next).block(Duration.ofSeconds(5));
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
+
+    private static ClientRequest request(HttpMethod method, String subscriptionId) {
+        return ClientRequest.create(method, URI.create("https://management.azure.com/subscriptions/" + subscriptionId + "/resourceGroups")).build();
+    }
+}
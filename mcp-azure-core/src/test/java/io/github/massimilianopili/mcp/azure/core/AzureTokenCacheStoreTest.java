@@ -0,0 +1,99 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureTokenCacheStoreTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    private final Path file = tempFile();
+
+    @Test
+    void entriesSurviveAcrossInstancesWithSamePassphrase() {
+        new AzureTokenCacheStore(file, "segreto").save(List.of(entry("default|arm", "token-1", HOUR)));
+
+        List<AzureTokenCacheStore.Entry> loaded = new AzureTokenCacheStore(file, "segreto").load();
+
+        assertEquals(1, loaded.size());
+        assertEquals("token-1", loaded.get(0).accessToken());
+        assertEquals("tenant", loaded.get(0).tenantId());
+    }
+
+    @Test
+    void fileDoesNotContainPlainTextTokens() throws IOException {
+        new AzureTokenCacheStore(file, "segreto").save(List.of(entry("default|arm", "token-in-chiaro", HOUR)));
+
+        String raw = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+
+        assertTrue(raw.startsWith("MCPAZTC1"));
+        assertFalse(raw.contains("token-in-chiaro"));
+        assertFalse(raw.contains("default|arm"));
+    }
+
+    @Test
+    void wrongPassphraseYieldsEmptyCache() {
+        new AzureTokenCacheStore(file, "segreto").save(List.of(entry("default|arm", "token-1", HOUR)));
+
+        assertTrue(new AzureTokenCacheStore(file, "altro").load().isEmpty());
+    }
+
+    @Test
+    void tamperedFileIsIgnored() throws IOException {
+        new AzureTokenCacheStore(file, "segreto").save(List.of(entry("default|arm", "token-1", HOUR)));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        // il tag GCM non corrisponde più: nessuna voce, nessuna eccezione
+        assertTrue(new AzureTokenCacheStore(file, "segreto").load().isEmpty());
+    }
+
+    @Test
+    void expiredEntriesAreDropped() {
+        AzureTokenCacheStore store = new AzureTokenCacheStore(file, "segreto");
+        store.save(List.of(entry("default|arm", "vecchio", -1_000), entry("default|graph", "valido", HOUR)));
+
+        List<AzureTokenCacheStore.Entry> loaded = store.load();
+
+        assertEquals(1, loaded.size());
+        assertEquals("default|graph", loaded.get(0).key());
+    }
+
+    @Test
+    void saveMergesWithFileAndKeepsLaterExpiry() {
+        AzureTokenCacheStore first = new AzureTokenCacheStore(file, "segreto");
+        AzureTokenCacheStore second = new AzureTokenCacheStore(file, "segreto");
+        first.save(List.of(entry("default|arm", "lungo", 2 * HOUR), entry("default|graph", "graph", HOUR)));
+
+        // un'altra replica salva un token più vecchio per la stessa chiave: resta quello più lungo
+        second.save(List.of(entry("default|arm", "breve", HOUR)));
+
+        List<AzureTokenCacheStore.Entry> loaded = first.load();
+        assertEquals(2, loaded.size());
+        assertEquals("lungo", loaded.stream().filter(e -> e.key().equals("default|arm")).findFirst().orElseThrow().accessToken());
+    }
+
+    private static AzureTokenCacheStore.Entry entry(String key, String token, long ttlMs) {
+        return new AzureTokenCacheStore.Entry(key, "tenant", "client", token, System.currentTimeMillis() + ttlMs);
+    }
+
+    private static Path tempFile() {
+        try {
+            Path dir = Files.createTempDirectory("token-cache");
+            dir.toFile().deleteOnExit();
+            return dir.resolve("tokens.bin");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
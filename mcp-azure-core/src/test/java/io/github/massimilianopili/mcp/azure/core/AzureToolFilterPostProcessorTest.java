@@ -0,0 +1,145 @@
+package io.github.massimilianopili.mcp.azure.core;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AzureToolFilterPostProcessorTest {
+
+    @Test
+    void filteredProviderKeepsConcreteType() {
+        AzureToolFilterPostProcessor processor = processor(List.of(), List.of("azure_delete_*"));
+        NamedProvider provider = new NamedProvider("azure_list_vms", "azure_delete_vm");
+
+        Object result = processor.postProcessAfterInitialization(provider, "provider");
+
+        NamedProvider proxy = assertInstanceOf(NamedProvider.class, result);
+        assertEquals(List.of("azure_list_vms"), names(proxy));
+        assertEquals("provider", proxy.label());
+    }
+
+    @Test
+    void finalProviderIsFilteredThroughInterface() {
+        AzureToolFilterPostProcessor processor = processor(List.of("azure_list_*"), List.of());
+        ToolCallbackProvider provider = new FinalProvider();
+
+        Object result = processor.postProcessAfterInitialization(provider, "provider");
+
+        assertEquals(List.of("azure_list_vms"), names(assertInstanceOf(ToolCallbackProvider.class, result)));
+    }
+
+    @Test
+    void noFilterLeavesBeanUntouched() {
+        AzureToolFilterPostProcessor processor = processor(List.of(), List.of());
+        NamedProvider provider = new NamedProvider("azure_delete_vm");
+
+        assertSame(provider, processor.postProcessAfterInitialization(provider, "provider"));
+    }
+
+    @Test
+    void otherBeansAreNotProxied() {
+        AzureToolFilterPostProcessor processor = processor(List.of(), List.of("azure_delete_*"));
+        Object bean = new Object();
+
+        assertSame(bean, processor.postProcessAfterInitialization(bean, "bean"));
+    }
+
+    @Test
+    void indexedToolClassesBecomeLazyAndExcludedOnesAreRemoved() {
+        AzureToolFilterPostProcessor processor = new AzureToolFilterPostProcessor(
+                new AzureToolFilter(List.of(), List.of("azure_*_lock*")), true);
+        DefaultListableBeanFactory registry = registry();
+
+        processor.postProcessBeanDefinitionRegistry(registry);
+
+        assertFalse(registry.containsBeanDefinition("locks"));
+        assertTrue(registry.getBeanDefinition("tags").isLazyInit());
+        // i bean che non sono classi tool non cambiano
+        assertFalse(registry.getBeanDefinition("other").isLazyInit());
+    }
+
+    @Test
+    void toolClassesStayEagerWithoutIndex() {
+        AzureToolFilterPostProcessor processor = new AzureToolFilterPostProcessor(new AzureToolFilter(List.of(), List.of()), false);
+        DefaultListableBeanFactory registry = registry();
+
+        processor.postProcessBeanDefinitionRegistry(registry);
+
+        assertFalse(registry.getBeanDefinition("tags").isLazyInit());
+        assertFalse(registry.getBeanDefinition("locks").isLazyInit());
+    }
+
+    private static DefaultListableBeanFactory registry() {
+        DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        registry.registerBeanDefinition("tags", new RootBeanDefinition(AzureTagTools.class));
+        registry.registerBeanDefinition("locks", new RootBeanDefinition(AzureLockTools.class));
+        registry.registerBeanDefinition("other", new RootBeanDefinition(NamedProvider.class));
+        return registry;
+    }
+
+    private static AzureToolFilterPostProcessor processor(List<String> include, List<String> exclude) {
+        return new AzureToolFilterPostProcessor(new AzureToolFilter(include, exclude), false);
+    }
+
+    private static List<String> names(ToolCallbackProvider provider) {
+        return Arrays.stream(provider.getToolCallbacks()).map(c -> c.getToolDefinition().name()).toList();
+    }
+
+    private static ToolCallback callback(String name) {
+        ToolDefinition definition = ToolDefinition.builder().name(name).description(name).inputSchema("{}").build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return "";
+            }
+        };
+    }
+
+    // pubblica e non final: il proxy CGLIB ne estende la classe
+    public static class NamedProvider implements ToolCallbackProvider {
+
+        private final ToolCallback[] callbacks;
+
+        public NamedProvider(String... names) {
+            this.callbacks = Arrays.stream(names).map(AzureToolFilterPostProcessorTest::callback).toArray(ToolCallback[]::new);
+        }
+
+        public NamedProvider() {
+            this(new String[0]);
+        }
+
+        @Override
+        public ToolCallback[] getToolCallbacks() {
+            return callbacks;
+        }
+
+        public String label() {
+            return "provider";
+        }
+    }
+
+    static final class FinalProvider implements ToolCallbackProvider {
+
+        @Override
+        public ToolCallback[] getToolCallbacks() {
+            return new ToolCallback[]{callback("azure_list_vms"), callback("azure_delete_vm")};
+        }
+    }
+}
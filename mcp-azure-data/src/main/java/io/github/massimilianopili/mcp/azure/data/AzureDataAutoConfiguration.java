@@ -3,9 +3,11 @@ package io.github.massimilianopili.mcp.azure.data;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
+@ImportRuntimeHints(AzureDataRuntimeHints.class)
 @Import({
         AzureSqlTools.class, AzurePostgresTools.class, AzureMySqlTools.class,
         AzureCosmosDbTools.class, AzureStorageTools.class, AzureRedisCacheTools.class,
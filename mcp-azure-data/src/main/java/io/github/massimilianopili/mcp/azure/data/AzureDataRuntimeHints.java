@@ -0,0 +1,17 @@
+package io.github.massimilianopili.mcp.azure.data;
+
+import io.github.massimilianopili.mcp.azure.core.AzureToolRuntimeHints;
+import org.springframework.aot.hint.RuntimeHints;
+
+/** Hint GraalVM per i tool e i record DTO del modulo data */
+class AzureDataRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureDataRuntimeHints() {
+        super(AzureDataRuntimeHints.class.getPackageName());
+    }
+
+    @Override
+    protected void registerModuleHints(RuntimeHints hints, ClassLoader classLoader) {
+        registerDtos(hints, AzureStorageAccount.class);
+    }
+}
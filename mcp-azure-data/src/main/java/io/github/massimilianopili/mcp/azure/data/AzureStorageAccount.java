@@ -0,0 +1,16 @@
+package io.github.massimilianopili.mcp.azure.data;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/** Storage account ARM, limitato ai campi usati dai tool di lista */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureStorageAccount(String id, String name, String location, String kind, Sku sku) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Sku(String name, String tier) {
+    }
+
+    public String skuName() {
+        return sku != null && sku.name() != null ? sku.name() : "";
+    }
+}
@@ -1,6 +1,12 @@
 package io.github.massimilianopili.mcp.azure.data;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -20,35 +26,40 @@ public class AzureStorageTools {
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
     public AzureStorageTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_storage_accounts",
           description = "Elenca tutti gli storage account nella subscription Azure")
-    @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listStorageAccounts() {
-        return webClient.get()
-                .uri(props.getArmBase() + PROVIDER + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> accounts = (List<Map<String, Object>>) response.get("value");
-                    return accounts.stream().map(a -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", a.getOrDefault("name", ""));
-                        r.put("location", a.getOrDefault("location", ""));
-                        r.put("kind", a.getOrDefault("kind", ""));
-                        r.put("sku", a.containsKey("sku") ? ((Map<String, Object>) a.get("sku")).getOrDefault("name", "") : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listStorageAccounts(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_storage_accounts", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + PROVIDER + "?api-version=" + API_VERSION, AzureStorageAccount.class)
+                .map(a -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", AzureArmResource.orEmpty(a.name()));
+                    r.put("location", AzureArmResource.orEmpty(a.location()));
+                    r.put("kind", AzureArmResource.orEmpty(a.kind()));
+                    r.put("sku", a.skuName());
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista storage account: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista storage account: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_get_storage_account",
@@ -56,12 +67,13 @@ public class AzureStorageTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getStorageAccount(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome dello storage account") String accountName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + accountName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome dello storage account") String accountName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + accountName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero storage account: " + e.getMessage())));
     }
 
@@ -70,24 +82,25 @@ public class AzureStorageTools {
     @SuppressWarnings("unchecked")
     public Mono<List<Map<String, Object>>> listStorageContainers(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome dello storage account") String accountName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/"
-                        + accountName + "/blobServices/default/containers?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> containers = (List<Map<String, Object>>) response.get("value");
-                    return containers.stream().map(c -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", c.getOrDefault("name", ""));
-                        r.put("publicAccess", c.containsKey("properties")
-                                ? ((Map<String, Object>) c.get("properties")).getOrDefault("publicAccess", "None")
-                                : "None");
-                        return r;
-                    }).toList();
-                })
+            @ToolParam(description = "Nome dello storage account") String accountName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/"
+                                + accountName + "/blobServices/default/containers?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(response -> {
+                            if (!response.containsKey("value")) return List.<Map<String, Object>>of();
+                            List<Map<String, Object>> containers = (List<Map<String, Object>>) response.get("value");
+                            return containers.stream().map(c -> {
+                                Map<String, Object> r = new LinkedHashMap<>();
+                                r.put("name", c.getOrDefault("name", ""));
+                                r.put("publicAccess", c.containsKey("properties")
+                                        ? ((Map<String, Object>) c.get("properties")).getOrDefault("publicAccess", "None")
+                                        : "None");
+                                return r;
+                            }).toList();
+                        }))
                 .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista container: " + e.getMessage()))));
     }
 
@@ -99,19 +112,20 @@ public class AzureStorageTools {
             @ToolParam(description = "Nome dello storage account (3-24 caratteri, solo minuscole e numeri)") String accountName,
             @ToolParam(description = "Location Azure, es: italynorth, westeurope") String location,
             @ToolParam(description = "SKU: Standard_LRS, Standard_GRS, Standard_RAGRS, Premium_LRS (default: Standard_LRS)", required = false) String sku,
-            @ToolParam(description = "Kind: StorageV2, BlobStorage, FileStorage (default: StorageV2)", required = false) String kind) {
+            @ToolParam(description = "Kind: StorageV2, BlobStorage, FileStorage (default: StorageV2)", required = false) String kind,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("sku", Map.of("name", (sku != null && !sku.isBlank()) ? sku : "Standard_LRS"));
         body.put("kind", (kind != null && !kind.isBlank()) ? kind : "StorageV2");
         body.put("location", location);
 
-        return webClient.put()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + accountName + "?api-version=" + API_VERSION)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+        return fanOut.inProfile(profile, arm -> webClient.put()
+                        .uri(arm + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + accountName + "?api-version=" + API_VERSION)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore creazione storage account: " + e.getMessage())));
     }
 }
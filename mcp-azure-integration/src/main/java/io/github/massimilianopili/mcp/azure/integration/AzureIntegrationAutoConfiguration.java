@@ -3,9 +3,11 @@ package io.github.massimilianopili.mcp.azure.integration;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
+@ImportRuntimeHints(AzureIntegrationRuntimeHints.class)
 @Import({
         AzureApiManagementTools.class, AzureLogicAppsTools.class, AzureCognitiveServicesTools.class,
         AzureSearchTools.class, AzureMLTools.class, AzureDataFactoryTools.class,
@@ -0,0 +1,11 @@
+package io.github.massimilianopili.mcp.azure.integration;
+
+import io.github.massimilianopili.mcp.azure.core.AzureToolRuntimeHints;
+
+/** Hint GraalVM per i tool del modulo integration */
+class AzureIntegrationRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureIntegrationRuntimeHints() {
+        super(AzureIntegrationRuntimeHints.class.getPackageName());
+    }
+}
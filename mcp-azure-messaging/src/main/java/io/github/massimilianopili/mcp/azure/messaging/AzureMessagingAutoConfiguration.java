@@ -3,9 +3,11 @@ package io.github.massimilianopili.mcp.azure.messaging;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
+@ImportRuntimeHints(AzureMessagingRuntimeHints.class)
 @Import({
         AzureServiceBusTools.class, AzureEventGridTools.class, AzureEventHubTools.class,
         AzureSignalRTools.class, AzureIotHubTools.class
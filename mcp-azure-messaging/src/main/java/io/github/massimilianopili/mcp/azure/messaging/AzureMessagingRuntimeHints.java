@@ -0,0 +1,11 @@
+package io.github.massimilianopili.mcp.azure.messaging;
+
+import io.github.massimilianopili.mcp.azure.core.AzureToolRuntimeHints;
+
+/** Hint GraalVM per i tool del modulo messaging */
+class AzureMessagingRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureMessagingRuntimeHints() {
+        super(AzureMessagingRuntimeHints.class.getPackageName());
+    }
+}
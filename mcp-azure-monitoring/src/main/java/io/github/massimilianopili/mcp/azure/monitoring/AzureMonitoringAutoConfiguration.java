@@ -3,9 +3,11 @@ package io.github.massimilianopili.mcp.azure.monitoring;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
+@ImportRuntimeHints(AzureMonitoringRuntimeHints.class)
 @Import({
         AzureMonitorTools.class, AzureDiagnosticTools.class, AzureAlertTools.class,
         AzureAutoscaleTools.class, AzureCostTools.class
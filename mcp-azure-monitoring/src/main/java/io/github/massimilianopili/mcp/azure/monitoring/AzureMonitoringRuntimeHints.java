@@ -0,0 +1,11 @@
+package io.github.massimilianopili.mcp.azure.monitoring;
+
+import io.github.massimilianopili.mcp.azure.core.AzureToolRuntimeHints;
+
+/** Hint GraalVM per i tool del modulo monitoring */
+class AzureMonitoringRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureMonitoringRuntimeHints() {
+        super(AzureMonitoringRuntimeHints.class.getPackageName());
+    }
+}
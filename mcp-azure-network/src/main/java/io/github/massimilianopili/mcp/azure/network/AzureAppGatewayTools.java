@@ -1,6 +1,8 @@
 package io.github.massimilianopili.mcp.azure.network;
 
+import io.github.massimilianopili.mcp.azure.core.AzureOutputShape;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureRawJson;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -56,15 +58,16 @@ public class AzureAppGatewayTools {
 
     @ReactiveTool(name = "azure_get_app_gateway",
           description = "Recupera i dettagli di un Application Gateway Azure (routing rules, backends, listeners)")
-    @SuppressWarnings("unchecked")
-    public Mono<Map<String, Object>> getAppGateway(
+    public Mono<Object> getAppGateway(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome dell'Application Gateway") String gatewayName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + gatewayName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome dell'Application Gateway") String gatewayName,
+            @ToolParam(description = AzureOutputShape.FIELDS_PARAM, required = false) String fields,
+            @ToolParam(description = AzureOutputShape.MAX_DEPTH_PARAM, required = false) Integer maxDepth,
+            @ToolParam(description = AzureOutputShape.MAX_ITEMS_PARAM, required = false) Integer maxItems,
+            @ToolParam(description = AzureOutputShape.MAX_BYTES_PARAM, required = false) Integer maxBytes) {
+        return AzureRawJson.get(webClient,
+                        props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + gatewayName + "?api-version=" + API_VERSION,
+                        AzureOutputShape.of(fields, maxDepth, maxItems, maxBytes, props.getOutput()))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero Application Gateway: " + e.getMessage())));
     }
 
@@ -0,0 +1,22 @@
+package io.github.massimilianopili.mcp.azure.network;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/** Record set di una zona DNS pubblica */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureDnsRecordSet(String id, String name, String type, Properties properties) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Properties(@JsonProperty("TTL") Long ttl, String fqdn) {
+    }
+
+    /** Tipo breve (A, CNAME, ...) da "Microsoft.Network/dnszones/A" */
+    public String shortType() {
+        return type == null ? "" : type.replaceAll(".*/", "");
+    }
+
+    public long ttl() {
+        return properties != null && properties.ttl() != null ? properties.ttl() : 0;
+    }
+}
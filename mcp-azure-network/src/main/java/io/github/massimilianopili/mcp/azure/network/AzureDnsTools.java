@@ -1,5 +1,7 @@
 package io.github.massimilianopili.mcp.azure.network;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
@@ -68,27 +70,20 @@ public class AzureDnsTools {
 
     @ReactiveTool(name = "azure_list_dns_records",
           description = "Elenca tutti i record DNS di una zona Azure")
-    @SuppressWarnings("unchecked")
     public Mono<List<Map<String, Object>>> listDnsRecords(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
             @ToolParam(description = "Nome della zona DNS, es: example.com") String zoneName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + zoneName + "/all?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> records = (List<Map<String, Object>>) response.get("value");
-                    return records.stream().map(rec -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", rec.getOrDefault("name", ""));
-                        r.put("type", ((String) rec.getOrDefault("type", "")).replaceAll(".*/", ""));
-                        r.put("ttl", rec.containsKey("properties")
-                                ? ((Map<String, Object>) rec.get("properties")).getOrDefault("TTL", 0)
-                                : 0);
-                        return r;
-                    }).toList();
+        return AzureArmPaging.items(webClient,
+                        props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + zoneName + "/all?api-version=" + API_VERSION,
+                        AzureDnsRecordSet.class)
+                .map(rec -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", AzureArmResource.orEmpty(rec.name()));
+                    r.put("type", rec.shortType());
+                    r.put("ttl", rec.ttl());
+                    return r;
                 })
+                .collectList()
                 .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista record DNS: " + e.getMessage()))));
     }
 
@@ -1,6 +1,8 @@
 package io.github.massimilianopili.mcp.azure.network;
 
+import io.github.massimilianopili.mcp.azure.core.AzureOutputShape;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureRawJson;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -67,15 +69,16 @@ public class AzureFrontDoorTools {
 
     @ReactiveTool(name = "azure_get_front_door_profile",
           description = "Recupera i dettagli di un profilo Azure Front Door")
-    @SuppressWarnings("unchecked")
-    public Mono<Map<String, Object>> getFrontDoorProfile(
+    public Mono<Object> getFrontDoorProfile(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome del profilo Front Door") String profileName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + profileName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome del profilo Front Door") String profileName,
+            @ToolParam(description = AzureOutputShape.FIELDS_PARAM, required = false) String fields,
+            @ToolParam(description = AzureOutputShape.MAX_DEPTH_PARAM, required = false) Integer maxDepth,
+            @ToolParam(description = AzureOutputShape.MAX_ITEMS_PARAM, required = false) Integer maxItems,
+            @ToolParam(description = AzureOutputShape.MAX_BYTES_PARAM, required = false) Integer maxBytes) {
+        return AzureRawJson.get(webClient,
+                        props.getArmBase() + "/resourceGroups/" + resourceGroup + PROVIDER + "/" + profileName + "?api-version=" + API_VERSION,
+                        AzureOutputShape.of(fields, maxDepth, maxItems, maxBytes, props.getOutput()))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero Front Door profile: " + e.getMessage())));
     }
 
@@ -3,9 +3,11 @@ package io.github.massimilianopili.mcp.azure.network;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
+@ImportRuntimeHints(AzureNetworkRuntimeHints.class)
 @Import({
         AzureNetworkTools.class, AzureDnsTools.class, AzurePrivateDnsTools.class,
         AzureLoadBalancerTools.class, AzureAppGatewayTools.class, AzureFrontDoorTools.class,
@@ -0,0 +1,17 @@
+package io.github.massimilianopili.mcp.azure.network;
+
+import io.github.massimilianopili.mcp.azure.core.AzureToolRuntimeHints;
+import org.springframework.aot.hint.RuntimeHints;
+
+/** Hint GraalVM per i tool e i record DTO del modulo network */
+class AzureNetworkRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureNetworkRuntimeHints() {
+        super(AzureNetworkRuntimeHints.class.getPackageName());
+    }
+
+    @Override
+    protected void registerModuleHints(RuntimeHints hints, ClassLoader classLoader) {
+        registerDtos(hints, AzureDnsRecordSet.class);
+    }
+}
@@ -1,6 +1,12 @@
 package io.github.massimilianopili.mcp.azure.network;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
+import io.github.massimilianopili.mcp.azure.core.AzureProfileRegistry;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
+import io.github.massimilianopili.mcp.azure.core.AzureSubscriptionFanOut;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -18,19 +24,31 @@ public class AzureNetworkTools {
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureSubscriptionFanOut fanOut;
+    private final AzureResultCursors cursors;
 
     public AzureNetworkTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureSubscriptionFanOut fanOut,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.fanOut = fanOut;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_vnets",
           description = "Elenca tutte le Virtual Network (VNet) nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listVnets() {
-        return listResources("/providers/Microsoft.Network/virtualNetworks", "VNet");
+    public Mono<Object> listVnets(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_vnets", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor,
+                listResources(profile, subscriptions, "/providers/Microsoft.Network/virtualNetworks", "VNet"));
     }
 
     @ReactiveTool(name = "azure_get_vnet",
@@ -38,13 +56,14 @@ public class AzureNetworkTools {
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> getVnet(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della VNet") String vnetName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup
-                        + "/providers/Microsoft.Network/virtualNetworks/" + vnetName + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(r -> (Map<String, Object>) r)
+            @ToolParam(description = "Nome della VNet") String vnetName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup
+                                + "/providers/Microsoft.Network/virtualNetworks/" + vnetName + "?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(r -> (Map<String, Object>) r))
                 .onErrorResume(e -> Mono.just(Map.of("error", "Errore recupero VNet: " + e.getMessage())));
     }
 
@@ -53,101 +72,105 @@ public class AzureNetworkTools {
     @SuppressWarnings("unchecked")
     public Mono<List<Map<String, Object>>> listSubnets(
             @ToolParam(description = "Nome del resource group") String resourceGroup,
-            @ToolParam(description = "Nome della VNet") String vnetName) {
-        return webClient.get()
-                .uri(props.getArmBase() + "/resourceGroups/" + resourceGroup
-                        + "/providers/Microsoft.Network/virtualNetworks/" + vnetName + "/subnets?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> subnets = (List<Map<String, Object>>) response.get("value");
-                    return subnets.stream().map(s -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", s.getOrDefault("name", ""));
-                        r.put("addressPrefix", s.containsKey("properties")
-                                ? ((Map<String, Object>) s.get("properties")).getOrDefault("addressPrefix", "")
-                                : "");
-                        return r;
-                    }).toList();
-                })
+            @ToolParam(description = "Nome della VNet") String vnetName,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile) {
+        return fanOut.inProfile(profile, arm -> webClient.get()
+                        .uri(arm + "/resourceGroups/" + resourceGroup
+                                + "/providers/Microsoft.Network/virtualNetworks/" + vnetName + "/subnets?api-version=" + API_VERSION)
+                        .retrieve()
+                        .bodyToMono(Map.class)
+                        .map(response -> {
+                            if (!response.containsKey("value")) return List.<Map<String, Object>>of();
+                            List<Map<String, Object>> subnets = (List<Map<String, Object>>) response.get("value");
+                            return subnets.stream().map(s -> {
+                                Map<String, Object> r = new LinkedHashMap<>();
+                                r.put("name", s.getOrDefault("name", ""));
+                                r.put("addressPrefix", s.containsKey("properties")
+                                        ? ((Map<String, Object>) s.get("properties")).getOrDefault("addressPrefix", "")
+                                        : "");
+                                return r;
+                            }).toList();
+                        }))
                 .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista subnet: " + e.getMessage()))));
     }
 
     @ReactiveTool(name = "azure_list_nsgs",
           description = "Elenca tutti i Network Security Group (NSG) nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listNsgs() {
-        return listResources("/providers/Microsoft.Network/networkSecurityGroups", "NSG");
+    public Mono<Object> listNsgs(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_nsgs", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor,
+                listResources(profile, subscriptions, "/providers/Microsoft.Network/networkSecurityGroups", "NSG"));
     }
 
     @ReactiveTool(name = "azure_list_public_ips",
           description = "Elenca tutti gli indirizzi IP pubblici nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listPublicIps() {
-        return webClient.get()
-                .uri(props.getArmBase() + "/providers/Microsoft.Network/publicIPAddresses?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> ips = (List<Map<String, Object>>) response.get("value");
-                    return ips.stream().map(ip -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", ip.getOrDefault("name", ""));
-                        r.put("location", ip.getOrDefault("location", ""));
-                        r.put("ipAddress", ip.containsKey("properties")
-                                ? ((Map<String, Object>) ip.get("properties")).getOrDefault("ipAddress", "")
-                                : "");
-                        r.put("allocationMethod", ip.containsKey("properties")
-                                ? ((Map<String, Object>) ip.get("properties")).getOrDefault("publicIPAllocationMethod", "")
-                                : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listPublicIps(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_public_ips", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor, fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + "/providers/Microsoft.Network/publicIPAddresses?api-version=" + API_VERSION)
+                .map(ip -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", ip.getOrDefault("name", ""));
+                    r.put("location", ip.getOrDefault("location", ""));
+                    r.put("ipAddress", ip.containsKey("properties")
+                            ? ((Map<String, Object>) ip.get("properties")).getOrDefault("ipAddress", "")
+                            : "");
+                    r.put("allocationMethod", ip.containsKey("properties")
+                            ? ((Map<String, Object>) ip.get("properties")).getOrDefault("publicIPAllocationMethod", "")
+                            : "");
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista IP pubblici: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista IP pubblici: " + e.getMessage()))))));
     }
 
     @ReactiveTool(name = "azure_list_load_balancers",
           description = "Elenca tutti i Load Balancer nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listLoadBalancers() {
-        return listResources("/providers/Microsoft.Network/loadBalancers", "Load Balancer");
+    public Mono<Object> listLoadBalancers(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_load_balancers", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor,
+                listResources(profile, subscriptions, "/providers/Microsoft.Network/loadBalancers", "Load Balancer"));
     }
 
     @ReactiveTool(name = "azure_list_network_interfaces",
           description = "Elenca tutte le Network Interface (NIC) nella subscription Azure")
     @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listNetworkInterfaces() {
-        return listResources("/providers/Microsoft.Network/networkInterfaces", "NIC");
+    public Mono<Object> listNetworkInterfaces(
+            @ToolParam(description = AzureSubscriptionFanOut.SUBSCRIPTIONS_PARAM, required = false) String subscriptions,
+            @ToolParam(description = AzureProfileRegistry.PROFILE_PARAM, required = false) String profile,
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_network_interfaces", AzureResultCursors.args(profile, subscriptions), format, pageSize, cursor,
+                listResources(profile, subscriptions, "/providers/Microsoft.Network/networkInterfaces", "NIC"));
     }
 
-    @SuppressWarnings("unchecked")
-    private Mono<List<Map<String, Object>>> listResources(String providerPath, String resourceType) {
-        return webClient.get()
-                .uri(props.getArmBase() + providerPath + "?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> items = (List<Map<String, Object>>) response.get("value");
-                    return items.stream().map(item -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", item.getOrDefault("name", ""));
-                        r.put("location", item.getOrDefault("location", ""));
-                        r.put("resourceGroup", extractRgFromId((String) item.getOrDefault("id", "")));
-                        return r;
-                    }).toList();
+    private Mono<List<Map<String, Object>>> listResources(String profile, String subscriptions, String providerPath, String resourceType) {
+        return fanOut.fanOut(profile, subscriptions, subscriptionId -> AzureArmPaging.items(webClient,
+                        props.getArmBase(subscriptionId) + providerPath + "?api-version=" + API_VERSION, AzureArmResource.class)
+                .map(item -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", AzureArmResource.orEmpty(item.name()));
+                    r.put("location", AzureArmResource.orEmpty(item.location()));
+                    r.put("resourceGroup", item.resourceGroup());
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista " + resourceType + ": " + e.getMessage()))));
-    }
-
-    private String extractRgFromId(String id) {
-        if (id == null || id.isEmpty()) return "";
-        String[] parts = id.split("/");
-        for (int i = 0; i < parts.length - 1; i++) {
-            if ("resourceGroups".equalsIgnoreCase(parts[i])) return parts[i + 1];
-        }
-        return "";
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista " + resourceType + ": " + e.getMessage())))));
     }
 }
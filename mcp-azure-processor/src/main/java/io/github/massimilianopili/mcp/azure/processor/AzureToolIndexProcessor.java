@@ -0,0 +1,249 @@
+package io.github.massimilianopili.mcp.azure.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Genera a compile time, per ogni package con metodi {@code @ReactiveTool}, una classe
+ * {@code GeneratedAzureToolIndex} con nome, descrizione, parametri e invoker (lambda, senza reflection)
+ * di ogni tool, registrata in {@code META-INF/services}.
+ * Le annotazioni sono riferite per nome: il processor non dipende da Spring AI né da reactive-tools.
+ */
+@SupportedAnnotationTypes(AzureToolIndexProcessor.REACTIVE_TOOL)
+public class AzureToolIndexProcessor extends AbstractProcessor {
+
+    static final String REACTIVE_TOOL = "io.github.massimilianopili.ai.reactive.annotation.ReactiveTool";
+    static final String TOOL_PARAM = "org.springframework.ai.tool.annotation.ToolParam";
+
+    private static final String CORE = "io.github.massimilianopili.mcp.azure.core";
+    private static final String INDEX_INTERFACE = CORE + ".AzureToolIndex";
+    private static final String DESCRIPTOR = CORE + ".AzureToolDescriptor";
+    private static final String INDEX_CLASS = "GeneratedAzureToolIndex";
+    private static final String MONO = "reactor.core.publisher.Mono";
+
+    private final Set<String> generated = new LinkedHashSet<>();
+    private Filer filer;
+    private Messager messager;
+    private Elements elements;
+    private Types types;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment env) {
+        super.init(env);
+        this.filer = env.getFiler();
+        this.messager = env.getMessager();
+        this.elements = env.getElementUtils();
+        this.types = env.getTypeUtils();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        if (round.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+        TypeElement reactiveTool = elements.getTypeElement(REACTIVE_TOOL);
+        if (reactiveTool == null) return false;
+
+        // package -> metodi tool, in ordine stabile per build riproducibili
+        Map<String, List<ExecutableElement>> byPackage = new TreeMap<>();
+        for (Element e : round.getElementsAnnotatedWith(reactiveTool)) {
+            if (e.getKind() != ElementKind.METHOD) continue;
+            ExecutableElement method = (ExecutableElement) e;
+            if (!validate(method)) continue;
+            String pkg = elements.getPackageOf(method).getQualifiedName().toString();
+            byPackage.computeIfAbsent(pkg, k -> new ArrayList<>()).add(method);
+        }
+        byPackage.forEach(this::writeIndex);
+        return false;
+    }
+
+    private boolean validate(ExecutableElement method) {
+        if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@ReactiveTool richiede un metodo public", method);
+            return false;
+        }
+        TypeMirror ret = types.erasure(method.getReturnType());
+        if (!ret.toString().equals(MONO)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@ReactiveTool richiede un metodo che restituisce Mono", method);
+            return false;
+        }
+        return true;
+    }
+
+    private void writeIndex(String pkg, List<ExecutableElement> methods) {
+        String fqcn = pkg.isEmpty() ? INDEX_CLASS : pkg + "." + INDEX_CLASS;
+        Element[] origins = methods.stream().map(Element::getEnclosingElement).distinct().toArray(Element[]::new);
+        StringBuilder src = new StringBuilder();
+        if (!pkg.isEmpty()) src.append("package ").append(pkg).append(";\n\n");
+        src.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+           .append("public final class ").append(INDEX_CLASS).append(" implements ").append(INDEX_INTERFACE).append(" {\n\n")
+           .append("    @Override\n")
+           .append("    public java.util.List<").append(DESCRIPTOR).append("> tools() {\n")
+           .append("        return java.util.List.of(");
+        for (int i = 0; i < methods.size(); i++) {
+            src.append(i == 0 ? "\n" : ",\n");
+            appendDescriptor(src, methods.get(i));
+        }
+        src.append(");\n    }\n}\n");
+
+        try (Writer w = filer.createSourceFile(fqcn, origins).openWriter()) {
+            w.write(src.toString());
+            generated.add(fqcn);
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Impossibile generare " + fqcn + ": " + e.getMessage());
+        }
+    }
+
+    private void appendDescriptor(StringBuilder src, ExecutableElement method) {
+        TypeElement owner = (TypeElement) method.getEnclosingElement();
+        String ownerName = owner.getQualifiedName().toString();
+        Map<String, Object> tool = values(find(method, REACTIVE_TOOL));
+        String name = String.valueOf(tool.getOrDefault("name", ""));
+        if (name.isEmpty()) name = method.getSimpleName().toString();
+
+        src.append("                new ").append(DESCRIPTOR).append("(")
+           .append(literal(name)).append(", ")
+           .append(literal(String.valueOf(tool.getOrDefault("description", "")))).append(", ")
+           .append(ownerName).append(".class,\n")
+           .append("                        java.util.List.of(");
+        List<? extends VariableElement> params = method.getParameters();
+        for (int i = 0; i < params.size(); i++) {
+            VariableElement p = params.get(i);
+            Map<String, Object> tp = values(find(p, TOOL_PARAM));
+            src.append(i == 0 ? "" : ", ")
+               .append("new ").append(DESCRIPTOR).append(".Param(")
+               .append(literal(p.getSimpleName().toString())).append(", ")
+               .append(literal(schemaType(p.asType()))).append(", ")
+               .append(literal(String.valueOf(tp.getOrDefault("description", "")))).append(", ")
+               .append(tp.getOrDefault("required", Boolean.TRUE)).append(")");
+        }
+        src.append("),\n                        (bean, args) -> ((").append(ownerName).append(") bean).")
+           .append(method.getSimpleName()).append("(");
+        for (int i = 0; i < params.size(); i++) {
+            src.append(i == 0 ? "" : ", ").append(argument(params.get(i)));
+        }
+        src.append("))");
+    }
+
+    /** Espressione che estrae e converte l'argomento dalla mappa JSON della chiamata */
+    private String argument(VariableElement p) {
+        String name = literal(p.getSimpleName().toString());
+        TypeMirror type = p.asType();
+        return switch (type.getKind()) {
+            case INT -> "args.intValue(" + name + ")";
+            case LONG -> "args.longValue(" + name + ")";
+            case DOUBLE -> "args.doubleValue(" + name + ")";
+            case BOOLEAN -> "args.booleanValue(" + name + ")";
+            default -> {
+                String raw = types.erasure(type).toString();
+                yield raw.equals("java.lang.String")
+                        ? "args.string(" + name + ")"
+                        : "args.get(" + name + ", " + raw + ".class)";
+            }
+        };
+    }
+
+    private String schemaType(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) return "array";
+        if (type.getKind().isPrimitive()) {
+            return switch (type.getKind()) {
+                case BOOLEAN -> "boolean";
+                case FLOAT, DOUBLE -> "number";
+                default -> "integer";
+            };
+        }
+        String raw = types.erasure(type).toString();
+        return switch (raw) {
+            case "java.lang.String" -> "string";
+            case "java.lang.Integer", "java.lang.Long", "java.lang.Short" -> "integer";
+            case "java.lang.Double", "java.lang.Float" -> "number";
+            case "java.lang.Boolean" -> "boolean";
+            case "java.util.List", "java.util.Set", "java.util.Collection" -> "array";
+            default -> "object";
+        };
+    }
+
+    private void writeServiceFile() {
+        if (generated.isEmpty()) return;
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/" + INDEX_INTERFACE);
+            try (Writer w = file.openWriter()) {
+                for (String fqcn : generated) w.write(fqcn + "\n");
+            }
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Impossibile scrivere il service file: " + e.getMessage());
+        }
+    }
+
+    private static AnnotationMirror find(Element element, String annotation) {
+        for (AnnotationMirror m : element.getAnnotationMirrors()) {
+            if (((TypeElement) m.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) return m;
+        }
+        return null;
+    }
+
+    /** Valori dell'annotazione inclusi i default; mappa vuota se assente */
+    private Map<String, Object> values(AnnotationMirror mirror) {
+        Map<String, Object> result = new TreeMap<>();
+        if (mirror == null) return result;
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e
+                : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            result.put(e.getKey().getSimpleName().toString(), e.getValue().getValue());
+        }
+        return result;
+    }
+
+    /** Letterale Java; i caratteri non ASCII diventano escape unicode, indipendenti dall'encoding del sorgente */
+    private static String literal(String s) {
+        StringBuilder b = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> b.append("\\\"");
+                case '\\' -> b.append("\\\\");
+                case '\n' -> b.append("\\n");
+                case '\r' -> b.append("\\r");
+                case '\t' -> b.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) b.append(String.format("\\u%04x", (int) c));
+                    else b.append(c);
+                }
+            }
+        }
+        return b.append('"').toString();
+    }
+}
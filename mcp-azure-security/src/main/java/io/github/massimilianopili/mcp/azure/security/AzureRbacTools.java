@@ -1,6 +1,10 @@
 package io.github.massimilianopili.mcp.azure.security;
 
+import io.github.massimilianopili.mcp.azure.core.AzureArmPaging;
+import io.github.massimilianopili.mcp.azure.core.AzureArmResource;
+import io.github.massimilianopili.mcp.azure.core.AzureListFormat;
 import io.github.massimilianopili.mcp.azure.core.AzureProperties;
+import io.github.massimilianopili.mcp.azure.core.AzureResultCursors;
 
 import io.github.massimilianopili.ai.reactive.annotation.ReactiveTool;
 import org.springframework.ai.tool.annotation.ToolParam;
@@ -19,41 +23,36 @@ public class AzureRbacTools {
 
     private final WebClient webClient;
     private final AzureProperties props;
+    private final AzureResultCursors cursors;
 
     public AzureRbacTools(
             @Qualifier("azureArmWebClient") WebClient webClient,
-            AzureProperties props) {
+            AzureProperties props,
+            AzureResultCursors cursors) {
         this.webClient = webClient;
         this.props = props;
+        this.cursors = cursors;
     }
 
     @ReactiveTool(name = "azure_list_role_assignments",
           description = "Elenca le assegnazioni di ruolo (RBAC) nella subscription Azure")
-    @SuppressWarnings("unchecked")
-    public Mono<List<Map<String, Object>>> listRoleAssignments() {
-        return webClient.get()
-                .uri(props.getArmBase() + "/providers/Microsoft.Authorization/roleAssignments?api-version=" + API_VERSION)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(response -> {
-                    if (!response.containsKey("value")) return List.<Map<String, Object>>of();
-                    List<Map<String, Object>> assignments = (List<Map<String, Object>>) response.get("value");
-                    return assignments.stream().map(a -> {
-                        Map<String, Object> r = new LinkedHashMap<>();
-                        r.put("name", a.getOrDefault("name", ""));
-                        r.put("principalId", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("principalId", "")
-                                : "");
-                        r.put("roleDefinitionId", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("roleDefinitionId", "")
-                                : "");
-                        r.put("scope", a.containsKey("properties")
-                                ? ((Map<String, Object>) a.get("properties")).getOrDefault("scope", "")
-                                : "");
-                        return r;
-                    }).toList();
+    public Mono<Object> listRoleAssignments(
+            @ToolParam(description = AzureListFormat.FORMAT_PARAM, required = false) String format,
+            @ToolParam(description = AzureResultCursors.PAGE_SIZE_PARAM, required = false) Integer pageSize,
+            @ToolParam(description = AzureResultCursors.CURSOR_PARAM, required = false) String cursor) {
+        return cursors.list("azure_list_role_assignments", AzureResultCursors.args(), format, pageSize, cursor, AzureArmPaging.items(webClient,
+                        props.getArmBase() + "/providers/Microsoft.Authorization/roleAssignments?api-version=" + API_VERSION,
+                        AzureRoleAssignment.class)
+                .map(a -> {
+                    Map<String, Object> r = new LinkedHashMap<>();
+                    r.put("name", AzureArmResource.orEmpty(a.name()));
+                    r.put("principalId", a.principalId());
+                    r.put("roleDefinitionId", a.roleDefinitionId());
+                    r.put("scope", a.scope());
+                    return r;
                 })
-                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista role assignment: " + e.getMessage()))));
+                .collectList()
+                .onErrorResume(e -> Mono.just(List.of(Map.of("error", "Errore lista role assignment: " + e.getMessage())))));
     }
 
     @ReactiveTool(name = "azure_create_role_assignment",
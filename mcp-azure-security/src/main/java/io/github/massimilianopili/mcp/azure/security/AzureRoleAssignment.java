@@ -0,0 +1,24 @@
+package io.github.massimilianopili.mcp.azure.security;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/** Assegnazione di ruolo RBAC */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record AzureRoleAssignment(String id, String name, Properties properties) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Properties(String principalId, String principalType, String roleDefinitionId, String scope) {
+    }
+
+    public String principalId() {
+        return properties != null && properties.principalId() != null ? properties.principalId() : "";
+    }
+
+    public String roleDefinitionId() {
+        return properties != null && properties.roleDefinitionId() != null ? properties.roleDefinitionId() : "";
+    }
+
+    public String scope() {
+        return properties != null && properties.scope() != null ? properties.scope() : "";
+    }
+}
@@ -3,9 +3,11 @@ package io.github.massimilianopili.mcp.azure.security;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @AutoConfiguration
 @ConditionalOnProperty(name = "mcp.azure.client-id")
+@ImportRuntimeHints(AzureSecurityRuntimeHints.class)
 @Import({
         AzureKeyVaultTools.class, AzureRbacTools.class, AzureManagedIdentityTools.class,
         AzureDefenderTools.class, AzurePolicyTools.class, AzureAdTools.class
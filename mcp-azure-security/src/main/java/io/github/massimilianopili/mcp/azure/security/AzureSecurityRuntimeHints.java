@@ -0,0 +1,17 @@
+package io.github.massimilianopili.mcp.azure.security;
+
+import io.github.massimilianopili.mcp.azure.core.AzureToolRuntimeHints;
+import org.springframework.aot.hint.RuntimeHints;
+
+/** Hint GraalVM per i tool e i record DTO del modulo security */
+class AzureSecurityRuntimeHints extends AzureToolRuntimeHints {
+
+    AzureSecurityRuntimeHints() {
+        super(AzureSecurityRuntimeHints.class.getPackageName());
+    }
+
+    @Override
+    protected void registerModuleHints(RuntimeHints hints, ClassLoader classLoader) {
+        registerDtos(hints, AzureRoleAssignment.class);
+    }
+}